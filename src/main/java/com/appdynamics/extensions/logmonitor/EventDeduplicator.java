@@ -0,0 +1,152 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor;
+
+import com.appdynamics.extensions.logmonitor.config.EventDeduplication;
+import com.google.common.collect.Lists;
+
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Collapses repeats of an event of a log into one event per window. Events are repeats if they come from the same
+ * search pattern and their matches are equal after masking UUIDs, hex values and numbers. The first event of a
+ * window is held until the window closes and is then published with the number of repeats and the times they were
+ * seen. The number of windows open at a time is bounded; when it is exceeded, the least recently repeated window is
+ * closed early.
+ */
+public class EventDeduplicator {
+    private static final Pattern VARIABLE_PARTS = Pattern.compile(
+            "[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}" +
+                    "|0[xX][0-9a-fA-F]+|\\b(?=[0-9a-fA-F]*[0-9])[0-9a-fA-F]{8,}\\b|[0-9]+");
+
+    private final Map<String, Window> windows = new LinkedHashMap<String, Window>(16, 0.75f, true);
+    private final List<Window> evicted = Lists.newArrayList();
+    private int maxFingerprints = EventDeduplication.DEFAULT_MAX_FINGERPRINTS;
+
+    /**
+     * @param events             the events found in this run
+     * @param eventDeduplication the deduplication settings, or null to publish every event on its own
+     * @param now                the time of the run in milliseconds
+     * @return the events to publish in this run
+     */
+    public synchronized List<LogEvent> deduplicate(List<LogEvent> events, EventDeduplication eventDeduplication,
+                                                   long now) {
+        List<LogEvent> eventsToPublish = Lists.newArrayList();
+        if (eventDeduplication == null) {
+            for (LogEvent event : events) {
+                if (event != null) {
+                    eventsToPublish.add(stamp(event, 1, now, now));
+                }
+            }
+            closeAll(eventsToPublish);
+            return eventsToPublish;
+        }
+        maxFingerprints = eventDeduplication.getMaxFingerprints();
+        for (LogEvent event : events) {
+            if (event == null) {
+                continue;
+            }
+            String key = event.getSearchPattern() + '\u0000' + fingerprint(event.getLogMatch());
+            Window window = windows.get(key);
+            if (window == null) {
+                windows.put(key, new Window(event, now));
+                evictLeastRecentlyRepeated();
+            } else {
+                window.count++;
+                window.lastSeen = now;
+            }
+        }
+        long windowMillis = TimeUnit.SECONDS.toMillis(eventDeduplication.getWindowSeconds());
+        Iterator<Window> iterator = windows.values().iterator();
+        while (iterator.hasNext()) {
+            Window window = iterator.next();
+            if (now - window.firstSeen >= windowMillis) {
+                iterator.remove();
+                eventsToPublish.add(window.close());
+            }
+        }
+        for (Window window : evicted) {
+            eventsToPublish.add(window.close());
+        }
+        evicted.clear();
+        return eventsToPublish;
+    }
+
+    /**
+     * Closes the open windows, e.g. when the log is removed from the config.yml or the monitor stops.
+     *
+     * @return the events held by the windows
+     */
+    public synchronized List<LogEvent> closeAll() {
+        List<LogEvent> eventsToPublish = Lists.newArrayList();
+        closeAll(eventsToPublish);
+        return eventsToPublish;
+    }
+
+    /**
+     * @return the match with UUIDs, hex values and numbers replaced by '#'
+     */
+    static String fingerprint(String logMatch) {
+        return logMatch == null ? "" : VARIABLE_PARTS.matcher(logMatch).replaceAll("#");
+    }
+
+    synchronized int getOpenWindows() {
+        return windows.size();
+    }
+
+    private void evictLeastRecentlyRepeated() {
+        Iterator<Window> iterator = windows.values().iterator();
+        while (windows.size() > maxFingerprints && iterator.hasNext()) {
+            evicted.add(iterator.next());
+            iterator.remove();
+        }
+    }
+
+    // publishes the windows still open, e.g. when deduplication was turned off
+    private void closeAll(List<LogEvent> eventsToPublish) {
+        for (Window window : windows.values()) {
+            eventsToPublish.add(window.close());
+        }
+        windows.clear();
+    }
+
+    private static LogEvent stamp(LogEvent event, int count, long firstSeen, long lastSeen) {
+        event.setCount(count);
+        event.setFirstSeen(formatTime(firstSeen));
+        event.setLastSeen(formatTime(lastSeen));
+        return event;
+    }
+
+    private static String formatTime(long millis) {
+        return Instant.ofEpochMilli(millis).toString();
+    }
+
+    private static class Window {
+        private final LogEvent event;
+        private final long firstSeen;
+        private long lastSeen;
+        private int count = 1;
+
+        private Window(LogEvent event, long firstSeen) {
+            this.event = event;
+            this.firstSeen = firstSeen;
+            this.lastSeen = firstSeen;
+        }
+
+        private LogEvent close() {
+            return stamp(event, count, firstSeen, lastSeen);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor;
+
+import com.appdynamics.extensions.eventsservice.EventsServiceDataManager;
+import com.appdynamics.extensions.logging.ExtensionsLoggerFactory;
+import com.appdynamics.extensions.logmonitor.config.EventBatching;
+import com.google.common.collect.Lists;
+import org.slf4j.Logger;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Publishes events to the Events Service in batches limited by size and number of events. The batches of all logs
+ * are sent by a small pool of threads, which bounds the number of requests in flight at a time.
+ */
+public class EventsPublisher {
+    private static final Logger LOGGER = ExtensionsLoggerFactory.getLogger(EventsPublisher.class);
+    // the brackets and commas of the JSON array holding the events of a request
+    private static final int ARRAY_OVERHEAD_BYTES = 2;
+
+    private final ThreadPoolExecutor executor;
+    private volatile EventBatching eventBatching = new EventBatching();
+
+    public EventsPublisher() {
+        final AtomicInteger threadCount = new AtomicInteger();
+        int threads = EventBatching.DEFAULT_MAX_CONCURRENT_REQUESTS;
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "LogMonitor-EventsPublisher-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Applies the batching settings of the config.yml for the coming run.
+     */
+    public synchronized void startCycle(EventBatching eventBatching) {
+        int threads = eventBatching.getMaxConcurrentRequests();
+        if (threads > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(threads);
+            executor.setCorePoolSize(threads);
+        } else if (threads < executor.getMaximumPoolSize()) {
+            executor.setCorePoolSize(threads);
+            executor.setMaximumPoolSize(threads);
+        }
+        this.eventBatching = eventBatching;
+    }
+
+    /**
+     * Sends the events in batches and waits until all batches were sent. A batch that fails is logged and does not
+     * keep the other batches from being sent.
+     *
+     * @param events the events, each serialized to JSON
+     * @return the number of events sent
+     */
+    public int publish(final EventsServiceDataManager eventsServiceDataManager, final String schemaName,
+                       List<String> events) throws InterruptedException {
+        EventBatching eventBatching = this.eventBatching;
+        List<List<String>> batches = split(events, eventBatching.getMaxBatchBytes(),
+                eventBatching.getMaxBatchEvents());
+        List<Future<?>> futures = Lists.newArrayListWithCapacity(batches.size());
+        for (final List<String> batch : batches) {
+            futures.add(executor.submit(new Callable<Void>() {
+                public Void call() {
+                    eventsServiceDataManager.publishEvents(schemaName, batch);
+                    return null;
+                }
+            }));
+        }
+        int published = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                futures.get(i).get();
+                published += batches.get(i).size();
+            } catch (ExecutionException ex) {
+                LOGGER.error("Error encountered while publishing a batch of {} events to schema {}",
+                        batches.get(i).size(), schemaName, ex.getCause());
+            }
+        }
+        LOGGER.debug("Published {} of {} events in {} batches", published, events.size(), batches.size());
+        return published;
+    }
+
+    /**
+     * Splits the events into batches of at most maxBatchEvents events, whose JSON array is at most maxBatchBytes
+     * long. An event longer than maxBatchBytes is sent in a batch of its own.
+     */
+    static List<List<String>> split(List<String> events, int maxBatchBytes, int maxBatchEvents) {
+        List<List<String>> batches = Lists.newArrayList();
+        List<String> batch = Lists.newArrayList();
+        long batchBytes = ARRAY_OVERHEAD_BYTES;
+        for (String event : events) {
+            long eventBytes = utf8Length(event);
+            long separatorBytes = batch.isEmpty() ? 0 : 1;
+            if (!batch.isEmpty() && (batch.size() >= maxBatchEvents ||
+                    batchBytes + separatorBytes + eventBytes > maxBatchBytes)) {
+                batches.add(batch);
+                batch = Lists.newArrayList();
+                batchBytes = ARRAY_OVERHEAD_BYTES;
+                separatorBytes = 0;
+            }
+            if (ARRAY_OVERHEAD_BYTES + eventBytes > maxBatchBytes) {
+                LOGGER.warn("Event of {} bytes exceeds maxBatchBytes, sending it on its own", eventBytes);
+            }
+            batch.add(event);
+            batchBytes += separatorBytes + eventBytes;
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    static long utf8Length(String value) {
+        long length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() &&
+                    Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
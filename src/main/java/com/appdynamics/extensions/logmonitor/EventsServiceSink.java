@@ -0,0 +1,64 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor;
+
+import com.appdynamics.extensions.eventsservice.EventsServiceDataManager;
+import com.appdynamics.extensions.logging.ExtensionsLoggerFactory;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Sends the events to the AppDynamics Events Service, creating the schema of the events if it does not exist.
+ */
+public class EventsServiceSink implements LogEventSink {
+    private static final Logger LOGGER = ExtensionsLoggerFactory.getLogger(EventsServiceSink.class);
+    // fields added to schemas created by earlier versions
+    private static final String DEDUPLICATION_FIELDS =
+            "[{\"add\": {\"count\": \"integer\", \"firstSeen\": \"date\", \"lastSeen\": \"date\"}}]";
+    private static final String SCHEMA_FILE = "monitors/LogMonitor/logSchema.json";
+
+    private final EventsServiceDataManager eventsServiceDataManager;
+    private final EventsPublisher eventsPublisher;
+
+    /**
+     * @param eventsPublisher sends the events in batches. If null, the events of a log are sent in one request
+     */
+    public EventsServiceSink(EventsServiceDataManager eventsServiceDataManager, EventsPublisher eventsPublisher) {
+        this.eventsServiceDataManager = eventsServiceDataManager;
+        this.eventsPublisher = eventsPublisher;
+    }
+
+    public void prepareSchema(String schemaName) throws Exception {
+        String schema = eventsServiceDataManager.retrieveSchema(schemaName);
+        if (schema.contains("logDisplayName") && !schema.contains("firstSeen")) {
+            LOGGER.info("Adding the deduplication fields to schema {}", schemaName);
+            eventsServiceDataManager.updateSchema(schemaName, DEDUPLICATION_FIELDS);
+        } else if (schema.contains("logDisplayName")) {
+            LOGGER.info("Schema: {} already exists", schemaName);
+        } else {
+            LOGGER.info("Creating Schema {}", schemaName);
+            eventsServiceDataManager.createSchema(schemaName, FileUtils.readFileToString(new File(SCHEMA_FILE)));
+        }
+    }
+
+    public int publish(String schemaName, List<String> events) throws InterruptedException {
+        if (eventsPublisher != null) {
+            return eventsPublisher.publish(eventsServiceDataManager, schemaName, events);
+        }
+        eventsServiceDataManager.publishEvents(schemaName, events);
+        return events.size();
+    }
+
+    public void close() {
+        // the data manager belongs to the monitor context, the publisher to the monitor
+    }
+}
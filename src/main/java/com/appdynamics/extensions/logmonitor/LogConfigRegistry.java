@@ -0,0 +1,151 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor;
+
+import com.appdynamics.extensions.logging.ExtensionsLoggerFactory;
+import com.appdynamics.extensions.logmonitor.config.Log;
+import com.appdynamics.extensions.logmonitor.processors.LogState;
+import com.google.common.base.Objects;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.appdynamics.extensions.logmonitor.util.Constants.METRIC_SEPARATOR;
+import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.getValidLogFromConfig;
+
+/**
+ * Keeps the logs built from the config.yml across runs. On every run the configured logs are compared with the
+ * previous ones, and only added or changed logs are initialized and validated again. Unchanged logs keep their
+ * {@link Log} instance and their {@link LogState}; a changed log gets a new instance, so scans still running with
+ * the previous one are not affected. The state of a changed log is only reset if its search strings changed.
+ * States that are reset or belong to removed logs are kept until they are drained, so that the events they still
+ * hold can be published.
+ */
+public class LogConfigRegistry {
+    private static Logger LOGGER = ExtensionsLoggerFactory.getLogger(LogConfigRegistry.class);
+    private Map<String, Entry> entries = Maps.newLinkedHashMap();
+    private Map<Log, LogState> logStates = new IdentityHashMap<Log, LogState>();
+    private List<Map<String, ?>> previousLogsFromConfig;
+    private String previousMetricPrefix;
+    private List<Log> logs = Collections.emptyList();
+    private List<LogState> retiredLogStates = Lists.newArrayList();
+
+    /**
+     * @return the valid logs of the given configuration
+     */
+    public synchronized List<Log> update(List<Map<String, ?>> logsFromConfig, String metricPrefix) {
+        if (logsFromConfig == previousLogsFromConfig && Objects.equal(metricPrefix, previousMetricPrefix)) {
+            return logs;
+        }
+        List<Entry> previousEntries = Lists.newArrayList(entries.values());
+        if (!Objects.equal(metricPrefix, previousMetricPrefix)) {
+            entries.clear();
+        }
+        Map<String, Entry> updatedEntries = Maps.newLinkedHashMap();
+        Map<Log, LogState> updatedLogStates = new IdentityHashMap<Log, LogState>();
+        List<Log> updatedLogs = Lists.newArrayList();
+        int initialized = 0;
+        for (Map<String, ?> logFromConfig : logsFromConfig) {
+            String key = getKey(logFromConfig);
+            while (updatedEntries.containsKey(key)) {
+                key = key + METRIC_SEPARATOR;
+            }
+            Entry entry = entries.get(key);
+            if (entry == null || !entry.logFromConfig.equals(logFromConfig)) {
+                entry = initialize(logFromConfig, metricPrefix, entry);
+                initialized++;
+            }
+            updatedEntries.put(key, entry);
+            if (entry.log != null) {
+                updatedLogs.add(entry.log);
+                updatedLogStates.put(entry.log, entry.logState);
+            }
+        }
+        LOGGER.info("Log configuration updated: {} of {} logs initialized, {} removed", initialized,
+                logsFromConfig.size(), countRemoved(updatedEntries));
+        retire(previousEntries, updatedLogStates);
+        entries = updatedEntries;
+        logStates = updatedLogStates;
+        logs = Collections.unmodifiableList(updatedLogs);
+        previousLogsFromConfig = logsFromConfig;
+        previousMetricPrefix = metricPrefix;
+        return logs;
+    }
+
+    public synchronized LogState getLogState(Log log) {
+        LogState logState = logStates.get(log);
+        return logState != null ? logState : new LogState();
+    }
+
+    /**
+     * @return the states of the current logs
+     */
+    public synchronized List<LogState> getLogStates() {
+        return Lists.newArrayList(logStates.values());
+    }
+
+    /**
+     * @return the states reset or removed by the updates since the last call
+     */
+    public synchronized List<LogState> drainRetiredLogStates() {
+        List<LogState> drained = retiredLogStates;
+        retiredLogStates = Lists.newArrayList();
+        return drained;
+    }
+
+    private void retire(List<Entry> previousEntries, Map<Log, LogState> updatedLogStates) {
+        Set<LogState> keptLogStates = Collections.newSetFromMap(new IdentityHashMap<LogState, Boolean>());
+        keptLogStates.addAll(updatedLogStates.values());
+        for (Entry entry : previousEntries) {
+            if (entry.log != null && !keptLogStates.contains(entry.logState)) {
+                retiredLogStates.add(entry.logState);
+            }
+        }
+    }
+
+    private Entry initialize(Map<String, ?> logFromConfig, String metricPrefix, Entry previous) {
+        Entry entry = new Entry();
+        entry.logFromConfig = logFromConfig;
+        entry.log = getValidLogFromConfig(logFromConfig, metricPrefix);
+        if (previous != null && previous.log != null &&
+                Objects.equal(previous.logFromConfig.get("searchStrings"), logFromConfig.get("searchStrings"))) {
+            entry.logState = previous.logState;
+        } else {
+            entry.logState = new LogState();
+        }
+        return entry;
+    }
+
+    private int countRemoved(Map<String, Entry> updatedEntries) {
+        int removed = 0;
+        for (String key : entries.keySet()) {
+            if (!updatedEntries.containsKey(key)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private static String getKey(Map<String, ?> logFromConfig) {
+        return logFromConfig.get("displayName") + METRIC_SEPARATOR + logFromConfig.get("logDirectory") +
+                METRIC_SEPARATOR + logFromConfig.get("logName");
+    }
+
+    private static class Entry {
+        private Map<String, ?> logFromConfig;
+        private Log log;
+        private LogState logState;
+    }
+}
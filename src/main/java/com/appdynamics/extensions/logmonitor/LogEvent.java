@@ -47,8 +47,44 @@ public class LogEvent {
         this.logMatch = logMatch;
     }
 
+    /**
+     * @return the number of matches this event stands for, more than 1 if repeats were collapsed into it
+     */
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    /**
+     * @return the time (ISO-8601) of the run that found the first of the collapsed matches
+     */
+    public String getFirstSeen() {
+        return firstSeen;
+    }
+
+    public void setFirstSeen(String firstSeen) {
+        this.firstSeen = firstSeen;
+    }
+
+    /**
+     * @return the time (ISO-8601) of the run that found the last of the collapsed matches
+     */
+    public String getLastSeen() {
+        return lastSeen;
+    }
+
+    public void setLastSeen(String lastSeen) {
+        this.lastSeen = lastSeen;
+    }
+
     private String searchPattern;
     private String searchPatternDisplayName;
     private String logMatch;
+    private int count = 1;
+    private String firstSeen;
+    private String lastSeen;
 
 }
@@ -0,0 +1,36 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor;
+
+import java.io.Closeable;
+import java.util.List;
+
+/**
+ * Receives the events of the logs. Events are captured while a log is scanned if the run has a sink, and are handed
+ * to the sink, serialized to JSON, once the log's metrics are printed. A sink is used by the tasks of all logs at the
+ * same time.
+ *
+ * @see EventsServiceSink
+ * @see NdjsonFileSink
+ * @see NullEventSink
+ */
+public interface LogEventSink extends Closeable {
+
+    /**
+     * Makes the sink ready to receive events of the schema, e.g. creates the schema in the Events Service. Called
+     * for each log and run before its events are captured.
+     */
+    void prepareSchema(String schemaName) throws Exception;
+
+    /**
+     * @param events the events, each serialized to JSON
+     * @return the number of events the sink accepted
+     */
+    int publish(String schemaName, List<String> events) throws InterruptedException;
+}
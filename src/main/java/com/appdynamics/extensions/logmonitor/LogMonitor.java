@@ -11,17 +11,30 @@ package com.appdynamics.extensions.logmonitor;
 import com.appdynamics.extensions.ABaseMonitor;
 import com.appdynamics.extensions.TasksExecutionServiceProvider;
 import com.appdynamics.extensions.conf.MonitorContextConfiguration;
+import com.appdynamics.extensions.eventsservice.EventsServiceDataManager;
 import com.appdynamics.extensions.logging.ExtensionsLoggerFactory;
+import com.appdynamics.extensions.logmonitor.config.EventBatching;
+import com.appdynamics.extensions.logmonitor.config.EventOutput;
 import com.appdynamics.extensions.logmonitor.config.Log;
+import com.appdynamics.extensions.logmonitor.processors.BacklogEstimator;
+import com.appdynamics.extensions.logmonitor.processors.DirectorySnapshots;
 import com.appdynamics.extensions.logmonitor.processors.FilePointerProcessor;
+import com.appdynamics.extensions.logmonitor.processors.LogState;
+import com.appdynamics.extensions.logmonitor.processors.ScanScheduler;
 import com.appdynamics.extensions.logmonitor.util.LogMonitorUtil;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.slf4j.Logger;
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import static com.appdynamics.extensions.logmonitor.util.Constants.DEFAULT_METRIC_PREFIX;
 import static com.appdynamics.extensions.logmonitor.util.Constants.MONITOR_NAME;
+import static com.appdynamics.extensions.logmonitor.util.Constants.SCHEMA_NAME;
+import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.prepareEventsForPublishing;
 
 /**
  * @author Aditya Jagtiani
@@ -31,6 +44,16 @@ public class LogMonitor extends ABaseMonitor {
     private static Logger LOGGER = ExtensionsLoggerFactory.getLogger(LogMonitor.class);
     private MonitorContextConfiguration monitorContextConfiguration;
     private Map<String, ?> configYml = Maps.newHashMap();
+    private LogConfigRegistry logConfigRegistry = new LogConfigRegistry();
+    private FilePointerProcessor filePointerProcessor;
+    private ScanScheduler scanScheduler = new ScanScheduler();
+    private DirectorySnapshots directorySnapshots = new DirectorySnapshots();
+    private EventsPublisher eventsPublisher = new EventsPublisher();
+    private LogEventSink localEventSink;
+    private String localEventSinkConfig;
+    private ExecutorService virtualThreadExecutor;
+    private boolean virtualThreadsChecked;
+    private Thread shutdownHook;
 
     @Override
     public String getDefaultMetricPrefix() {
@@ -46,6 +69,14 @@ public class LogMonitor extends ABaseMonitor {
     protected void initializeMoreStuff(Map<String, String> args) {
         monitorContextConfiguration = getContextConfiguration();
         configYml = monitorContextConfiguration.getConfigYml();
+        if (shutdownHook == null) {
+            shutdownHook = new Thread(new Runnable() {
+                public void run() {
+                    stop();
+                }
+            }, "LogMonitor-Shutdown");
+            Runtime.getRuntime().addShutdownHook(shutdownHook);
+        }
     }
 
     @Override
@@ -55,14 +86,163 @@ public class LogMonitor extends ABaseMonitor {
 
     @Override
     public void doRun(TasksExecutionServiceProvider taskExecutor) {
+        // picks up changes of the config.yml, unchanged logs are kept as they are by the registry
+        configYml = monitorContextConfiguration.getConfigYml();
         List<Map<String, ?>> logsFromConfig = (List<Map<String, ?>>) configYml.get("logs");
-        List<Log> logsToMonitor = LogMonitorUtil.getValidLogsFromConfig(logsFromConfig, (String) configYml.get("metricPrefix"));
-        FilePointerProcessor filePointerProcessor = new FilePointerProcessor();
-        for (Log log : logsToMonitor) {
-            LOGGER.info("Starting the Log Monitoring Task for log : " + log.getDisplayName());
-            LogMonitorTask task = new LogMonitorTask(monitorContextConfiguration, taskExecutor.getMetricWriteHelper(),
-                    log, filePointerProcessor);
-            taskExecutor.submit(log.getDisplayName(), task);
+        List<Log> logsToMonitor = logConfigRegistry.update(logsFromConfig, (String) configYml.get("metricPrefix"));
+        FilePointerProcessor filePointerProcessor = getFilePointerProcessor();
+        scanScheduler.startCycle(logsToMonitor, getScanBudgetBytes());
+        directorySnapshots.startCycle(logsToMonitor);
+        eventsPublisher.startCycle(getEventBatching());
+        LogEventSink eventSink = getEventSink();
+        publishHeldEvents(logConfigRegistry.drainRetiredLogStates(), eventSink);
+        ExecutorService virtualThreads = getVirtualThreadExecutor();
+        BacklogEstimator backlogEstimator = new BacklogEstimator(directorySnapshots, filePointerProcessor);
+        List<LogMonitorTask> tasks = Lists.newArrayList();
+        // logs reading the same file share one task, which reads the file once for all of them. The tasks of the
+        // logs furthest behind are submitted first, so that they are the first to get a thread of the pool
+        for (List<Log> sameFileLogs : backlogEstimator.orderByBacklog(
+                directorySnapshots.groupByCurrentFile(logsToMonitor))) {
+            Log log = sameFileLogs.get(0);
+            LOGGER.info("Starting the Log Monitoring Task for log : {} with {} unread bytes", log.getDisplayName(),
+                    backlogEstimator.getUnreadBytes(log));
+            LogMonitorTask task = createTask(taskExecutor, log, filePointerProcessor, eventSink, virtualThreads,
+                    backlogEstimator);
+            for (Log sameFileLog : sameFileLogs.subList(1, sameFileLogs.size())) {
+                LOGGER.info("Log {} reads the same file as log {}", sameFileLog.getDisplayName(), log.getDisplayName());
+                task.addSameFileTask(createTask(taskExecutor, sameFileLog, filePointerProcessor, eventSink,
+                        virtualThreads, backlogEstimator));
+            }
+            if (virtualThreads == null) {
+                taskExecutor.submit(log.getDisplayName(), task);
+            } else {
+                tasks.add(task);
+            }
+        }
+        if (virtualThreads != null) {
+            taskExecutor.submit("Log Monitoring Tasks", new VirtualThreadTaskGroup(tasks, virtualThreads));
+        }
+    }
+
+    private LogMonitorTask createTask(TasksExecutionServiceProvider taskExecutor, Log log,
+                                      FilePointerProcessor filePointerProcessor, LogEventSink eventSink,
+                                      ExecutorService virtualThreads, BacklogEstimator backlogEstimator) {
+        return new LogMonitorTask(monitorContextConfiguration, taskExecutor.getMetricWriteHelper(), log,
+                logConfigRegistry.getLogState(log), scanScheduler.getBudget(log), virtualThreads, directorySnapshots,
+                eventSink, filePointerProcessor, backlogEstimator.getUnreadBytes(log));
+    }
+
+    // the events held by the deduplication windows are lost with the state of a log, unless they are published
+    private void publishHeldEvents(List<LogState> logStates, LogEventSink eventSink) {
+        List<LogEvent> events = Lists.newArrayList();
+        for (LogState logState : logStates) {
+            events.addAll(logState.getEventDeduplicator().closeAll());
+        }
+        if (events.isEmpty() || eventSink == null) {
+            return;
+        }
+        LOGGER.info("Publishing {} events held for logs that were changed, removed or stopped", events.size());
+        try {
+            eventSink.publish(SCHEMA_NAME, prepareEventsForPublishing(events));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            LOGGER.warn("Interrupted while publishing the held events");
+        }
+    }
+
+    private synchronized void stop() {
+        List<LogState> logStates = logConfigRegistry.drainRetiredLogStates();
+        logStates.addAll(logConfigRegistry.getLogStates());
+        if (!logStates.isEmpty()) {
+            publishHeldEvents(logStates, getEventSink());
+        }
+        closeLocalEventSink();
+    }
+
+    // null if no events are captured. File and null sinks are kept across runs until their configuration changes
+    private synchronized LogEventSink getEventSink() {
+        EventOutput eventOutput = getEventOutput();
+        if (EventOutput.EVENTS_SERVICE_TYPE.equals(eventOutput.getType())) {
+            closeLocalEventSink();
+            EventsServiceDataManager eventsServiceDataManager = null;
+            if (Boolean.TRUE.equals(configYml.get("sendDataToEventsService"))) {
+                eventsServiceDataManager = monitorContextConfiguration.getContext().getEventsServiceDataManager();
+            }
+            return eventsServiceDataManager == null ? null :
+                    new EventsServiceSink(eventsServiceDataManager, eventsPublisher);
+        }
+        if (localEventSink == null || !eventOutput.toString().equals(localEventSinkConfig)) {
+            closeLocalEventSink();
+            if (EventOutput.FILE_TYPE.equals(eventOutput.getType())) {
+                localEventSink = new NdjsonFileSink(new File(LogMonitorUtil.resolvePath(eventOutput.getDirectory())),
+                        eventOutput.getMaxFileMB() * 1024L * 1024L, eventOutput.getMaxFiles());
+            } else {
+                localEventSink = new NullEventSink();
+            }
+            localEventSinkConfig = eventOutput.toString();
+            LOGGER.info("Sending events to {}", eventOutput);
+        }
+        if (localEventSink instanceof NullEventSink) {
+            LOGGER.info("The null event sink has dropped {} events since it was created",
+                    ((NullEventSink) localEventSink).getPublishedEvents());
+        }
+        return localEventSink;
+    }
+
+    private void closeLocalEventSink() {
+        if (localEventSink != null) {
+            try {
+                localEventSink.close();
+            } catch (IOException ex) {
+                LOGGER.error("Error encountered while closing the event sink", ex);
+            }
+            localEventSink = null;
+        }
+    }
+
+    private EventOutput getEventOutput() {
+        try {
+            return LogMonitorUtil.getEventOutput(configYml);
+        } catch (IllegalArgumentException ex) {
+            LOGGER.error("Invalid eventOutput in the config.yml, using the defaults", ex);
+            return new EventOutput();
+        }
+    }
+
+    private EventBatching getEventBatching() {
+        try {
+            return LogMonitorUtil.getEventBatching(configYml);
+        } catch (IllegalArgumentException ex) {
+            LOGGER.error("Invalid eventBatching in the config.yml, using the defaults", ex);
+            return new EventBatching();
+        }
+    }
+
+    // null unless enabled in the config.yml and supported by the JVM, in which case the pool is used as before
+    private synchronized ExecutorService getVirtualThreadExecutor() {
+        if (!Boolean.TRUE.equals(configYml.get("virtualThreads"))) {
+            return null;
+        }
+        if (!virtualThreadsChecked) {
+            virtualThreadExecutor = LogMonitorUtil.newVirtualThreadExecutor();
+            virtualThreadsChecked = true;
+        }
+        return virtualThreadExecutor;
+    }
+
+    private long getScanBudgetBytes() {
+        Object scanBudgetMB = configYml.get("scanBudgetMB");
+        if (scanBudgetMB instanceof Number) {
+            return ((Number) scanBudgetMB).longValue() * 1024 * 1024;
+        }
+        return 0;
+    }
+
+    // file pointers are read from the file once and kept in memory across runs
+    private synchronized FilePointerProcessor getFilePointerProcessor() {
+        if (filePointerProcessor == null) {
+            filePointerProcessor = new FilePointerProcessor();
         }
+        return filePointerProcessor;
     }
 }
\ No newline at end of file
@@ -12,15 +12,26 @@ import com.appdynamics.extensions.AMonitorTaskRunnable;
 import com.appdynamics.extensions.MetricWriteHelper;
 import com.appdynamics.extensions.conf.MonitorContextConfiguration;
 import com.appdynamics.extensions.logging.ExtensionsLoggerFactory;
+import com.appdynamics.extensions.logmonitor.config.EventDeduplication;
 import com.appdynamics.extensions.logmonitor.config.Log;
+import com.appdynamics.extensions.logmonitor.config.MetricOutput;
 import com.appdynamics.extensions.logmonitor.metrics.LogMetrics;
+import com.appdynamics.extensions.logmonitor.processors.DirectorySnapshots;
 import com.appdynamics.extensions.logmonitor.processors.FilePointerProcessor;
 import com.appdynamics.extensions.logmonitor.processors.LogFileManager;
+import com.appdynamics.extensions.logmonitor.processors.LogState;
+import com.appdynamics.extensions.logmonitor.processors.ScanScheduler.ScanBudget;
+import com.appdynamics.extensions.logmonitor.util.LogMonitorUtil;
+import com.appdynamics.extensions.metrics.Metric;
+import com.google.common.collect.Lists;
 import org.slf4j.Logger;
 import java.util.List;
+import java.util.concurrent.Executor;
 
+import static com.appdynamics.extensions.logmonitor.util.Constants.METRIC_SEPARATOR;
 import static com.appdynamics.extensions.logmonitor.util.Constants.SCHEMA_NAME;
-import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.getFinalMetricList;
+import static com.appdynamics.extensions.logmonitor.util.Constants.UNREAD_BACKLOG_METRIC_NAME;
+import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.getLogNamePrefix;
 import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.prepareEventsForPublishing;
 
 /**
@@ -32,14 +43,37 @@ public class LogMonitorTask implements AMonitorTaskRunnable {
     private MetricWriteHelper metricWriteHelper;
     private MonitorContextConfiguration monitorContextConfiguration;
     private Log log;
+    private LogState logState;
+    private ScanBudget scanBudget;
+    private Executor scanExecutor;
+    private DirectorySnapshots directorySnapshots;
+    private LogEventSink eventSink;
     private FilePointerProcessor filePointerProcessor;
+    private long unreadBytes;
+    private List<LogMonitorTask> sameFileTasks = Lists.newArrayList();
 
     public LogMonitorTask(MonitorContextConfiguration monitorContextConfiguration, MetricWriteHelper metricWriteHelper,
-                          Log log, FilePointerProcessor filePointerProcessor) {
+                          Log log, LogState logState, ScanBudget scanBudget, Executor scanExecutor,
+                          DirectorySnapshots directorySnapshots, LogEventSink eventSink,
+                          FilePointerProcessor filePointerProcessor, long unreadBytes) {
         this.monitorContextConfiguration = monitorContextConfiguration;
         this.metricWriteHelper = metricWriteHelper;
         this.log = log;
+        this.logState = logState;
+        this.scanBudget = scanBudget;
+        this.scanExecutor = scanExecutor;
+        this.directorySnapshots = directorySnapshots;
+        this.eventSink = eventSink;
         this.filePointerProcessor = filePointerProcessor;
+        this.unreadBytes = unreadBytes;
+    }
+
+    /**
+     * Adds the task of a log whose current file is the same as that of this task's log. The file is then read once
+     * for both logs by this task, the added task is not run on its own.
+     */
+    public void addSameFileTask(LogMonitorTask task) {
+        sameFileTasks.add(task);
     }
 
     public void run() {
@@ -52,22 +86,84 @@ public class LogMonitorTask implements AMonitorTaskRunnable {
 
     public void onTaskComplete() {
         LOGGER.info("Completed the Log Monitoring task for log : " + log.getDisplayName());
+        for (LogMonitorTask task : sameFileTasks) {
+            task.onTaskComplete();
+        }
     }
 
     private void populateAndPrintMetrics() throws Exception {
-        LogFileManager logFileManager = new LogFileManager(filePointerProcessor, log, monitorContextConfiguration);
-        LogMetrics logMetrics = logFileManager.processLogMetrics();
+        if (sameFileTasks.isEmpty()) {
+            printMetrics(createLogFileManager().processLogMetrics());
+            return;
+        }
+        List<LogFileManager> logFileManagers = Lists.newArrayList(createLogFileManager());
+        for (LogMonitorTask task : sameFileTasks) {
+            logFileManagers.add(task.createLogFileManager());
+        }
+        List<LogMetrics> logMetrics = LogFileManager.processLogMetrics(logFileManagers);
+        printMetrics(logMetrics.get(0));
+        for (int i = 0; i < sameFileTasks.size(); i++) {
+            LogMonitorTask task = sameFileTasks.get(i);
+            try {
+                task.printMetrics(logMetrics.get(i + 1));
+            } catch (Exception ex) {
+                LOGGER.error("Log monitoring task failed for Log: " + task.log.getDisplayName(), ex);
+            }
+        }
+    }
+
+    private LogFileManager createLogFileManager() {
+        return new LogFileManager(filePointerProcessor, log, logState, scanBudget, scanExecutor, directorySnapshots,
+                eventSink, monitorContextConfiguration);
+    }
+
+    private void printMetrics(LogMetrics logMetrics) {
         publishEvents(logMetrics);
-        LOGGER.info("Printing {} metrics for Log {}", logMetrics.getMetrics().size(), log.getDisplayName());
-        metricWriteHelper.transformAndPrintMetrics(getFinalMetricList(logMetrics.getMetrics()));
+        // the backlog when the run started
+        String unreadBacklogMetricName = getLogNamePrefix(log) + UNREAD_BACKLOG_METRIC_NAME;
+        logMetrics.add(unreadBacklogMetricName, new Metric(unreadBacklogMetricName, String.valueOf(unreadBytes),
+                logMetrics.getMetricPrefix() + METRIC_SEPARATOR + unreadBacklogMetricName));
+        List<Metric> metrics = logState.getMetricOutputState().select(logMetrics.getMetrics(), getMetricOutput(),
+                System.currentTimeMillis());
+        LOGGER.info("Printing {} of {} metrics for Log {}", metrics.size(), logMetrics.getMetrics().size(),
+                log.getDisplayName());
+        metricWriteHelper.transformAndPrintMetrics(metrics);
         filePointerProcessor.updateFilePointerFile();
     }
 
+    private MetricOutput getMetricOutput() {
+        try {
+            return LogMonitorUtil.getMetricOutput(monitorContextConfiguration.getConfigYml());
+        } catch (IllegalArgumentException ex) {
+            LOGGER.error("Invalid metricOutput in the config.yml, printing all metrics", ex);
+            return new MetricOutput();
+        }
+    }
+
+    private EventDeduplication getEventDeduplication() {
+        try {
+            return LogMonitorUtil.getEventDeduplication(monitorContextConfiguration.getConfigYml());
+        } catch (IllegalArgumentException ex) {
+            LOGGER.error("Invalid eventDeduplication in the config.yml, publishing every event", ex);
+            return null;
+        }
+    }
+
     private void publishEvents(LogMetrics logMetrics) {
-        List<LogEvent> events = logMetrics.getEventsToBePublished();
-        if(events.size() != 0) {
+        List<LogEvent> events = logState.getEventDeduplicator().deduplicate(logMetrics.getEventsToBePublished(),
+                getEventDeduplication(), System.currentTimeMillis());
+        if (events.size() < logMetrics.getEventsToBePublished().size()) {
+            LOGGER.debug("Publishing {} events for {} matches of log {}", events.size(),
+                    logMetrics.getEventsToBePublished().size(), log.getDisplayName());
+        }
+        if(events.size() != 0 && eventSink != null) {
             List<String> eventsToBePublished = prepareEventsForPublishing(events);
-            monitorContextConfiguration.getContext().getEventsServiceDataManager().publishEvents(SCHEMA_NAME, eventsToBePublished);
+            try {
+                eventSink.publish(SCHEMA_NAME, eventsToBePublished);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                LOGGER.warn("Interrupted while publishing the events of log {}", log.getDisplayName());
+            }
         }
         else {
             LOGGER.info("No events to publish for log {}, skipping", log.getDisplayName());
@@ -0,0 +1,170 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor;
+
+import com.appdynamics.extensions.logging.ExtensionsLoggerFactory;
+import org.slf4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends the events to local files, one JSON event per line (NDJSON), e.g. for a local log collector. The events of
+ * a schema are written to {@code <schema>.ndjson} in the directory. When the file reaches its maximum size it is
+ * renamed to {@code <schema>.ndjson.1}, older files are shifted up to {@code <schema>.ndjson.<maxFiles - 1>} and the
+ * oldest is deleted.
+ * <p>
+ * Events are encoded into a direct buffer and written to the file channel when the buffer is full and at the end of
+ * each publish, so that a collector never reads part of a batch for long.
+ */
+public class NdjsonFileSink implements LogEventSink {
+    private static final Logger LOGGER = ExtensionsLoggerFactory.getLogger(NdjsonFileSink.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String EXTENSION = ".ndjson";
+
+    private final File directory;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private FileChannel channel;
+    private File currentFile;
+    private long fileBytes;
+
+    /**
+     * @param maxFileBytes the size at which a file is rotated
+     * @param maxFiles     the number of files kept per schema, including the one written to
+     */
+    public NdjsonFileSink(File directory, long maxFileBytes, int maxFiles) {
+        this.directory = directory;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+    }
+
+    public void prepareSchema(String schemaName) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create the event directory " + directory);
+        }
+    }
+
+    public synchronized int publish(String schemaName, List<String> events) {
+        int written = 0;
+        try {
+            open(new File(directory, schemaName + EXTENSION));
+            for (String event : events) {
+                if (fileBytes + buffer.position() >= maxFileBytes) {
+                    rotate();
+                }
+                write(event);
+                written++;
+            }
+            flush();
+        } catch (IOException ex) {
+            // the events still in the buffer are lost with the channel
+            LOGGER.error("Error encountered while writing {} events to {}", events.size(), currentFile, ex);
+            buffer.clear();
+            closeChannel();
+            return 0;
+        }
+        LOGGER.debug("Wrote {} events to {}", written, currentFile);
+        return written;
+    }
+
+    public synchronized void close() {
+        try {
+            if (channel != null) {
+                flush();
+            }
+        } catch (IOException ex) {
+            LOGGER.error("Error encountered while writing events to {}", currentFile, ex);
+        } finally {
+            buffer.clear();
+            closeChannel();
+        }
+    }
+
+    private void write(String event) throws IOException {
+        CharBuffer chars = CharBuffer.wrap(event);
+        encoder.reset();
+        while (encoder.encode(chars, buffer, true).isOverflow()) {
+            flush();
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            flush();
+        }
+        if (!buffer.hasRemaining()) {
+            flush();
+        }
+        buffer.put((byte) '\n');
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            fileBytes += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void open(File file) throws IOException {
+        if (channel != null && file.equals(currentFile)) {
+            return;
+        }
+        closeChannel();
+        currentFile = file;
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        fileBytes = channel.size();
+    }
+
+    private void rotate() throws IOException {
+        flush();
+        closeChannel();
+        File file = currentFile;
+        delete(maxFiles == 1 ? file : rotated(file, maxFiles - 1));
+        for (int i = maxFiles - 2; i >= 0; i--) {
+            File source = i == 0 ? file : rotated(file, i);
+            if (source.exists() && !source.renameTo(rotated(file, i + 1))) {
+                throw new IOException("Unable to rotate " + source);
+            }
+        }
+        LOGGER.debug("Rotated {}", file);
+        open(file);
+    }
+
+    private static File rotated(File file, int index) {
+        return new File(file.getPath() + "." + index);
+    }
+
+    private static void delete(File file) throws IOException {
+        if (!file.delete() && file.exists()) {
+            throw new IOException("Unable to delete " + file);
+        }
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                LOGGER.debug("Error encountered while closing {}", currentFile, ex);
+            }
+            channel = null;
+        }
+    }
+}
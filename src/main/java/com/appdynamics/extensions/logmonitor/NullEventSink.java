@@ -0,0 +1,38 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accepts and drops all events, only counting them. Used to measure how fast events are captured without the cost
+ * of sending them anywhere.
+ */
+public class NullEventSink implements LogEventSink {
+    private final AtomicLong publishedEvents = new AtomicLong();
+
+    public void prepareSchema(String schemaName) {
+    }
+
+    public int publish(String schemaName, List<String> events) {
+        publishedEvents.addAndGet(events.size());
+        return events.size();
+    }
+
+    /**
+     * @return the number of events published since the sink was created
+     */
+    public long getPublishedEvents() {
+        return publishedEvents.get();
+    }
+
+    public void close() {
+    }
+}
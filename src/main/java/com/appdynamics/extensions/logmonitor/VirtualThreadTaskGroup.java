@@ -0,0 +1,63 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor;
+
+import com.appdynamics.extensions.AMonitorTaskRunnable;
+import com.appdynamics.extensions.logging.ExtensionsLoggerFactory;
+import com.google.common.collect.Lists;
+import org.slf4j.Logger;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the tasks of all logs on virtual threads and completes once all of them did, so that the whole run
+ * occupies a single thread of the monitor's pool instead of one parked thread per log.
+ */
+public class VirtualThreadTaskGroup implements AMonitorTaskRunnable {
+    private static Logger LOGGER = ExtensionsLoggerFactory.getLogger(VirtualThreadTaskGroup.class);
+    private List<LogMonitorTask> tasks;
+    private ExecutorService virtualThreadExecutor;
+
+    public VirtualThreadTaskGroup(List<LogMonitorTask> tasks, ExecutorService virtualThreadExecutor) {
+        this.tasks = tasks;
+        this.virtualThreadExecutor = virtualThreadExecutor;
+    }
+
+    public void run() {
+        List<Future<?>> futures = Lists.newArrayList();
+        for (final LogMonitorTask task : tasks) {
+            futures.add(virtualThreadExecutor.submit(new Runnable() {
+                public void run() {
+                    try {
+                        task.run();
+                    } finally {
+                        task.onTaskComplete();
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException ex) {
+                LOGGER.warn("Interrupted while waiting for the log monitoring tasks", ex);
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception ex) {
+                LOGGER.error("Log monitoring task failed", ex);
+            }
+        }
+    }
+
+    public void onTaskComplete() {
+        LOGGER.info("Completed the Log Monitoring tasks of {} logs on virtual threads", tasks.size());
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.config;
+
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * Describes where the events of the logs are sent: to the Events Service, to local NDJSON files or nowhere.
+ */
+public class EventOutput {
+    public static final String EVENTS_SERVICE_TYPE = "eventsService";
+    public static final String FILE_TYPE = "file";
+    public static final String NONE_TYPE = "none";
+    public static final String DEFAULT_DIRECTORY = "monitors/LogMonitor/events";
+    public static final int DEFAULT_MAX_FILE_MB = 100;
+    public static final int DEFAULT_MAX_FILES = 5;
+
+    private String type = EVENTS_SERVICE_TYPE;
+    private String directory = DEFAULT_DIRECTORY;
+    private int maxFileMB = DEFAULT_MAX_FILE_MB;
+    private int maxFiles = DEFAULT_MAX_FILES;
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public int getMaxFileMB() {
+        return maxFileMB;
+    }
+
+    public void setMaxFileMB(int maxFileMB) {
+        this.maxFileMB = maxFileMB;
+    }
+
+    public int getMaxFiles() {
+        return maxFiles;
+    }
+
+    public void setMaxFiles(int maxFiles) {
+        this.maxFiles = maxFiles;
+    }
+
+    @Override
+    public String toString() {
+        return ReflectionToStringBuilder.toString(this,
+                ToStringStyle.SHORT_PREFIX_STYLE);
+    }
+}
@@ -8,50 +8,53 @@
 
 package com.appdynamics.extensions.logmonitor.config;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
-import java.util.concurrent.atomic.AtomicLong;
-
 /**
+ * The position of a log in a file. A file pointer is an immutable snapshot: the scanner of the log publishes a new
+ * pointer to the {@code FilePointerProcessor} to move it, so that the checkpointer always reads a filename, position,
+ * creation time and inode that belong together.
+ *
  * @author Aditya Jagtiani
  */
 
 public class FilePointer {
-    private volatile String filename;
-    private AtomicLong lastReadPosition = new AtomicLong(0);
-    private long fileCreationTime;
-
-    public String getFilename() {
-        return filename;
-    }
+    private final String filename;
+    private final long lastReadPosition;
+    private final long fileCreationTime;
+    private final long inode;
 
-    public synchronized void setFilename(String filename) {
+    @JsonCreator
+    public FilePointer(@JsonProperty("filename") String filename,
+                       @JsonProperty("lastReadPosition") long lastReadPosition,
+                       @JsonProperty("fileCreationTime") long fileCreationTime,
+                       @JsonProperty("inode") long inode) {
         this.filename = filename;
+        this.lastReadPosition = lastReadPosition;
+        this.fileCreationTime = fileCreationTime;
+        this.inode = inode;
     }
 
-    public AtomicLong getLastReadPosition() {
-        return lastReadPosition;
-    }
-
-    public synchronized void setLastReadPosition(AtomicLong lastReadPosition) {
-        this.lastReadPosition = lastReadPosition;
+    public String getFilename() {
+        return filename;
     }
 
-    public synchronized void updateLastReadPosition(long lastReadPosition) {
-        if (this.lastReadPosition == null) {
-            this.lastReadPosition = new AtomicLong(lastReadPosition);
-        } else {
-            this.lastReadPosition.set(lastReadPosition);
-        }
+    public long getLastReadPosition() {
+        return lastReadPosition;
     }
 
     public long getFileCreationTime() {
         return this.fileCreationTime;
     }
 
-    public void setFileCreationTime(long fileCreationTime) {
-        this.fileCreationTime = fileCreationTime;
+    /**
+     * @return the inode of the file, or 0 if the file system does not expose one
+     */
+    public long getInode() {
+        return inode;
     }
 
     @Override
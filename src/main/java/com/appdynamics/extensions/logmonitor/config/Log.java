@@ -29,6 +29,20 @@ public class Log {
 
     private List<SearchString> searchStrings;
 
+    private String timestampFormat;
+
+    private String timestampPattern;
+
+    private String timestampTimeZone;
+
+    private Multiline multiline;
+
+    private String format;
+
+    private int scanWeight = 1;
+
+    private Sampling sampling;
+
     public String getDisplayName() {
         return displayName;
     }
@@ -69,6 +83,62 @@ public class Log {
         this.searchStrings = searchStrings;
     }
 
+    public String getTimestampFormat() {
+        return timestampFormat;
+    }
+
+    public void setTimestampFormat(String timestampFormat) {
+        this.timestampFormat = timestampFormat;
+    }
+
+    public String getTimestampPattern() {
+        return timestampPattern;
+    }
+
+    public void setTimestampPattern(String timestampPattern) {
+        this.timestampPattern = timestampPattern;
+    }
+
+    public String getTimestampTimeZone() {
+        return timestampTimeZone;
+    }
+
+    public void setTimestampTimeZone(String timestampTimeZone) {
+        this.timestampTimeZone = timestampTimeZone;
+    }
+
+    public Multiline getMultiline() {
+        return multiline;
+    }
+
+    public void setMultiline(Multiline multiline) {
+        this.multiline = multiline;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public void setFormat(String format) {
+        this.format = format;
+    }
+
+    public int getScanWeight() {
+        return scanWeight;
+    }
+
+    public void setScanWeight(int scanWeight) {
+        this.scanWeight = scanWeight;
+    }
+
+    public Sampling getSampling() {
+        return sampling;
+    }
+
+    public void setSampling(Sampling sampling) {
+        this.sampling = sampling;
+    }
+
     @Override
     public String toString() {
         return ReflectionToStringBuilder.toString(this,
@@ -0,0 +1,64 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.config;
+
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * Describes which metrics are printed each run, and which metrics are derived from the occurrences in the extension.
+ */
+public class MetricOutput {
+    public static final String ALL_MODE = "all";
+    public static final String CHANGED_MODE = "changed";
+    public static final int DEFAULT_HEARTBEAT_MINUTES = 10;
+
+    private String mode = ALL_MODE;
+    private int heartbeatMinutes = DEFAULT_HEARTBEAT_MINUTES;
+    private boolean rates;
+    private boolean totals;
+
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    public int getHeartbeatMinutes() {
+        return heartbeatMinutes;
+    }
+
+    public void setHeartbeatMinutes(int heartbeatMinutes) {
+        this.heartbeatMinutes = heartbeatMinutes;
+    }
+
+    public boolean getRates() {
+        return rates;
+    }
+
+    public void setRates(boolean rates) {
+        this.rates = rates;
+    }
+
+    public boolean getTotals() {
+        return totals;
+    }
+
+    public void setTotals(boolean totals) {
+        this.totals = totals;
+    }
+
+    @Override
+    public String toString() {
+        return ReflectionToStringBuilder.toString(this,
+                ToStringStyle.SHORT_PREFIX_STYLE);
+    }
+}
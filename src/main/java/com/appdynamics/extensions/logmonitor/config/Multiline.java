@@ -0,0 +1,63 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.config;
+
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * Describes how consecutive lines of a log are joined into one record (e.g. a stack trace) before matching.
+ */
+public class Multiline {
+    public static final int DEFAULT_MAX_LINES = 500;
+    public static final int DEFAULT_MAX_BYTES = 64 * 1024;
+
+    private String startPattern;
+    private String continuationPattern;
+    private int maxLines = DEFAULT_MAX_LINES;
+    private int maxBytes = DEFAULT_MAX_BYTES;
+
+    public String getStartPattern() {
+        return startPattern;
+    }
+
+    public void setStartPattern(String startPattern) {
+        this.startPattern = startPattern;
+    }
+
+    public String getContinuationPattern() {
+        return continuationPattern;
+    }
+
+    public void setContinuationPattern(String continuationPattern) {
+        this.continuationPattern = continuationPattern;
+    }
+
+    public int getMaxLines() {
+        return maxLines;
+    }
+
+    public void setMaxLines(int maxLines) {
+        this.maxLines = maxLines;
+    }
+
+    public int getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(int maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public String toString() {
+        return ReflectionToStringBuilder.toString(this,
+                ToStringStyle.SHORT_PREFIX_STYLE);
+    }
+}
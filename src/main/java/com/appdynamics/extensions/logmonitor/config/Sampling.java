@@ -0,0 +1,57 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.config;
+
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * Describes which fraction of the lines of a log are matched against its search strings. The occurrences found in
+ * the sampled lines are scaled up to the whole log.
+ */
+public class Sampling {
+    public static final String LINES_MODE = "lines";
+    public static final String RANDOM_MODE = "random";
+    public static final String BLOCKS_MODE = "blocks";
+    public static final int DEFAULT_BLOCK_BYTES = 1024 * 1024;
+
+    private String mode = LINES_MODE;
+    private double rate;
+    private int blockBytes = DEFAULT_BLOCK_BYTES;
+
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public void setRate(double rate) {
+        this.rate = rate;
+    }
+
+    public int getBlockBytes() {
+        return blockBytes;
+    }
+
+    public void setBlockBytes(int blockBytes) {
+        this.blockBytes = blockBytes;
+    }
+
+    @Override
+    public String toString() {
+        return ReflectionToStringBuilder.toString(this,
+                ToStringStyle.SHORT_PREFIX_STYLE);
+    }
+}
@@ -19,12 +19,27 @@ public class SearchPattern {
     private Pattern pattern;
     private boolean caseSensitive;
     private boolean printMatchedString;
+    private String valueGroup;
+    private String field;
+    private String exactString;
 
     public SearchPattern(String displayName, Pattern pattern, Boolean caseSensitive, Boolean printMatchedString) {
+        this(displayName, pattern, caseSensitive, printMatchedString, null);
+    }
+
+    public SearchPattern(String displayName, Pattern pattern, Boolean caseSensitive, Boolean printMatchedString,
+                         String valueGroup) {
+        this(displayName, pattern, caseSensitive, printMatchedString, valueGroup, null);
+    }
+
+    public SearchPattern(String displayName, Pattern pattern, Boolean caseSensitive, Boolean printMatchedString,
+                         String valueGroup, String field) {
         this.displayName = displayName;
         this.pattern = pattern;
         this.caseSensitive = caseSensitive;
         this.printMatchedString = printMatchedString;
+        this.valueGroup = valueGroup;
+        this.field = field;
     }
 
     public String getDisplayName() {
@@ -42,4 +57,30 @@ public class SearchPattern {
     public boolean getPrintMatchedString() {
         return printMatchedString;
     }
-}
\ No newline at end of file
+
+    /**
+     * @return the name of the capture group holding a numeric value to aggregate, or null if only counting
+     */
+    public String getValueGroup() {
+        return valueGroup;
+    }
+
+    /**
+     * @return the JSON field the pattern is matched against, or null to match the whole line
+     */
+    public String getField() {
+        return field;
+    }
+
+    /**
+     * @return the literal of a search string with matchExactString, which is found without the regex engine, or
+     * null. The pattern matches the same text
+     */
+    public String getExactString() {
+        return exactString;
+    }
+
+    public void setExactString(String exactString) {
+        this.exactString = exactString;
+    }
+}
@@ -18,6 +18,8 @@ public class SearchString {
     private Boolean matchExactString;
     private Boolean caseSensitive;
     private Boolean printMatchedString;
+    private String valueGroup;
+    private String field;
 
     public String getDisplayName() {
         return displayName;
@@ -58,4 +60,20 @@ public class SearchString {
     public Boolean getPrintMatchedString() {
         return printMatchedString;
     }
+
+    public String getValueGroup() {
+        return valueGroup;
+    }
+
+    public void setValueGroup(String valueGroup) {
+        this.valueGroup = valueGroup;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public void setField(String field) {
+        this.field = field;
+    }
 }
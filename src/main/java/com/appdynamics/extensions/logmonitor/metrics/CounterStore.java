@@ -0,0 +1,159 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.metrics;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Counters of the metrics of a log, kept outside of the heap. The name and path of each metric are interned once, on
+ * first use, and get a slot id; the counts of a run are kept in a direct buffer indexed by slot. Buffers are reused
+ * by the following runs, so that counting allocates nothing on the heap once the slots of a log are known.
+ * <p>
+ * The number of slots is bounded, metrics beyond it (e.g. a printMatchedString pattern matching ever new strings)
+ * are not interned and are counted on the heap by {@link LogMetrics}.
+ */
+public class CounterStore {
+    public static final int DEFAULT_MAX_SLOTS = 1 << 16;
+    private static final int MIN_CAPACITY = 64;
+
+    private final int maxSlots;
+    private final ConcurrentHashMap<String, Integer> slots = new ConcurrentHashMap<String, Integer>();
+    private volatile String[] names = new String[MIN_CAPACITY];
+    private volatile String[] paths = new String[MIN_CAPACITY];
+    private int size;
+    private final AtomicReference<Counters> idleCounters = new AtomicReference<Counters>();
+
+    public CounterStore() {
+        this(DEFAULT_MAX_SLOTS);
+    }
+
+    CounterStore(int maxSlots) {
+        this.maxSlots = maxSlots;
+    }
+
+    /**
+     * @return the slot of the metric, which is interned on first use, or -1 if all slots are taken
+     */
+    public int slot(String metricName, String metricPath) {
+        Integer slot = slots.get(metricName);
+        if (slot != null) {
+            return slot;
+        }
+        synchronized (this) {
+            slot = slots.get(metricName);
+            if (slot != null) {
+                return slot;
+            }
+            if (size == maxSlots) {
+                return -1;
+            }
+            if (size == names.length) {
+                paths = Arrays.copyOf(paths, size * 2);
+                names = Arrays.copyOf(names, size * 2);
+            }
+            paths[size] = metricPath;
+            names[size] = metricName;
+            slots.put(metricName, size);
+            return size++;
+        }
+    }
+
+    /**
+     * @return the slot of the metric, or -1 if it has none
+     */
+    public int existingSlot(String metricName) {
+        Integer slot = slots.get(metricName);
+        return slot == null ? -1 : slot;
+    }
+
+    public String getName(int slot) {
+        return names[slot];
+    }
+
+    public String getPath(int slot) {
+        return paths[slot];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return zeroed counters for a run, reused from an earlier run if possible
+     */
+    Counters acquire() {
+        Counters counters = idleCounters.getAndSet(null);
+        return counters != null ? counters : new Counters(Math.max(MIN_CAPACITY, Integer.highestOneBit(size() * 2)));
+    }
+
+    /**
+     * Gives back counters whose counts were all taken.
+     */
+    void release(Counters counters) {
+        idleCounters.set(counters);
+    }
+
+    /**
+     * The counts of one run. Not thread-safe, the owning {@link LogMetrics} guards them.
+     */
+    static class Counters {
+        private ByteBuffer buffer;
+        private final BitSet touched = new BitSet();
+
+        Counters(int capacity) {
+            buffer = ByteBuffer.allocateDirect(capacity * 8);
+        }
+
+        void add(int slot, long delta) {
+            int index = slot * 8;
+            if (index >= buffer.capacity()) {
+                grow(slot);
+            }
+            buffer.putLong(index, touched.get(slot) ? buffer.getLong(index) + delta : delta);
+            touched.set(slot);
+        }
+
+        /**
+         * Drops the count of the slot, e.g. when its metric is set to a value directly.
+         */
+        void clear(int slot) {
+            touched.clear(slot);
+        }
+
+        /**
+         * @return the next counted slot from the given one, or -1
+         */
+        int nextSlot(int fromSlot) {
+            return touched.nextSetBit(fromSlot);
+        }
+
+        long get(int slot) {
+            return buffer.getLong(slot * 8);
+        }
+
+        void clearAll() {
+            touched.clear();
+        }
+
+        int capacity() {
+            return buffer.capacity() / 8;
+        }
+
+        private void grow(int slot) {
+            ByteBuffer grown = ByteBuffer.allocateDirect(Integer.highestOneBit(slot) * 2 * 8);
+            buffer.clear();
+            grown.put(buffer);
+            buffer = grown;
+        }
+    }
+}
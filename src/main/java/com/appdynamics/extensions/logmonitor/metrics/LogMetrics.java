@@ -24,10 +24,19 @@ import java.util.concurrent.CopyOnWriteArrayList;
  */
 
 public class LogMetrics {
+    public static final int DEFAULT_LOG_MATCH_MAX_BYTES = 64 * 1024;
+    public static final long DEFAULT_LOG_MATCH_MAX_BYTES_PER_RUN = 16L * 1024 * 1024;
+
     private String metricPrefix;
+    private int logMatchMaxBytes = DEFAULT_LOG_MATCH_MAX_BYTES;
+    private long logMatchMaxBytesPerRun = DEFAULT_LOG_MATCH_MAX_BYTES_PER_RUN;
+    private long logMatchBytes;
     private CopyOnWriteArrayList<FilePointer> filePointers = new CopyOnWriteArrayList<FilePointer>();
     private CopyOnWriteArrayList<LogEvent> eventsToBePublished = new CopyOnWriteArrayList<LogEvent>();
     private ConcurrentHashMap<String, Metric> metrics = new ConcurrentHashMap<String, Metric>();
+    private ConcurrentHashMap<String, ValueStatistics> valueStatistics = new ConcurrentHashMap<String, ValueStatistics>();
+    private CounterStore counterStore;
+    private CounterStore.Counters counters;
 
     public String getMetricPrefix() {
         return metricPrefix;
@@ -37,18 +46,92 @@ public class LogMetrics {
         this.metricPrefix = metricPrefix;
     }
 
-    public void add(String metricName, String metricPath) {
-        BigInteger value;
-        if (metrics.containsKey(metricName)) {
-            value = new BigInteger(metrics.get(metricName).getMetricValue()).add(BigInteger.ONE);
+    /**
+     * Counts the metrics added with {@link #add(String, String)} and {@link #increment} in the off-heap counters of
+     * the store, instead of in a {@link Metric} per change. The counts become metrics in {@link #getMetrics()}.
+     */
+    public void setCounterStore(CounterStore counterStore) {
+        this.counterStore = counterStore;
+    }
+
+    /**
+     * @return the slot of the metric in the counter store, for {@link #increment(int, String, String, long)}, or -1
+     */
+    public int counterSlot(String metricName, String metricPath) {
+        return counterStore == null ? -1 : counterStore.slot(metricName, metricPath);
+    }
+
+    public int getLogMatchMaxBytes() {
+        return logMatchMaxBytes;
+    }
+
+    public void setLogMatchMaxBytes(int logMatchMaxBytes) {
+        this.logMatchMaxBytes = logMatchMaxBytes;
+    }
+
+    public void setLogMatchMaxBytesPerRun(long logMatchMaxBytesPerRun) {
+        this.logMatchMaxBytesPerRun = logMatchMaxBytesPerRun;
+    }
+
+    /**
+     * Reserves room for the text of an event in the bytes all events of the log may capture in this run.
+     *
+     * @return the bytes granted, less than requested once the bytes per run are used up
+     */
+    public synchronized long reserveLogMatchBytes(long requested) {
+        long granted = Math.max(0, Math.min(requested, logMatchMaxBytesPerRun - logMatchBytes));
+        logMatchBytes += granted;
+        return granted;
+    }
+
+    public synchronized void add(String metricName, String metricPath) {
+        increment(metricName, metricPath, 1);
+    }
+
+    public synchronized void add(String metricName, Metric metric) {
+        metrics.put(metricName, metric);
+        if (counters != null) {
+            // the value set replaces what was counted so far
+            int slot = counterStore.existingSlot(metricName);
+            if (slot >= 0) {
+                counters.clear(slot);
+            }
+        }
+    }
+
+    public synchronized void increment(String metricName, String metricPath, long delta) {
+        increment(counterSlot(metricName, metricPath), metricName, metricPath, delta);
+    }
+
+    /**
+     * @param slot the slot of the metric from {@link #counterSlot}; if -1 the metric is counted on the heap
+     */
+    public synchronized void increment(int slot, String metricName, String metricPath, long delta) {
+        if (slot < 0) {
+            BigInteger value = BigInteger.valueOf(delta);
+            if (metrics.containsKey(metricName)) {
+                value = new BigInteger(metrics.get(metricName).getMetricValue()).add(value);
+            }
+            metrics.put(metricName, new Metric(metricName, String.valueOf(value), metricPath));
+            return;
+        }
+        if (counters == null) {
+            counters = counterStore.acquire();
+        }
+        counters.add(slot, delta);
+    }
+
+    public synchronized void mergeValueStatistics(String searchStringPrefix, ValueStatistics statistics) {
+        ValueStatistics merged = valueStatistics.get(searchStringPrefix);
+        if (merged == null) {
+            valueStatistics.put(searchStringPrefix, statistics);
         } else {
-            value = BigInteger.ONE;
+            merged.merge(statistics);
         }
-        add(metricName, new Metric(metricName, String.valueOf(value), metricPath));
     }
 
-    public void add(String metricName, Metric metric) {
-        metrics.put(metricName, metric);
+    public ConcurrentHashMap<String, ValueStatistics> getValueStatistics() {
+        return valueStatistics;
     }
 
     public CopyOnWriteArrayList<FilePointer> getFilePointers() {
@@ -59,10 +142,29 @@ public class LogMetrics {
         filePointers.add(filePointer);
     }
 
-    public ConcurrentHashMap<String, Metric> getMetrics() {
+    public synchronized ConcurrentHashMap<String, Metric> getMetrics() {
+        if (counters != null) {
+            takeCounts();
+        }
         return metrics;
     }
 
+    // turns the counts into metrics, added to the values the metrics already have
+    private void takeCounts() {
+        for (int slot = counters.nextSlot(0); slot >= 0; slot = counters.nextSlot(slot + 1)) {
+            String metricName = counterStore.getName(slot);
+            BigInteger value = BigInteger.valueOf(counters.get(slot));
+            Metric metric = metrics.get(metricName);
+            if (metric != null) {
+                value = new BigInteger(metric.getMetricValue()).add(value);
+            }
+            metrics.put(metricName, new Metric(metricName, String.valueOf(value), counterStore.getPath(slot)));
+        }
+        counters.clearAll();
+        counterStore.release(counters);
+        counters = null;
+    }
+
     @Override
     public String toString() {
         return ReflectionToStringBuilder.toString(this,
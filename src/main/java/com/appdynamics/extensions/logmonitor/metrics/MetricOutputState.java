@@ -0,0 +1,101 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.metrics;
+
+import com.appdynamics.extensions.logmonitor.config.MetricOutput;
+import com.appdynamics.extensions.metrics.Metric;
+import com.google.common.collect.Lists;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.appdynamics.extensions.logmonitor.util.Constants.METRIC_SEPARATOR;
+import static com.appdynamics.extensions.logmonitor.util.Constants.OCCURRENCES;
+import static com.appdynamics.extensions.logmonitor.util.Constants.OCCURRENCES_PER_MINUTE;
+import static com.appdynamics.extensions.logmonitor.util.Constants.TOTAL_OCCURRENCES;
+
+/**
+ * The metrics of a log printed in previous runs, used to derive rates and totals from the occurrences of a run
+ * and to leave out metrics whose value did not change since they were last printed.
+ */
+public class MetricOutputState {
+    private static final String OCCURRENCES_SUFFIX = METRIC_SEPARATOR + OCCURRENCES;
+
+    private final Map<String, String> printedValues = new HashMap<String, String>();
+    private final Map<String, Long> totals = new HashMap<String, Long>();
+    private long lastRun;
+    private long lastHeartbeat;
+
+    /**
+     * @param now the time of the run in milliseconds
+     * @return the metrics to print for this run
+     */
+    public synchronized List<Metric> select(Map<String, Metric> metrics, MetricOutput metricOutput, long now) {
+        List<Metric> candidates = Lists.newArrayListWithCapacity(metrics.size());
+        long elapsedMillis = lastRun == 0 ? 0 : now - lastRun;
+        lastRun = now;
+        for (Metric metric : metrics.values()) {
+            candidates.add(metric);
+            if ((metricOutput.getTotals() || metricOutput.getRates()) &&
+                    metric.getMetricName().endsWith(OCCURRENCES_SUFFIX)) {
+                addDerivedMetrics(metric, metricOutput, elapsedMillis, candidates);
+            }
+        }
+        if (!MetricOutput.CHANGED_MODE.equals(metricOutput.getMode())) {
+            return candidates;
+        }
+        if (now - lastHeartbeat >= TimeUnit.MINUTES.toMillis(metricOutput.getHeartbeatMinutes())) {
+            lastHeartbeat = now;
+            printedValues.clear();
+            for (Metric metric : candidates) {
+                printedValues.put(metric.getMetricPath(), metric.getMetricValue());
+            }
+            return candidates;
+        }
+        List<Metric> changed = Lists.newArrayList();
+        for (Metric metric : candidates) {
+            String previous = printedValues.put(metric.getMetricPath(), metric.getMetricValue());
+            if (!metric.getMetricValue().equals(previous)) {
+                changed.add(metric);
+            }
+        }
+        return changed;
+    }
+
+    private void addDerivedMetrics(Metric occurrences, MetricOutput metricOutput, long elapsedMillis,
+                                   List<Metric> candidates) {
+        long count;
+        try {
+            count = Long.parseLong(occurrences.getMetricValue());
+        } catch (NumberFormatException ex) {
+            return;
+        }
+        String name = occurrences.getMetricName();
+        String path = occurrences.getMetricPath();
+        String namePrefix = name.substring(0, name.length() - OCCURRENCES.length());
+        String pathPrefix = path.endsWith(OCCURRENCES) ? path.substring(0, path.length() - OCCURRENCES.length()) :
+                path + METRIC_SEPARATOR;
+        if (metricOutput.getTotals()) {
+            Long previousTotal = totals.get(path);
+            long total = (previousTotal == null ? 0 : previousTotal) + count;
+            totals.put(path, total);
+            candidates.add(new Metric(namePrefix + TOTAL_OCCURRENCES, String.valueOf(total),
+                    pathPrefix + TOTAL_OCCURRENCES));
+        }
+        // the first run has nothing to measure the rate against. Per minute, as the controller keeps whole numbers
+        // and a rate per second would round the rare patterns to 0
+        if (metricOutput.getRates() && elapsedMillis > 0) {
+            long rate = Math.round(count * 60000.0 / elapsedMillis);
+            candidates.add(new Metric(namePrefix + OCCURRENCES_PER_MINUTE, String.valueOf(rate),
+                    pathPrefix + OCCURRENCES_PER_MINUTE));
+        }
+    }
+}
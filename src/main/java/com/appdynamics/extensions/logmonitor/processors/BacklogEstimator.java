@@ -0,0 +1,129 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.processors;
+
+import com.appdynamics.extensions.logging.ExtensionsLoggerFactory;
+import com.appdynamics.extensions.logmonitor.config.FilePointer;
+import com.appdynamics.extensions.logmonitor.config.Log;
+import com.appdynamics.extensions.logmonitor.processors.DirectorySnapshot.FileEntry;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.getFilePointerKey;
+import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.resolveDirPath;
+
+/**
+ * Estimates how far behind each log is at the start of a run: the bytes not read yet of its current file and, if the
+ * log rolled over, of every file it rolled over to since its file pointer was set. The estimate uses the directory
+ * listings of the run and the file pointers in memory, no file is opened.
+ */
+public class BacklogEstimator {
+    private static final Logger LOGGER = ExtensionsLoggerFactory.getLogger(BacklogEstimator.class);
+    private final DirectorySnapshots directorySnapshots;
+    private final FilePointerProcessor filePointerProcessor;
+    private final Map<Log, Long> unreadBytes = new IdentityHashMap<Log, Long>();
+
+    public BacklogEstimator(DirectorySnapshots directorySnapshots, FilePointerProcessor filePointerProcessor) {
+        this.directorySnapshots = directorySnapshots;
+        this.filePointerProcessor = filePointerProcessor;
+    }
+
+    /**
+     * @return the bytes of the log that were not read yet, 0 if its directory can not be listed or has no file of it
+     */
+    public synchronized long getUnreadBytes(Log log) {
+        Long estimate = unreadBytes.get(log);
+        if (estimate == null) {
+            estimate = estimate(log);
+            unreadBytes.put(log, estimate);
+        }
+        return estimate;
+    }
+
+    /**
+     * Orders the groups of logs reading the same file by their backlog, the group with the most unread bytes first.
+     * Groups with the same backlog keep their order.
+     */
+    public List<List<Log>> orderByBacklog(List<List<Log>> groups) {
+        PriorityQueue<RankedGroup> queue = new PriorityQueue<RankedGroup>(Math.max(1, groups.size()));
+        for (int i = 0; i < groups.size(); i++) {
+            long groupUnreadBytes = 0;
+            for (Log log : groups.get(i)) {
+                groupUnreadBytes = Math.max(groupUnreadBytes, getUnreadBytes(log));
+            }
+            queue.add(new RankedGroup(groups.get(i), groupUnreadBytes, i));
+        }
+        List<List<Log>> ordered = new ArrayList<List<Log>>(groups.size());
+        while (!queue.isEmpty()) {
+            ordered.add(queue.poll().logs);
+        }
+        return ordered;
+    }
+
+    // the same files the scan reads, see LogFileManager
+    private long estimate(Log log) {
+        String dirPath = resolveDirPath(log.getLogDirectory());
+        try {
+            DirectorySnapshot directorySnapshot = directorySnapshots.getSnapshot(dirPath);
+            FileEntry currentFile = directorySnapshot.getLatestFile(log.getLogName());
+            if (currentFile == null) {
+                return 0;
+            }
+            FilePointer filePointer = filePointerProcessor.peekFilePointer(getFilePointerKey(log, dirPath));
+            if (filePointer == null) {
+                // not migrated yet, see LogFileManager
+                filePointer = filePointerProcessor.peekFilePointer(dirPath + log.getLogName());
+            }
+            if (filePointer == null) {
+                // read from the start of the current file
+                return currentFile.getSize();
+            }
+            long position = filePointer.getLastReadPosition();
+            if (currentFile.getFile().getPath().equals(filePointer.getFilename()) &&
+                    currentFile.getSize() >= position) {
+                return currentFile.getSize() - position;
+            }
+            long unread = 0;
+            for (FileEntry file : directorySnapshot.getFiles(log.getLogName())) {
+                if (file.getCreationTime() == filePointer.getFileCreationTime()) {
+                    unread += Math.max(0, file.getSize() - position);
+                } else if (file.getCreationTime() > filePointer.getFileCreationTime()) {
+                    unread += file.getSize();
+                }
+            }
+            return unread;
+        } catch (IOException ex) {
+            LOGGER.debug("Unable to estimate the backlog of log {}", log.getDisplayName(), ex);
+            return 0;
+        }
+    }
+
+    private static class RankedGroup implements Comparable<RankedGroup> {
+        private final List<Log> logs;
+        private final long unreadBytes;
+        private final int index;
+
+        RankedGroup(List<Log> logs, long unreadBytes, int index) {
+            this.logs = logs;
+            this.unreadBytes = unreadBytes;
+            this.index = index;
+        }
+
+        public int compareTo(RankedGroup other) {
+            int byBacklog = Long.compare(other.unreadBytes, unreadBytes);
+            return byBacklog != 0 ? byBacklog : Integer.compare(index, other.index);
+        }
+    }
+}
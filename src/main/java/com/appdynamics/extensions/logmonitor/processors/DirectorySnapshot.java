@@ -0,0 +1,212 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.processors;
+
+import com.appdynamics.extensions.logging.ExtensionsLoggerFactory;
+import org.slf4j.Logger;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The regular files of a log directory, listed once per run. Only the attributes of the files matching a log name are
+ * read, once per file.
+ */
+class DirectorySnapshot {
+    private static final Logger LOGGER = ExtensionsLoggerFactory.getLogger(DirectorySnapshot.class);
+    private static final String UNIX_ATTRIBUTES = "unix:size,lastModifiedTime,creationTime,isRegularFile,dev,ino";
+    private final String dirPath;
+    private final Map<String, PathMatcher> matchers;
+    private final DirectorySnapshots directorySnapshots;
+    private List<Path> paths;
+    private boolean unix;
+    private Map<Path, FileEntry> entries;
+    private Map<String, List<FileEntry>> entriesByLogName;
+
+    DirectorySnapshot(String dirPath, Map<String, PathMatcher> matchers, DirectorySnapshots directorySnapshots) {
+        this.dirPath = dirPath;
+        this.matchers = matchers;
+        this.directorySnapshots = directorySnapshots;
+    }
+
+    /**
+     * @return the files matching the log name, which may contain the * and ? wildcards
+     */
+    synchronized List<FileEntry> getFiles(String logName) throws IOException {
+        if (paths == null) {
+            list();
+            entriesByLogName = match(matchers);
+        }
+        List<FileEntry> files = entriesByLogName.get(logName);
+        if (files == null) {
+            // a log name that was not registered for this run is matched against the same listing
+            files = match(Collections.singletonMap(logName, directorySnapshots.getMatcher(logName))).get(logName);
+            entriesByLogName.put(logName, files);
+        }
+        return files;
+    }
+
+    /**
+     * @return the most recently modified of the files matching the log name, or null if there is none
+     */
+    synchronized FileEntry getLatestFile(String logName) throws IOException {
+        FileEntry latestFile = null;
+        long lastModified = Long.MIN_VALUE;
+        for (FileEntry file : getFiles(logName)) {
+            if (file.getLastModified() > lastModified) {
+                latestFile = file;
+                lastModified = file.getLastModified();
+            }
+        }
+        return latestFile;
+    }
+
+    // lists the names only, no attribute is read
+    private void list() throws IOException {
+        File directory = new File(dirPath);
+        if (!directory.isDirectory()) {
+            throw new FileNotFoundException(String.format("Directory [%s] not found. Ensure that it's a directory",
+                    dirPath));
+        }
+        unix = directory.toPath().getFileSystem().supportedFileAttributeViews().contains("unix");
+        List<Path> listed = new ArrayList<Path>();
+        DirectoryStream<Path> stream = Files.newDirectoryStream(directory.toPath());
+        try {
+            for (Path path : stream) {
+                listed.add(path);
+            }
+        } finally {
+            stream.close();
+        }
+        paths = listed;
+        entries = new HashMap<Path, FileEntry>();
+        LOGGER.debug("Listed {} files in {}", listed.size(), dirPath);
+    }
+
+    // names are matched before any attribute is read, the attributes of a file are read once for all log names
+    private Map<String, List<FileEntry>> match(Map<String, PathMatcher> logNameMatchers) throws IOException {
+        Map<String, List<FileEntry>> matched = new HashMap<String, List<FileEntry>>();
+        for (String logName : logNameMatchers.keySet()) {
+            matched.put(logName, new ArrayList<FileEntry>());
+        }
+        for (Path path : paths) {
+            for (Map.Entry<String, PathMatcher> matcher : logNameMatchers.entrySet()) {
+                if (matcher.getValue().matches(path.getFileName())) {
+                    FileEntry entry = getEntry(path);
+                    if (entry == null) {
+                        break;
+                    }
+                    matched.get(matcher.getKey()).add(entry);
+                }
+            }
+        }
+        Map<String, List<FileEntry>> files = new HashMap<String, List<FileEntry>>();
+        for (Map.Entry<String, List<FileEntry>> entry : matched.entrySet()) {
+            files.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+        }
+        return files;
+    }
+
+    // returns null for files that are not regular files or were removed since the listing
+    private FileEntry getEntry(Path path) throws IOException {
+        if (entries.containsKey(path)) {
+            return entries.get(path);
+        }
+        FileEntry entry;
+        try {
+            entry = readEntry(new File(dirPath, path.getFileName().toString()), path, unix);
+        } catch (NoSuchFileException ex) {
+            entry = null;
+        }
+        entries.put(path, entry);
+        return entry;
+    }
+
+    // reads the attributes of the file in a single call, returns null if it is not a regular file
+    private static FileEntry readEntry(File file, Path path, boolean unix) throws IOException {
+        if (unix) {
+            Map<String, Object> attributes = Files.readAttributes(path, UNIX_ATTRIBUTES);
+            if (!Boolean.TRUE.equals(attributes.get("isRegularFile"))) {
+                return null;
+            }
+            long inode = ((Number) attributes.get("ino")).longValue();
+            return new FileEntry(file, ((Number) attributes.get("size")).longValue(),
+                    ((FileTime) attributes.get("lastModifiedTime")).toMillis(),
+                    ((FileTime) attributes.get("creationTime")).toMillis(), inode, attributes.get("dev") + ":" + inode);
+        }
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        if (!attributes.isRegularFile()) {
+            return null;
+        }
+        return new FileEntry(file, attributes.size(), attributes.lastModifiedTime().toMillis(),
+                attributes.creationTime().toMillis(), 0,
+                attributes.fileKey() != null ? attributes.fileKey() : file.getAbsolutePath());
+    }
+
+    /**
+     * A file with the attributes read when the directory was listed.
+     */
+    static class FileEntry {
+        private final File file;
+        private final long size;
+        private final long lastModified;
+        private final long creationTime;
+        private final long inode;
+        private final Object identity;
+
+        FileEntry(File file, long size, long lastModified, long creationTime, long inode, Object identity) {
+            this.file = file;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.creationTime = creationTime;
+            this.inode = inode;
+            this.identity = identity;
+        }
+
+        File getFile() {
+            return file;
+        }
+
+        long getSize() {
+            return size;
+        }
+
+        long getLastModified() {
+            return lastModified;
+        }
+
+        long getCreationTime() {
+            return creationTime;
+        }
+
+        long getInode() {
+            return inode;
+        }
+
+        /**
+         * @return a key that is equal for entries of the same file, e.g. hard links, where the file system supports it
+         */
+        Object getIdentity() {
+            return identity;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.processors;
+
+import com.appdynamics.extensions.logmonitor.config.Log;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.resolveDirPath;
+
+/**
+ * Lists each distinct log directory once per monitor run, no matter how many logs are configured in it. The
+ * snapshot of a directory is taken by the first log that needs it and matched against the names of all logs in that
+ * directory in a single pass; the other logs are served from the snapshot.
+ */
+public class DirectorySnapshots {
+    private final Map<String, PathMatcher> matchers = new ConcurrentHashMap<String, PathMatcher>();
+    private volatile Map<String, Map<String, PathMatcher>> matchersByDirectory =
+            new HashMap<String, Map<String, PathMatcher>>();
+    private volatile ConcurrentHashMap<String, DirectorySnapshot> snapshots =
+            new ConcurrentHashMap<String, DirectorySnapshot>();
+
+    /**
+     * Drops the snapshots of the previous run and registers the log names to match per directory.
+     */
+    public synchronized void startCycle(List<Log> logs) {
+        Map<String, Map<String, PathMatcher>> directories = new HashMap<String, Map<String, PathMatcher>>();
+        for (Log log : logs) {
+            String dirPath = resolveDirPath(log.getLogDirectory());
+            Map<String, PathMatcher> directoryMatchers = directories.get(dirPath);
+            if (directoryMatchers == null) {
+                directoryMatchers = new LinkedHashMap<String, PathMatcher>();
+                directories.put(dirPath, directoryMatchers);
+            }
+            directoryMatchers.put(log.getLogName(), getMatcher(log.getLogName()));
+        }
+        matchersByDirectory = directories;
+        snapshots = new ConcurrentHashMap<String, DirectorySnapshot>();
+    }
+
+    /**
+     * @param dirPath the resolved path of the directory, see {@link
+     *                com.appdynamics.extensions.logmonitor.util.LogMonitorUtil#resolveDirPath(String)}
+     */
+    DirectorySnapshot getSnapshot(String dirPath) {
+        ConcurrentHashMap<String, DirectorySnapshot> currentSnapshots = snapshots;
+        DirectorySnapshot snapshot = currentSnapshots.get(dirPath);
+        if (snapshot == null) {
+            Map<String, PathMatcher> directoryMatchers = matchersByDirectory.get(dirPath);
+            snapshot = new DirectorySnapshot(dirPath, directoryMatchers == null ?
+                    new HashMap<String, PathMatcher>() : directoryMatchers, this);
+            DirectorySnapshot previous = currentSnapshots.putIfAbsent(dirPath, snapshot);
+            if (previous != null) {
+                snapshot = previous;
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Groups the logs whose current file, the most recently modified file matching the log name, is the same file.
+     * Logs whose directory can not be listed are in groups of their own.
+     *
+     * @return the groups, in the order of their first log
+     */
+    public List<List<Log>> groupByCurrentFile(List<Log> logs) {
+        Map<Object, List<Log>> groups = new LinkedHashMap<Object, List<Log>>();
+        for (Log log : logs) {
+            Object identity = log;
+            try {
+                DirectorySnapshot.FileEntry currentFile = getSnapshot(resolveDirPath(log.getLogDirectory()))
+                        .getLatestFile(log.getLogName());
+                if (currentFile != null) {
+                    identity = currentFile.getIdentity();
+                }
+            } catch (IOException ex) {
+                // reported when the log is processed
+            }
+            List<Log> group = groups.get(identity);
+            if (group == null) {
+                group = new ArrayList<Log>();
+                groups.put(identity, group);
+            }
+            group.add(log);
+        }
+        return new ArrayList<List<Log>>(groups.values());
+    }
+
+    PathMatcher getMatcher(String logName) {
+        PathMatcher matcher = matchers.get(logName);
+        if (matcher == null) {
+            matcher = FileSystems.getDefault().getPathMatcher("glob:" + toGlob(logName));
+            matchers.put(logName, matcher);
+        }
+        return matcher;
+    }
+
+    // log names only support the * and ? wildcards, any other glob syntax is taken literally
+    private static String toGlob(String logName) {
+        StringBuilder glob = new StringBuilder(logName.length() + 8);
+        for (int i = 0; i < logName.length(); i++) {
+            char c = logName.charAt(i);
+            if (c == '\\' || c == '[' || c == ']' || c == '{' || c == '}') {
+                glob.append('\\');
+            }
+            glob.append(c);
+        }
+        return glob.toString();
+    }
+}
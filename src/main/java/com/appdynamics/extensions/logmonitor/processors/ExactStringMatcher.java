@@ -0,0 +1,102 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.processors;
+
+/**
+ * Finds a search string with matchExactString, i.e. a literal preceded by whitespace or the start of the text and
+ * followed by whitespace or the end of the text, without the regex engine. The literal is searched with
+ * Boyer-Moore-Horspool, candidates are then checked for the boundaries. Matches are the ones of the regex
+ * {@code (?<=\s|^)literal(?=\s|$)}: whitespace is {@code [ \t\n\x0B\f\r]}, case insensitive literals fold US-ASCII
+ * letters only, and the end of the text may be followed by a final line terminator.
+ * <p>
+ * Not thread safe, each {@link LogLineProcessor} uses its own.
+ */
+class ExactStringMatcher {
+    private static final int TABLE_SIZE = 256;
+
+    private final char[] literal;
+    private final String literalString;
+    private final boolean caseSensitive;
+    // shift per low byte of a (folded) character, the smallest one of the characters sharing that byte
+    private final int[] shifts = new int[TABLE_SIZE];
+
+    ExactStringMatcher(String literal, boolean caseSensitive) {
+        this.literalString = literal;
+        this.caseSensitive = caseSensitive;
+        this.literal = new char[literal.length()];
+        for (int i = 0; i < literal.length(); i++) {
+            this.literal[i] = fold(literal.charAt(i));
+        }
+        int last = this.literal.length - 1;
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            shifts[i] = this.literal.length;
+        }
+        for (int i = 0; i < last; i++) {
+            shifts[this.literal[i] & (TABLE_SIZE - 1)] = last - i;
+        }
+    }
+
+    /**
+     * @param from the index to search from, e.g. the end of the previous match
+     * @return the end of the next match, or -1 if there is none
+     */
+    int find(CharSequence text, int from) {
+        int length = literal.length;
+        int last = length - 1;
+        int end = text.length();
+        int position = from;
+        while (position + length <= end) {
+            char c = fold(text.charAt(position + last));
+            if (c == literal[last] && matchesAt(text, position, last) && isStartBoundary(text, position) &&
+                    isEndBoundary(text, position + length)) {
+                return position + length;
+            }
+            position += shifts[c & (TABLE_SIZE - 1)];
+        }
+        return -1;
+    }
+
+    /**
+     * @return the text of the match ending at the given index, as the regex would have matched it
+     */
+    String group(CharSequence text, int matchEnd) {
+        return caseSensitive ? literalString : text.subSequence(matchEnd - literal.length, matchEnd).toString();
+    }
+
+    private boolean matchesAt(CharSequence text, int position, int last) {
+        for (int i = 0; i < last; i++) {
+            if (fold(text.charAt(position + i)) != literal[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isStartBoundary(CharSequence text, int position) {
+        return position == 0 || isWhitespace(text.charAt(position - 1));
+    }
+
+    private static boolean isEndBoundary(CharSequence text, int position) {
+        int length = text.length();
+        if (position == length || isWhitespace(text.charAt(position))) {
+            return true;
+        }
+        // '$' also matches before a line terminator ending the text, \r and \n are whitespace
+        char c = text.charAt(position);
+        return position == length - 1 && (c == 0x85 || c == 0x2028 || c == 0x2029);
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+
+    private char fold(char c) {
+        return !caseSensitive && c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+}
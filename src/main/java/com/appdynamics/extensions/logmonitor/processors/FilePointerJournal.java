@@ -0,0 +1,395 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.processors;
+
+import com.appdynamics.extensions.logging.ExtensionsLoggerFactory;
+import com.appdynamics.extensions.logmonitor.config.FilePointer;
+import org.slf4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary journal of the file pointers. Paths are written once as dictionary records and referenced by
+ * id from fixed-size checkpoint records, so persisting the pointers only appends the records of the pointers
+ * that changed. Every record ends with a CRC32; on recovery, a torn or corrupt tail is truncated and the
+ * journal continues from the last intact record. The journal is compacted into a fresh snapshot once it holds
+ * many more records than pointers, or once a day. Pointers that were neither used nor updated for a week are
+ * dropped at compaction. Not thread safe, callers synchronize.
+ */
+class FilePointerJournal {
+    private static final Logger LOGGER = ExtensionsLoggerFactory.getLogger(FilePointerJournal.class);
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int MAGIC = 0x4C4D4650;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final byte PATH_RECORD = 1;
+    private static final byte CHECKPOINT_RECORD = 2;
+    // type, key id, file id, inode, offset, creation time, updated at, crc
+    private static final int CHECKPOINT_RECORD_SIZE = 1 + 4 + 4 + 8 + 8 + 8 + 8 + 4;
+    private static final int MIN_RECORDS_BEFORE_COMPACTION = 1024;
+    private static final long COMPACTION_INTERVAL = TimeUnit.DAYS.toMillis(1);
+    private static final long TOUCH_INTERVAL = TimeUnit.DAYS.toMillis(1);
+    private static final long STALE_AFTER = TimeUnit.DAYS.toMillis(7);
+
+    private final File file;
+    private final Map<String, Integer> pathIds = new HashMap<String, Integer>();
+    private final Map<String, Checkpoint> checkpoints = new HashMap<String, Checkpoint>();
+    private final CRC32 crc = new CRC32();
+    private FileChannel channel;
+    private long checkpointRecords;
+    private long openedAt;
+    private long lastCompaction;
+
+    FilePointerJournal(File file) {
+        this.file = file;
+    }
+
+    boolean exists() {
+        return file.exists();
+    }
+
+    /**
+     * Reads the journal, truncating a torn or corrupt tail, and opens it for appending.
+     *
+     * @return the recovered pointers by log path
+     */
+    Map<String, FilePointer> open() throws IOException {
+        Map<String, FilePointer> filePointers = new HashMap<String, FilePointer>();
+        long intactLength = recover(filePointers);
+        if (intactLength < file.length()) {
+            LOGGER.warn("Truncating torn or corrupt records at the end of {} from {} to {} bytes", file.getPath(),
+                    file.length(), intactLength);
+        }
+        if (intactLength < HEADER_SIZE) {
+            create(filePointers);
+        } else {
+            openChannel(intactLength);
+        }
+        return filePointers;
+    }
+
+    /**
+     * Starts a new journal holding a snapshot of the given pointers.
+     */
+    void create(Map<String, FilePointer> filePointers) throws IOException {
+        checkpoints.clear();
+        compact(filePointers);
+    }
+
+    /**
+     * Appends a checkpoint for each of the given pointers whose state differs from the journal, and compacts the
+     * journal when it is due. Pointers that are used but unchanged are re-written once a day, so that only pointers
+     * of logs that are no longer monitored become stale.
+     *
+     * @param usedPointers the pointers used since the last call, by log path
+     * @param allPointers  all pointers, stale ones are removed from this map at compaction
+     */
+    void append(Map<String, FilePointer> usedPointers, Map<String, FilePointer> allPointers) throws IOException {
+        long now = System.currentTimeMillis();
+        List<ByteBuffer> buffers = new ArrayList<ByteBuffer>();
+        for (Map.Entry<String, FilePointer> entry : usedPointers.entrySet()) {
+            String key = entry.getKey();
+            FilePointer filePointer = entry.getValue();
+            Checkpoint checkpoint = checkpoints.get(key);
+            if (checkpoint == null) {
+                checkpoint = new Checkpoint(filePointer, now);
+                checkpoints.put(key, checkpoint);
+            } else if (checkpoint.matches(filePointer) && now - checkpoint.updatedAt < TOUCH_INTERVAL) {
+                checkpoint.used = true;
+                continue;
+            } else {
+                checkpoint.update(filePointer, now);
+            }
+            checkpoint.used = true;
+            addPathRecord(key, buffers);
+            addPathRecord(checkpoint.filename, buffers);
+            buffers.add(checkpointRecord(key, checkpoint));
+            checkpointRecords++;
+        }
+        if (!buffers.isEmpty()) {
+            write(channel, buffers);
+            channel.force(false);
+        }
+        if (isCompactionDue(now, allPointers.size())) {
+            removeStale(allPointers, now);
+            compact(allPointers);
+            for (Checkpoint remaining : checkpoints.values()) {
+                remaining.used = false;
+            }
+        }
+    }
+
+    void close() {
+        closeChannel();
+    }
+
+    private boolean isCompactionDue(long now, int pointerCount) {
+        return checkpointRecords > Math.max(MIN_RECORDS_BEFORE_COMPACTION, 4L * pointerCount) ||
+                now - lastCompaction > COMPACTION_INTERVAL;
+    }
+
+    // stale: not used since the previous compaction, at least a day ago, and not updated for a week
+    private void removeStale(Map<String, FilePointer> allPointers, long now) {
+        if (now - openedAt < COMPACTION_INTERVAL) {
+            return;
+        }
+        Iterator<Map.Entry<String, Checkpoint>> iterator = checkpoints.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Checkpoint> entry = iterator.next();
+            Checkpoint checkpoint = entry.getValue();
+            if (!checkpoint.used && now - checkpoint.updatedAt > STALE_AFTER) {
+                LOGGER.info("Removing the file pointer of {}, it was not used since {}", entry.getKey(),
+                        new Date(checkpoint.updatedAt));
+                allPointers.remove(entry.getKey());
+                iterator.remove();
+            }
+        }
+    }
+
+    // writes a snapshot to a new file that replaces the journal
+    private void compact(Map<String, FilePointer> filePointers) throws IOException {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, FilePointer> entry : filePointers.entrySet()) {
+            Checkpoint checkpoint = checkpoints.get(entry.getKey());
+            if (checkpoint == null) {
+                checkpoints.put(entry.getKey(), new Checkpoint(entry.getValue(), now));
+            } else if (!checkpoint.matches(entry.getValue())) {
+                checkpoint.update(entry.getValue(), now);
+            }
+        }
+        closeChannel();
+        pathIds.clear();
+        List<ByteBuffer> buffers = new ArrayList<ByteBuffer>();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        buffers.add(header);
+        for (Map.Entry<String, Checkpoint> entry : checkpoints.entrySet()) {
+            addPathRecord(entry.getKey(), buffers);
+            addPathRecord(entry.getValue().filename, buffers);
+            buffers.add(checkpointRecord(entry.getKey(), entry.getValue()));
+        }
+        checkpointRecords = checkpoints.size();
+        File compacted = new File(file.getPath() + ".tmp");
+        FileChannel compactedChannel = new RandomAccessFile(compacted, "rw").getChannel();
+        try {
+            compactedChannel.truncate(0);
+            write(compactedChannel, buffers);
+            compactedChannel.force(true);
+        } finally {
+            compactedChannel.close();
+        }
+        try {
+            Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        lastCompaction = now;
+        if (openedAt == 0) {
+            openedAt = now;
+        }
+        openChannel(file.length());
+    }
+
+    private long recover(Map<String, FilePointer> filePointers) throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+        Map<Integer, String> paths = new HashMap<Integer, String>();
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        long intactLength = 0;
+        try {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                LOGGER.warn("{} is not a file pointer journal, starting a new one", file.getPath());
+                return 0;
+            }
+            intactLength = HEADER_SIZE;
+            byte[] buffer = new byte[CHECKPOINT_RECORD_SIZE];
+            while (true) {
+                int type = input.read();
+                if (type == -1) {
+                    break;
+                }
+                buffer[0] = (byte) type;
+                int length;
+                if (type == PATH_RECORD) {
+                    input.readFully(buffer, 1, 6);
+                    int pathLength = ((buffer[5] & 0xFF) << 8) | (buffer[6] & 0xFF);
+                    length = 7 + pathLength + 4;
+                    if (buffer.length < length) {
+                        byte[] larger = new byte[length];
+                        System.arraycopy(buffer, 0, larger, 0, 7);
+                        buffer = larger;
+                    }
+                    input.readFully(buffer, 7, length - 7);
+                } else if (type == CHECKPOINT_RECORD) {
+                    length = CHECKPOINT_RECORD_SIZE;
+                    input.readFully(buffer, 1, length - 1);
+                } else {
+                    break;
+                }
+                ByteBuffer record = ByteBuffer.wrap(buffer, 0, length);
+                crc.reset();
+                crc.update(buffer, 0, length - 4);
+                if ((int) crc.getValue() != record.getInt(length - 4)) {
+                    break;
+                }
+                record.position(1);
+                if (type == PATH_RECORD) {
+                    int id = record.getInt();
+                    String path = new String(buffer, 7, length - 11, UTF_8);
+                    paths.put(id, path);
+                    pathIds.put(path, id);
+                } else {
+                    String key = paths.get(record.getInt());
+                    String filename = paths.get(record.getInt());
+                    if (key == null || filename == null) {
+                        break;
+                    }
+                    Checkpoint checkpoint = new Checkpoint(filename, record.getLong(), record.getLong(),
+                            record.getLong(), record.getLong());
+                    checkpoints.put(key, checkpoint);
+                    filePointers.put(key, checkpoint.toFilePointer());
+                    checkpointRecords++;
+                }
+                intactLength += length;
+            }
+        } catch (EOFException ex) {
+            // torn record at the end of the journal
+        } finally {
+            input.close();
+        }
+        return intactLength;
+    }
+
+    private void addPathRecord(String path, List<ByteBuffer> buffers) {
+        if (pathIds.containsKey(path)) {
+            return;
+        }
+        int id = pathIds.size();
+        pathIds.put(path, id);
+        byte[] bytes = path.getBytes(UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Path is too long for the file pointer journal: " + path);
+        }
+        ByteBuffer record = ByteBuffer.allocate(7 + bytes.length + 4);
+        record.put(PATH_RECORD).putInt(id).putShort((short) bytes.length).put(bytes);
+        buffers.add(seal(record));
+    }
+
+    private ByteBuffer checkpointRecord(String key, Checkpoint checkpoint) {
+        ByteBuffer record = ByteBuffer.allocate(CHECKPOINT_RECORD_SIZE);
+        record.put(CHECKPOINT_RECORD).putInt(pathIds.get(key)).putInt(pathIds.get(checkpoint.filename))
+                .putLong(checkpoint.inode).putLong(checkpoint.offset).putLong(checkpoint.creationTime)
+                .putLong(checkpoint.updatedAt);
+        return seal(record);
+    }
+
+    private ByteBuffer seal(ByteBuffer record) {
+        crc.reset();
+        crc.update(record.array(), 0, record.position());
+        record.putInt((int) crc.getValue());
+        record.flip();
+        return record;
+    }
+
+    private static void write(FileChannel channel, Collection<ByteBuffer> buffers) throws IOException {
+        ByteBuffer[] array = buffers.toArray(new ByteBuffer[buffers.size()]);
+        long remaining = 0;
+        for (ByteBuffer buffer : array) {
+            remaining += buffer.remaining();
+        }
+        while (remaining > 0) {
+            remaining -= channel.write(array);
+        }
+    }
+
+    private void openChannel(long length) throws IOException {
+        closeChannel();
+        channel = new RandomAccessFile(file, "rw").getChannel();
+        if (channel.size() > length) {
+            channel.truncate(length);
+        }
+        channel.position(length);
+        if (openedAt == 0) {
+            openedAt = System.currentTimeMillis();
+            lastCompaction = openedAt;
+        }
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                LOGGER.debug("Error while closing {}", file.getPath(), ex);
+            }
+            channel = null;
+        }
+    }
+
+    private static class Checkpoint {
+        private String filename;
+        private long inode;
+        private long offset;
+        private long creationTime;
+        private long updatedAt;
+        private boolean used;
+
+        Checkpoint(String filename, long inode, long offset, long creationTime, long updatedAt) {
+            this.filename = filename;
+            this.inode = inode;
+            this.offset = offset;
+            this.creationTime = creationTime;
+            this.updatedAt = updatedAt;
+        }
+
+        Checkpoint(FilePointer filePointer, long now) {
+            update(filePointer, now);
+        }
+
+        boolean matches(FilePointer filePointer) {
+            return filename.equals(String.valueOf(filePointer.getFilename())) &&
+                    inode == filePointer.getInode() && offset == filePointer.getLastReadPosition() &&
+                    creationTime == filePointer.getFileCreationTime();
+        }
+
+        void update(FilePointer filePointer, long now) {
+            filename = String.valueOf(filePointer.getFilename());
+            inode = filePointer.getInode();
+            offset = filePointer.getLastReadPosition();
+            creationTime = filePointer.getFileCreationTime();
+            updatedAt = now;
+        }
+
+        FilePointer toFilePointer() {
+            return new FilePointer(filename, offset, creationTime, inode);
+        }
+    }
+}
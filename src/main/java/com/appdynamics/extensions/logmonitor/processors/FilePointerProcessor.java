@@ -17,55 +17,152 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 
 import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
 
 import static com.appdynamics.extensions.logmonitor.util.Constants.FILEPOINTER_FILENAME;
+import static com.appdynamics.extensions.logmonitor.util.Constants.FILEPOINTER_JOURNAL_FILENAME;
 
 /**
+ * Keeps the file pointer of each log. The entry of a log in the map is its only mutable state: the scanner of the
+ * log is the single writer and replaces the entry with a new, immutable {@link FilePointer} snapshot, the
+ * checkpointer reads the entries without locking and can never see a pointer that is half updated, e.g. the name of
+ * a rolled over file with the position reached in the previous one.
+ *
  * @author Aditya Jagtiani
  */
 public class FilePointerProcessor {
     private static final Logger LOGGER = ExtensionsLoggerFactory.getLogger(FilePointerProcessor.class);
+    private static final String MIGRATED_SUFFIX = ".migrated";
     private volatile ConcurrentHashMap<String, FilePointer> filePointers = new ConcurrentHashMap<String, FilePointer>();
+    private final Set<String> usedFilePointers = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final File directory;
     private ObjectMapper mapper = new ObjectMapper();
+    private FilePointerJournal journal;
 
     public FilePointerProcessor() {
+        this(PathResolver.resolveDirectory(LogMonitor.class));
+    }
+
+    FilePointerProcessor(File directory) {
+        this.directory = directory;
         initializeFilePointers();
     }
 
     void updateFilePointer(String dynamicLogPath,
-                           String actualLogPath, AtomicLong lastReadPosition, long creationTimestamp) {
-        FilePointer filePointer = getFilePointer(dynamicLogPath, actualLogPath);
-        filePointer.setFilename(actualLogPath);
-        filePointer.setLastReadPosition(lastReadPosition);
-        filePointer.setFileCreationTime(creationTimestamp);
+                           String actualLogPath, long lastReadPosition, long creationTimestamp) {
+        updateFilePointer(dynamicLogPath, actualLogPath, lastReadPosition, creationTimestamp, 0);
+    }
+
+    void updateFilePointer(String dynamicLogPath, String actualLogPath, long lastReadPosition,
+                           long creationTimestamp, long inode) {
+        FilePointer snapshot = new FilePointer(actualLogPath, lastReadPosition, creationTimestamp, inode);
+        filePointers.put(dynamicLogPath, snapshot);
+        // marked after publishing, so that a checkpoint that misses this snapshot is followed by one that writes it
+        usedFilePointers.add(dynamicLogPath);
+    }
+
+    /**
+     * Copies the pointer kept under the key of an earlier version, which logs reading the same file through the same
+     * log name shared, to the key of one of these logs, so that it resumes where it was. The pointer under the old key
+     * is left to the other logs, the journal drops it once no log uses it anymore.
+     */
+    void migrateFilePointer(String legacyDynamicLogPath, String dynamicLogPath) {
+        FilePointer legacyFilePointer = filePointers.get(legacyDynamicLogPath);
+        if (legacyFilePointer != null && filePointers.putIfAbsent(dynamicLogPath, legacyFilePointer) == null) {
+            usedFilePointers.add(dynamicLogPath);
+            LOGGER.info("Migrated the file pointer of {} to {}", legacyDynamicLogPath, dynamicLogPath);
+        }
+    }
+
+    /**
+     * @return the pointer of the log, or null if it has none yet. Unlike getFilePointer, no pointer is created
+     */
+    FilePointer peekFilePointer(String dynamicLogPath) {
+        return filePointers.get(dynamicLogPath);
     }
 
     FilePointer getFilePointer(String dynamicLogPath, String actualLogPath) {
+        usedFilePointers.add(dynamicLogPath);
         if (filePointers.containsKey(dynamicLogPath)) {
             return filePointers.get(dynamicLogPath);
         }
-        FilePointer newFilePointer = new FilePointer();
-        newFilePointer.setFilename(actualLogPath);
+        FilePointer newFilePointer = new FilePointer(actualLogPath, 0, 0, 0);
 
         FilePointer previousFilePointer = filePointers.putIfAbsent(dynamicLogPath, newFilePointer);
         return previousFilePointer != null ? previousFilePointer : newFilePointer;
     }
 
-    public void updateFilePointerFile() {
-        File file = new File(getFilePointerPath());
+    /**
+     * Appends the pointers used since the last call to the journal. Falls back to rewriting the json file if the
+     * journal could not be opened.
+     */
+    public synchronized void updateFilePointerFile() {
+        if (journal == null) {
+            writeFilePointerJson();
+            return;
+        }
+        Map<String, FilePointer> used = new HashMap<String, FilePointer>();
+        Iterator<String> iterator = usedFilePointers.iterator();
+        while (iterator.hasNext()) {
+            String dynamicLogPath = iterator.next();
+            iterator.remove();
+            FilePointer filePointer = filePointers.get(dynamicLogPath);
+            if (filePointer != null) {
+                used.put(dynamicLogPath, filePointer);
+            }
+        }
         try {
-            mapper.writerWithDefaultPrettyPrinter().writeValue(file, filePointers);
+            journal.append(used, filePointers);
         } catch (Exception ex) {
             LOGGER.error(String.format("Unfortunately an error occurred while saving filepointers to %s",
-                    file.getPath()), ex);
+                    getJournalFile().getPath()), ex);
         }
     }
 
     private void initializeFilePointers() {
         LOGGER.info("Initializing Filepointers...");
-        File file = new File(getFilePointerPath());
+        File journalFile = getJournalFile();
+        FilePointerJournal filePointerJournal = new FilePointerJournal(journalFile);
+        // once a journal exists, the json file is out of date and is never read again
+        boolean journalExists = filePointerJournal.exists();
+        try {
+            if (journalExists) {
+                filePointers = new ConcurrentHashMap<String, FilePointer>(filePointerJournal.open());
+            } else {
+                readFilePointerJson();
+                filePointerJournal.create(filePointers);
+                LOGGER.info("Created the filepointer journal {}", journalFile.getPath());
+                renameMigratedFilePointerJson();
+            }
+            journal = filePointerJournal;
+        } catch (Exception ex) {
+            LOGGER.error(String.format("Unfortunately an error occurred while opening the filepointer journal %s, " +
+                    "saving filepointers to %s", journalFile.getPath(), FILEPOINTER_FILENAME), ex);
+            filePointerJournal.close();
+            if (journalExists) {
+                filePointers = new ConcurrentHashMap<String, FilePointer>();
+            }
+        }
+        LOGGER.info("Filepointers initialized with: " + filePointers);
+    }
+
+    // keeps the json file for reference, but out of the way of a later reset that deletes the journal
+    private void renameMigratedFilePointerJson() {
+        File file = getFilePointerFile();
+        File migrated = new File(directory, FILEPOINTER_FILENAME + MIGRATED_SUFFIX);
+        if (file.exists() && (migrated.exists() && !migrated.delete() || !file.renameTo(migrated))) {
+            LOGGER.warn("Unable to rename {} to {} after migrating it to the journal", file.getPath(),
+                    migrated.getPath());
+        }
+    }
+
+    private void readFilePointerJson() {
+        File file = getFilePointerFile();
         if (!file.exists()) {
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug("Unable to find: " + file.getPath());
@@ -80,10 +177,23 @@ public class FilePointerProcessor {
                         file.getPath()), ex);
             }
         }
-        LOGGER.info("Filepointers initialized with: " + filePointers);
     }
 
-    private String getFilePointerPath() {
-        return PathResolver.resolveDirectory(LogMonitor.class).getAbsolutePath() + File.separator + FILEPOINTER_FILENAME;
+    private void writeFilePointerJson() {
+        File file = getFilePointerFile();
+        try {
+            mapper.writerWithDefaultPrettyPrinter().writeValue(file, filePointers);
+        } catch (Exception ex) {
+            LOGGER.error(String.format("Unfortunately an error occurred while saving filepointers to %s",
+                    file.getPath()), ex);
+        }
+    }
+
+    private File getFilePointerFile() {
+        return new File(directory, FILEPOINTER_FILENAME);
+    }
+
+    private File getJournalFile() {
+        return new File(directory, FILEPOINTER_JOURNAL_FILENAME);
     }
 }
@@ -0,0 +1,325 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.processors;
+
+import java.util.List;
+
+/**
+ * Lazily tokenizes a line holding one JSON object and copies out only the values of the configured fields.
+ * Fields are addressed by name, nested objects with dotted names (e.g. "error.type"); array elements are not
+ * addressable, an array is returned as its raw text. String values are unescaped, other values are returned as
+ * written. Everything else is skipped without being materialized, and the scan stops as soon as all fields were
+ * found. Value buffers are reused from line to line, so a value is only valid until the next scan.
+ * Not thread safe, use one instance per scan.
+ */
+class JsonLineScanner {
+    private static final int MALFORMED = -1;
+    private static final int DONE = -2;
+
+    private final String[][] fieldPaths;
+    private final String[] quotedLeafNames;
+    private final StringBuilder[] values;
+    private final boolean[] found;
+    private final int maxDepth;
+    private final int[] keyStarts;
+    private final int[] keyEnds;
+    private int foundCount;
+
+    JsonLineScanner(List<String> fields) {
+        int fieldCount = fields.size();
+        this.fieldPaths = new String[fieldCount][];
+        this.quotedLeafNames = new String[fieldCount];
+        this.values = new StringBuilder[fieldCount];
+        this.found = new boolean[fieldCount];
+        int depth = 0;
+        for (int i = 0; i < fieldCount; i++) {
+            fieldPaths[i] = fields.get(i).split("\\.");
+            quotedLeafNames[i] = '"' + fieldPaths[i][fieldPaths[i].length - 1] + '"';
+            values[i] = new StringBuilder(64);
+            depth = Math.max(depth, fieldPaths[i].length);
+        }
+        this.maxDepth = depth;
+        this.keyStarts = new int[depth];
+        this.keyEnds = new int[depth];
+    }
+
+    /**
+     * Cheap pre-check on the raw line, before tokenizing it.
+     *
+     * @return false if the line does not contain the name of any configured field
+     */
+    boolean mayContainFields(CharSequence line) {
+        for (String quotedLeafName : quotedLeafNames) {
+            if (contains(line, quotedLeafName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return false if the line is not a JSON object
+     */
+    boolean scan(CharSequence line) {
+        reset();
+        int position = skipWhitespace(line, 0);
+        if (position >= line.length() || line.charAt(position) != '{') {
+            return false;
+        }
+        if (parseObject(line, position + 1, 0) == MALFORMED) {
+            reset();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the value of the field at the given index (in the order passed to the constructor), or null if the
+     * last scanned line does not have that field
+     */
+    CharSequence getValue(int field) {
+        return found[field] ? values[field] : null;
+    }
+
+    private void reset() {
+        for (int i = 0; i < found.length; i++) {
+            found[i] = false;
+            values[i].setLength(0);
+        }
+        foundCount = 0;
+    }
+
+    private int parseObject(CharSequence line, int position, int depth) {
+        position = skipWhitespace(line, position);
+        if (position < line.length() && line.charAt(position) == '}') {
+            return position + 1;
+        }
+        while (position < line.length()) {
+            if (line.charAt(position) != '"') {
+                return MALFORMED;
+            }
+            int keyStart = position + 1;
+            int keyEnd = skipString(line, position) - 1;
+            if (keyEnd < 0) {
+                return MALFORMED;
+            }
+            position = skipWhitespace(line, keyEnd + 1);
+            if (position >= line.length() || line.charAt(position) != ':') {
+                return MALFORMED;
+            }
+            position = skipWhitespace(line, position + 1);
+            if (depth < maxDepth) {
+                keyStarts[depth] = keyStart;
+                keyEnds[depth] = keyEnd;
+                position = parseValue(line, position, depth + 1);
+            } else {
+                position = skipValue(line, position);
+            }
+            if (position < 0) {
+                return position;
+            }
+            position = skipWhitespace(line, position);
+            if (position >= line.length()) {
+                return MALFORMED;
+            }
+            char c = line.charAt(position);
+            if (c == '}') {
+                return position + 1;
+            }
+            if (c != ',') {
+                return MALFORMED;
+            }
+            position = skipWhitespace(line, position + 1);
+        }
+        return MALFORMED;
+    }
+
+    // parses the value of the key path held in keyStarts/keyEnds[0 .. depth - 1]
+    private int parseValue(CharSequence line, int position, int depth) {
+        int field = findField(line, depth);
+        if (field >= 0) {
+            int end = skipValue(line, position);
+            if (end < 0) {
+                return end;
+            }
+            if (line.charAt(position) == '"') {
+                unescape(line, position + 1, end - 1, values[field]);
+            } else {
+                values[field].append(line, position, end);
+            }
+            found[field] = true;
+            foundCount++;
+            return foundCount == found.length ? DONE : end;
+        }
+        if (position < line.length() && line.charAt(position) == '{' && isPrefixOfAnyField(line, depth)) {
+            return parseObject(line, position + 1, depth);
+        }
+        return skipValue(line, position);
+    }
+
+    private int findField(CharSequence line, int depth) {
+        for (int i = 0; i < fieldPaths.length; i++) {
+            if (!found[i] && fieldPaths[i].length == depth && keysMatch(line, fieldPaths[i], depth)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isPrefixOfAnyField(CharSequence line, int depth) {
+        for (int i = 0; i < fieldPaths.length; i++) {
+            if (!found[i] && fieldPaths[i].length > depth && keysMatch(line, fieldPaths[i], depth)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean keysMatch(CharSequence line, String[] path, int depth) {
+        for (int d = 0; d < depth; d++) {
+            String name = path[d];
+            int start = keyStarts[d];
+            if (keyEnds[d] - start != name.length()) {
+                return false;
+            }
+            for (int i = 0; i < name.length(); i++) {
+                if (line.charAt(start + i) != name.charAt(i)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean contains(CharSequence line, String text) {
+        int last = line.length() - text.length();
+        char first = text.charAt(0);
+        for (int i = 0; i <= last; i++) {
+            if (line.charAt(i) != first) {
+                continue;
+            }
+            int j = 1;
+            while (j < text.length() && line.charAt(i + j) == text.charAt(j)) {
+                j++;
+            }
+            if (j == text.length()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int skipValue(CharSequence line, int position) {
+        if (position >= line.length()) {
+            return MALFORMED;
+        }
+        char c = line.charAt(position);
+        if (c == '"') {
+            return skipString(line, position);
+        }
+        if (c == '{' || c == '[') {
+            return skipContainer(line, position);
+        }
+        int end = position;
+        while (end < line.length()) {
+            c = line.charAt(end);
+            if (c == ',' || c == '}' || c == ']' || Character.isWhitespace(c)) {
+                break;
+            }
+            end++;
+        }
+        return end == position ? MALFORMED : end;
+    }
+
+    // returns the position after the closing quote
+    private static int skipString(CharSequence line, int position) {
+        for (int i = position + 1; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '"') {
+                return i + 1;
+            }
+        }
+        return MALFORMED;
+    }
+
+    private static int skipContainer(CharSequence line, int position) {
+        int depth = 0;
+        for (int i = position; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                i = skipString(line, i);
+                if (i < 0) {
+                    return MALFORMED;
+                }
+                i--;
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                depth--;
+                if (depth == 0) {
+                    return i + 1;
+                }
+            }
+        }
+        return MALFORMED;
+    }
+
+    private static int skipWhitespace(CharSequence line, int position) {
+        while (position < line.length() && Character.isWhitespace(line.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private static void unescape(CharSequence line, int start, int end, StringBuilder value) {
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            if (c != '\\' || i + 1 >= end) {
+                value.append(c);
+                continue;
+            }
+            char escaped = line.charAt(++i);
+            switch (escaped) {
+                case 'n':
+                    value.append('\n');
+                    break;
+                case 'r':
+                    value.append('\r');
+                    break;
+                case 't':
+                    value.append('\t');
+                    break;
+                case 'b':
+                    value.append('\b');
+                    break;
+                case 'f':
+                    value.append('\f');
+                    break;
+                case 'u':
+                    if (i + 4 < end) {
+                        value.append((char) parseHex(line, i + 1, i + 5));
+                        i += 4;
+                    }
+                    break;
+                default:
+                    value.append(escaped);
+            }
+        }
+    }
+
+    private static int parseHex(CharSequence line, int start, int end) {
+        int result = 0;
+        for (int i = start; i < end; i++) {
+            result = (result << 4) + Character.digit(line.charAt(i), 16);
+        }
+        return result;
+    }
+}
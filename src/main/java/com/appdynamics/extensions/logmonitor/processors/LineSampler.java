@@ -0,0 +1,88 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.processors;
+
+import com.appdynamics.extensions.logmonitor.config.Sampling;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides which lines of a sampled log are matched, and scales the occurrences found in the sampled lines up to all
+ * lines read. Lines are chosen by their position in the file, so that a line read again in a later scan gets the
+ * same decision, except in random mode.
+ */
+class LineSampler {
+    private static final double Z_95 = 1.96;
+    private static final double UNIT = 1.0 / (1L << 53);
+
+    private final String mode;
+    private final double rate;
+    private final long blockBytes;
+    private final long blockInterval;
+
+    LineSampler(Sampling sampling) {
+        this.mode = sampling.getMode();
+        this.rate = sampling.getRate();
+        this.blockBytes = sampling.getBlockBytes();
+        this.blockInterval = Math.max(1, Math.round(1 / rate));
+    }
+
+    /**
+     * @param lineStart the position of the first byte of the line
+     * @return true if the line is to be matched
+     */
+    boolean sample(long lineStart) {
+        if (Sampling.RANDOM_MODE.equals(mode)) {
+            return ThreadLocalRandom.current().nextDouble() < rate;
+        }
+        if (Sampling.BLOCKS_MODE.equals(mode)) {
+            return (lineStart / blockBytes) % blockInterval == 0;
+        }
+        return (mix(lineStart) >>> 11) * UNIT < rate;
+    }
+
+    /**
+     * @param occurrences the occurrences found in the sampled lines
+     * @return the occurrences expected in all lines
+     */
+    static long estimate(long occurrences, long sampledLines, long lines) {
+        if (sampledLines == 0) {
+            return 0;
+        }
+        return Math.round((double) occurrences * lines / sampledLines);
+    }
+
+    /**
+     * Half-width of the 95% confidence interval of {@link #estimate}, treating the sampled lines as a simple random
+     * sample of the lines read. For block sampling, where matches cluster within blocks, it is a lower bound.
+     *
+     * @param squaredOccurrences the sum over the sampled lines of the squared occurrences per line
+     */
+    static long margin(long occurrences, long squaredOccurrences, long sampledLines, long lines) {
+        if (sampledLines >= lines) {
+            return 0;
+        }
+        if (sampledLines < 2) {
+            // nothing is known about the unsampled lines
+            return lines;
+        }
+        double mean = (double) occurrences / sampledLines;
+        double variance = Math.max(0, (squaredOccurrences - mean * occurrences) / (sampledLines - 1));
+        double finitePopulation = 1 - (double) sampledLines / lines;
+        return Math.round(Z_95 * lines * Math.sqrt(finitePopulation * variance / sampledLines));
+    }
+
+    // finalizer of SplitMix64, spreads neighbouring positions over the whole range
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
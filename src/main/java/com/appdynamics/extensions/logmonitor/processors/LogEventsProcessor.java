@@ -8,16 +8,15 @@
 
 package com.appdynamics.extensions.logmonitor.processors;
 
-import com.appdynamics.extensions.eventsservice.EventsServiceDataManager;
 import com.appdynamics.extensions.logging.ExtensionsLoggerFactory;
 import com.appdynamics.extensions.logmonitor.LogEvent;
+import com.appdynamics.extensions.logmonitor.LogEventSink;
 import com.appdynamics.extensions.logmonitor.config.Log;
 import com.appdynamics.extensions.logmonitor.config.SearchPattern;
+import com.appdynamics.extensions.logmonitor.metrics.LogMetrics;
 import org.bitbucket.kienerj.OptimizedRandomAccessFile;
 import org.slf4j.Logger;
 
-import java.io.File;
-
 import static com.appdynamics.extensions.logmonitor.util.Constants.SCHEMA_NAME;
 
 /**
@@ -26,20 +25,38 @@ import static com.appdynamics.extensions.logmonitor.util.Constants.SCHEMA_NAME;
 
 class LogEventsProcessor {
     private static final Logger LOGGER = ExtensionsLoggerFactory.getLogger(LogEventsProcessor.class);
-    private EventsServiceDataManager eventsServiceDataManager;
+    private LogEventSink eventSink;
     private int offset;
     private Log log;
+    private LogMetrics logMetrics;
+    private long truncatedEvents;
+
+    LogEventsProcessor(LogEventSink eventSink, int offset, Log log) {
+        this(eventSink, offset, log, new LogMetrics());
+    }
 
-    LogEventsProcessor(EventsServiceDataManager eventsServiceDataManager, int offset, Log log) {
-        this.eventsServiceDataManager = eventsServiceDataManager;
+    /**
+     * @param logMetrics the metrics of the run, which carry the limits on the text captured per event and per run
+     */
+    LogEventsProcessor(LogEventSink eventSink, int offset, Log log, LogMetrics logMetrics) {
+        this.eventSink = eventSink;
         this.offset = offset;
         this.log = log;
+        this.logMetrics = logMetrics;
         createLogSchema();
     }
 
-    LogEvent processLogEvent(SearchPattern searchPattern, OptimizedRandomAccessFile currentFile, String currentMatch) {
+    /**
+     * @return the number of events created so far whose text was cut to the configured limits
+     */
+    long getTruncatedEvents() {
+        return truncatedEvents;
+    }
+
+    LogEvent processLogEvent(ScanContext scanContext, SearchPattern searchPattern,
+                             OptimizedRandomAccessFile currentFile, CharSequence currentMatch) {
         try {
-            return createLogEvent(searchPattern, currentFile, currentMatch, offset);
+            return createLogEvent(scanContext, searchPattern, currentFile, currentMatch, offset);
         } catch (Exception ex) {
             LOGGER.error("The events service data manager failed to initialize. Check your config.yml and retry.");
         }
@@ -48,34 +65,45 @@ class LogEventsProcessor {
 
     private void createLogSchema() {
         try {
-            if (eventsServiceDataManager.retrieveSchema(SCHEMA_NAME).contains("logDisplayName")) {
-                LOGGER.info("Schema: {} already exists", SCHEMA_NAME);
-            } else {
-                LOGGER.info("Creating Schema {}", SCHEMA_NAME);
-                eventsServiceDataManager.createSchema(SCHEMA_NAME,
-                        org.apache.commons.io.FileUtils.readFileToString(new File("monitors/LogMonitor/logSchema.json")));
-            }
+            eventSink.prepareSchema(SCHEMA_NAME);
         } catch (Exception ex) {
             LOGGER.error("Error encountered while creating schema for log {}", log.getDisplayName(), ex.getStackTrace());
         }
     }
 
-    private LogEvent createLogEvent(SearchPattern searchPattern, OptimizedRandomAccessFile randomAccessFile,
-                                    String currentMatch, int offset) {
+    private LogEvent createLogEvent(ScanContext scanContext, SearchPattern searchPattern,
+                                    OptimizedRandomAccessFile randomAccessFile, CharSequence currentMatch, int offset) {
         try {
             LogEvent logEvent = new LogEvent();
             logEvent.setLogDisplayName(log.getDisplayName());
             logEvent.setSearchPattern(searchPattern.getDisplayName());
+            // the text is cut while it is copied, an offset line is never held past the limit. The file is read
+            // one char per byte, so lengths are bytes of the file
+            int maxBytes = logMetrics.getLogMatchMaxBytes();
+            StringBuilder sb = scanContext.getScratchBuffer();
+            long truncatedBytes = appendCapped(sb, currentMatch, maxBytes);
             if (offset > 0) {
-                StringBuilder sb = new StringBuilder(currentMatch);
                 long originalFilePointerPosition = randomAccessFile.getFilePointer();
                 for (int i = 0; i < offset; i++) {
-                    sb.append(randomAccessFile.readLine()).append('\n');
+                    long skippedBytes = randomAccessFile.appendLine(sb, maxBytes - sb.length());
+                    if (skippedBytes < 0) {
+                        break;
+                    }
+                    truncatedBytes += skippedBytes;
+                    truncatedBytes += appendCapped(sb, "\n", maxBytes);
                 }
-                currentMatch = sb.toString();
                 randomAccessFile.seek(originalFilePointerPosition);
             }
-            logEvent.setLogMatch(currentMatch);
+            long granted = logMetrics.reserveLogMatchBytes(sb.length());
+            if (granted < sb.length()) {
+                truncatedBytes += sb.length() - granted;
+                sb.setLength((int) granted);
+            }
+            if (truncatedBytes > 0) {
+                sb.append(" [truncated ").append(truncatedBytes).append(" bytes]");
+                truncatedEvents++;
+            }
+            logEvent.setLogMatch(sb.toString());
             logEvent.setSearchPattern(searchPattern.getPattern().pattern());
             return logEvent;
         } catch (Exception ex) {
@@ -84,4 +112,15 @@ class LogEventsProcessor {
         }
         return null;
     }
-}
\ No newline at end of file
+
+    // appends as much of the text as fits in maxBytes and returns the length of the part that did not fit
+    private static long appendCapped(StringBuilder sb, CharSequence text, int maxBytes) {
+        int room = Math.max(0, maxBytes - sb.length());
+        if (text.length() <= room) {
+            sb.append(text);
+            return 0;
+        }
+        sb.append(text, 0, room);
+        return text.length() - room;
+    }
+}
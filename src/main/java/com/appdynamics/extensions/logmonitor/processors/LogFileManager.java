@@ -9,27 +9,37 @@
 package com.appdynamics.extensions.logmonitor.processors;
 
 import com.appdynamics.extensions.conf.MonitorContextConfiguration;
-import com.appdynamics.extensions.eventsservice.EventsServiceDataManager;
 import com.appdynamics.extensions.executorservice.MonitorExecutorService;
 import com.appdynamics.extensions.logging.ExtensionsLoggerFactory;
+import com.appdynamics.extensions.logmonitor.LogEventSink;
 import com.appdynamics.extensions.logmonitor.config.FilePointer;
 import com.appdynamics.extensions.logmonitor.config.Log;
+import com.appdynamics.extensions.logmonitor.config.SearchString;
 import com.appdynamics.extensions.logmonitor.metrics.LogMetrics;
-import com.appdynamics.extensions.logmonitor.util.LogMonitorUtil;
+import com.appdynamics.extensions.logmonitor.metrics.ValueStatistics;
+import com.appdynamics.extensions.logmonitor.processors.DirectorySnapshot.FileEntry;
+import com.appdynamics.extensions.logmonitor.processors.ScanScheduler.ScanBudget;
+import com.appdynamics.extensions.metrics.Metric;
 import com.google.common.collect.Lists;
-import org.apache.commons.io.filefilter.WildcardFileFilter;
 import org.apache.commons.lang3.StringUtils;
-import org.bitbucket.kienerj.OptimizedRandomAccessFile;
 import org.slf4j.Logger;
 
 import java.io.File;
-import java.io.FileFilter;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
+import static com.appdynamics.extensions.logmonitor.util.Constants.FILESIZE_METRIC_NAME;
+import static com.appdynamics.extensions.logmonitor.util.Constants.METRIC_SEPARATOR;
+import static com.appdynamics.extensions.logmonitor.util.Constants.OCCURRENCES;
+import static com.appdynamics.extensions.logmonitor.util.Constants.VALUE;
 import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.*;
 
 /**
@@ -39,15 +49,35 @@ import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.*;
 public class LogFileManager {
     private static final Logger LOGGER = ExtensionsLoggerFactory.getLogger(LogFileManager.class);
     private Log log;
+    private LogState logState;
+    private TimeBuckets timeBuckets;
+    private ScanBudget scanBudget;
+    private DirectorySnapshots directorySnapshots;
     private FilePointerProcessor filePointerProcessor;
     private MonitorContextConfiguration monitorContextConfiguration;
     private MonitorExecutorService executorService;
-    private EventsServiceDataManager eventsServiceDataManager;
+    private Executor scanExecutor;
+    private LogEventSink eventSink;
     private int offset;
+    private FileEntry sharedFile;
+    private String sharedDynamicLogPath;
 
-    public LogFileManager(FilePointerProcessor filePointerProcessor, Log log,
+    /**
+     * @param scanBudget         limits the bytes the log's files are read per run, or null if unlimited
+     * @param scanExecutor       runs the scans of the log's files, e.g. on virtual threads. If null, the scans run on
+     *                           the executor service of the monitor
+     * @param directorySnapshots the directory listings of the current run, shared by the logs of a directory
+     * @param eventSink          receives the events of the log, or null if no events are captured
+     */
+    public LogFileManager(FilePointerProcessor filePointerProcessor, Log log, LogState logState, ScanBudget scanBudget,
+                          Executor scanExecutor, DirectorySnapshots directorySnapshots, LogEventSink eventSink,
                           MonitorContextConfiguration monitorContextConfiguration) {
         this.log = log;
+        this.eventSink = eventSink;
+        this.directorySnapshots = directorySnapshots;
+        this.scanExecutor = scanExecutor;
+        this.logState = logState;
+        this.scanBudget = scanBudget;
         this.filePointerProcessor = filePointerProcessor;
         this.monitorContextConfiguration = monitorContextConfiguration;
         this.executorService = this.monitorContextConfiguration.getContext().getExecutorService();
@@ -56,50 +86,231 @@ public class LogFileManager {
     public LogMetrics processLogMetrics() throws Exception {
         LOGGER.info("Starting the metric collection process for log : {}", log.getDisplayName());
         String dirPath = resolveDirPath(log.getLogDirectory());
-        File file = getLogFile(dirPath);
-        LogMetrics logMetrics = new LogMetrics();
-        logMetrics.setMetricPrefix(monitorContextConfiguration.getMetricPrefix());
+        DirectorySnapshot directorySnapshot = directorySnapshots.getSnapshot(dirPath);
+        FileEntry logFile = getLogFile(directorySnapshot, dirPath);
+        File file = logFile == null ? null : logFile.getFile();
+        LogMetrics logMetrics = newLogMetrics();
+        String dynamicLogPath = getDynamicLogPath(dirPath);
 
-        if (file != null) {
+        if (file != null && isUnchanged(dynamicLogPath, logFile)) {
+            LOGGER.debug("File {} of log {} is unchanged since the last scan, skipping", file.getPath(),
+                    log.getDisplayName());
+            setUnchangedLogMetrics(logFile, logMetrics);
+        } else if (file != null) {
             try {
                 CountDownLatch latch;
-                String dynamicLogPath = dirPath + log.getLogName();
                 long currentTimeStampFromFilePointer = getCurrentTimeStampFromFilePointer(dynamicLogPath, file.getPath());
                 long currentFilePointerPosition = getCurrentFilePointerOffset(dynamicLogPath, file.getPath());
-                eventsServiceDataManager = evaluateEventsServiceConfig();
-                offset = (Integer) this.monitorContextConfiguration.getConfigYml().get("logMatchOffset");
-                if (hasLogRolledOver(dynamicLogPath, file.getPath(), file.length())) {
-                    List<File> filesToBeProcessed = getFilesToBeProcessedFromDirectory(currentTimeStampFromFilePointer, dirPath);
-                    latch = new CountDownLatch(filesToBeProcessed.size());
-                    processRolledOverLogs(filesToBeProcessed, currentTimeStampFromFilePointer, currentFilePointerPosition,
-                            logMetrics, latch);
+                initializeScan();
+                if (hasLogRolledOver(dynamicLogPath, file.getPath(), logFile.getSize())) {
+                    List<FileEntry> filesToBeProcessed = getFilesToBeProcessedFromDirectory(
+                            currentTimeStampFromFilePointer, directorySnapshot);
+                    processRolledOverLogs(filesToBeProcessed, dynamicLogPath, currentTimeStampFromFilePointer,
+                            currentFilePointerPosition, logMetrics);
+                    latch = new CountDownLatch(0);
                 } else {
                     latch = new CountDownLatch(1);
                     processLogsWithoutRollover(file, latch, currentFilePointerPosition, logMetrics);
                 }
                 latch.await();
-                setNewFilePointer(dynamicLogPath, logMetrics.getFilePointers());
+                completeLogMetrics(dynamicLogPath, logFile, logMetrics);
             } catch (Exception ex) {
                 LOGGER.error("File I/O issue while processing : " + file.getAbsolutePath(), ex);
             }
         }
+        if (scanBudget != null) {
+            scanBudget.release();
+        }
+        return logMetrics;
+    }
+
+    /**
+     * Processes logs whose current file is the same file. The logs that continue reading the file where they left
+     * off are scanned together, reading the file once and passing each line to the search strings of every log. Each
+     * log keeps its own metrics and its own file pointer, keyed by its display name, directory and log name. Logs that
+     * rolled over, are re-encoded or have a scan budget are processed on their own.
+     *
+     * @return the metrics of each log, in the order of the given managers
+     */
+    public static List<LogMetrics> processLogMetrics(List<LogFileManager> logFileManagers) throws Exception {
+        LogMetrics[] logMetrics = new LogMetrics[logFileManagers.size()];
+        List<LogFileManager> sharedScanManagers = Lists.newArrayList();
+        List<LogLineProcessor> lineProcessors = Lists.newArrayList();
+        Object sharedFileIdentity = null;
+        for (int i = 0; i < logFileManagers.size(); i++) {
+            LogFileManager logFileManager = logFileManagers.get(i);
+            LogMetrics sharedScanMetrics = logFileManager.newLogMetrics();
+            LogLineProcessor lineProcessor = logFileManager.prepareSharedScan(sharedScanMetrics);
+            if (lineProcessor != null && (sharedFileIdentity == null ||
+                    sharedFileIdentity.equals(logFileManager.sharedFile.getIdentity()))) {
+                sharedFileIdentity = logFileManager.sharedFile.getIdentity();
+                sharedScanManagers.add(logFileManager);
+                lineProcessors.add(lineProcessor);
+                logMetrics[i] = sharedScanMetrics;
+            }
+        }
+        CountDownLatch latch = new CountDownLatch(sharedScanManagers.isEmpty() ? 0 : 1);
+        if (!sharedScanManagers.isEmpty()) {
+            LogFileManager first = sharedScanManagers.get(0);
+            LOGGER.info("Reading {} once for {} logs", first.sharedFile.getFile().getPath(), lineProcessors.size());
+            first.execute(new LogMetricsProcessor(first.sharedFile.getFile(), null, latch, lineProcessors));
+        }
+        for (int i = 0; i < logFileManagers.size(); i++) {
+            if (logMetrics[i] == null) {
+                LogFileManager logFileManager = logFileManagers.get(i);
+                try {
+                    logMetrics[i] = logFileManager.processLogMetrics();
+                } catch (Exception ex) {
+                    LOGGER.error("Log monitoring failed for Log: " + logFileManager.log.getDisplayName(), ex);
+                    logMetrics[i] = logFileManager.newLogMetrics();
+                }
+            }
+        }
+        latch.await();
+        for (LogFileManager logFileManager : sharedScanManagers) {
+            LogMetrics sharedScanMetrics = logMetrics[logFileManagers.indexOf(logFileManager)];
+            try {
+                logFileManager.completeLogMetrics(logFileManager.sharedDynamicLogPath, logFileManager.sharedFile,
+                        sharedScanMetrics);
+            } catch (Exception ex) {
+                LOGGER.error("Error while completing the metrics of log : " + logFileManager.log.getDisplayName(), ex);
+            }
+        }
+        return Arrays.asList(logMetrics);
+    }
+
+    // returns null if the log has to be processed on its own
+    private LogLineProcessor prepareSharedScan(LogMetrics logMetrics) {
+        if (scanBudget != null || !StringUtils.isBlank(log.getEncoding())) {
+            return null;
+        }
+        try {
+            String dirPath = resolveDirPath(log.getLogDirectory());
+            FileEntry logFile = getLogFile(directorySnapshots.getSnapshot(dirPath), dirPath);
+            if (logFile == null) {
+                return null;
+            }
+            String dynamicLogPath = getDynamicLogPath(dirPath);
+            String filePath = logFile.getFile().getPath();
+            if (hasLogRolledOver(dynamicLogPath, filePath, logFile.getSize()) ||
+                    isUnchanged(dynamicLogPath, logFile)) {
+                return null;
+            }
+            LOGGER.info("Starting the metric collection process for log : {}", log.getDisplayName());
+            initializeScan();
+            sharedFile = logFile;
+            sharedDynamicLogPath = dynamicLogPath;
+            return new LogLineProcessor(log, getCurrentFilePointerOffset(dynamicLogPath, filePath), timeBuckets,
+                    logMetrics, eventSink, offset);
+        } catch (Exception ex) {
+            LOGGER.debug("Log {} is processed on its own", log.getDisplayName(), ex);
+            return null;
+        }
+    }
+
+    private LogMetrics newLogMetrics() {
+        LogMetrics logMetrics = new LogMetrics();
+        logMetrics.setMetricPrefix(monitorContextConfiguration.getMetricPrefix());
+        Map<String, ?> configYml = monitorContextConfiguration.getConfigYml();
+        Object logMatchMaxBytes = configYml.get("logMatchMaxBytes");
+        if (logMatchMaxBytes instanceof Number && ((Number) logMatchMaxBytes).intValue() > 0) {
+            logMetrics.setLogMatchMaxBytes(((Number) logMatchMaxBytes).intValue());
+        }
+        if (Boolean.TRUE.equals(configYml.get("offHeapCounters"))) {
+            logMetrics.setCounterStore(logState.getCounterStore());
+        }
+        Object logMatchMaxBytesPerRun = configYml.get("logMatchMaxBytesPerRun");
+        if (logMatchMaxBytesPerRun instanceof Number && ((Number) logMatchMaxBytesPerRun).longValue() > 0) {
+            logMetrics.setLogMatchMaxBytesPerRun(((Number) logMatchMaxBytesPerRun).longValue());
+        }
         return logMetrics;
     }
 
-    private void processRolledOverLogs(List<File> filesToBeProcessed, long currentTimeStampFromFilePointer,
-                                       long currentFilePointerPosition, LogMetrics logMetrics, CountDownLatch latch) throws Exception {
-        for (File currentFile : filesToBeProcessed) {
-            if (!StringUtils.isBlank(log.getEncoding())) {
+    private void initializeScan() {
+        offset = (Integer) this.monitorContextConfiguration.getConfigYml().get("logMatchOffset");
+        timeBuckets = StringUtils.isBlank(log.getTimestampFormat()) ? null : logState.getTimeBuckets(log);
+    }
+
+    private void completeLogMetrics(String dynamicLogPath, FileEntry logFile, LogMetrics logMetrics) {
+        setNewFilePointer(dynamicLogPath, logMetrics.getFilePointers());
+        // the attributes listed before the scan: a file written to during the scan is scanned again next run
+        logState.setLastScanned(logFile.getFile().getPath(), logFile.getLastModified());
+        if (timeBuckets != null) {
+            setTimeBucketedOccurrences(logMetrics);
+        }
+        setValueMetrics(logMetrics);
+    }
+
+    // true if the file pointer is at the end of the same file, which was not modified since it was last scanned
+    private boolean isUnchanged(String dynamicLogPath, FileEntry logFile) {
+        String filePath = logFile.getFile().getPath();
+        FilePointer filePointer = filePointerProcessor.getFilePointer(dynamicLogPath, filePath);
+        return filePath.equals(filePointer.getFilename()) &&
+                filePointer.getLastReadPosition() == logFile.getSize() &&
+                filePointer.getInode() == logFile.getInode() &&
+                logState.isLastScanned(filePath, logFile.getLastModified());
+    }
+
+    // publishes what a scan reading no new line would, without opening the file
+    private void setUnchangedLogMetrics(FileEntry logFile, LogMetrics logMetrics) {
+        for (String metricName : logState.getZeroMetricNames(log)) {
+            logMetrics.add(metricName, new Metric(metricName, "0",
+                    logMetrics.getMetricPrefix() + METRIC_SEPARATOR + metricName));
+        }
+        String fileSizeMetricName = getLogNamePrefix(log) + FILESIZE_METRIC_NAME;
+        logMetrics.add(fileSizeMetricName, new Metric(fileSizeMetricName, String.valueOf(logFile.getSize()),
+                logMetrics.getMetricPrefix() + METRIC_SEPARATOR + fileSizeMetricName));
+        if (!StringUtils.isBlank(log.getTimestampFormat())) {
+            timeBuckets = logState.getTimeBuckets(log);
+            setTimeBucketedOccurrences(logMetrics);
+        }
+    }
+
+    // files are scanned one at a time, oldest first, while the head of the next one is prefetched. The file pointer
+    // advances after each file, so that a restart during a rollover resumes after the last finished file. With a scan
+    // budget the scan stops at the first file it could not finish, so that the pointer never skips the unread part
+    // of an older file
+    private void processRolledOverLogs(List<FileEntry> filesToBeProcessed, String dynamicLogPath,
+                                       long currentTimeStampFromFilePointer, long currentFilePointerPosition,
+                                       LogMetrics logMetrics) throws Exception {
+        List<FileEntry> sortedFiles = Lists.newArrayList(filesToBeProcessed);
+        Collections.sort(sortedFiles, new Comparator<FileEntry>() {
+            public int compare(FileEntry file1, FileEntry file2) {
+                return Long.compare(file1.getCreationTime(), file2.getCreationTime());
+            }
+        });
+        boolean encoded = !StringUtils.isBlank(log.getEncoding());
+        for (int i = 0; i < sortedFiles.size(); i++) {
+            FileEntry fileEntry = sortedFiles.get(i);
+            File currentFile = fileEntry.getFile();
+            if (encoded) {
                 handleFileEncoding(currentFile);
             }
-            OptimizedRandomAccessFile randomAccessFile = new OptimizedRandomAccessFile(currentFile, "r");
-            if (getCurrentFileCreationTimeStamp(currentFile) == currentTimeStampFromFilePointer) {
-                randomAccessFile.seek(currentFilePointerPosition); //found the oldest file, process from CFP
-            } else {
-                randomAccessFile.seek(0);
+            long startPosition = 0;
+            if (fileEntry.getCreationTime() == currentTimeStampFromFilePointer) {
+                startPosition = currentFilePointerPosition; //found the oldest file, process from CFP
+            }
+            boolean lastFile = i == sortedFiles.size() - 1;
+            CountDownLatch latch = new CountDownLatch(1);
+            LogMetricsProcessor logMetricsProcessor = new LogMetricsProcessor(currentFile, startPosition, log,
+                    timeBuckets, scanBudget, latch, logMetrics, eventSink, offset);
+            logMetricsProcessor.setRolledOver(!lastFile);
+            execute(logMetricsProcessor);
+            // an encoded file is rewritten before its scan, reading it ahead would be wasted
+            if (!lastFile && !encoded) {
+                execute("RolloverPrefetch", new RolloverPrefetch(sortedFiles.get(i + 1).getFile()));
+            }
+            latch.await();
+            if (logMetricsProcessor.isBudgetExhausted()) {
+                LOGGER.info("Scan budget used up for log {}, resuming from {} in the next run", log.getDisplayName(),
+                        currentFile.getPath());
+                break;
+            }
+            // the pointer of the last file is set once the metrics are complete
+            if (!lastFile && !logMetrics.getFilePointers().isEmpty()) {
+                setNewFilePointer(dynamicLogPath, logMetrics.getFilePointers());
+                filePointerProcessor.updateFilePointerFile();
             }
-            executorService.execute("LogMetricsProcessor", new LogMetricsProcessor(randomAccessFile, log, latch,
-                    logMetrics, currentFile, eventsServiceDataManager, offset));
         }
     }
 
@@ -108,29 +319,75 @@ public class LogFileManager {
         if (!StringUtils.isBlank(log.getEncoding())) {
             handleFileEncoding(file);
         }
-        OptimizedRandomAccessFile randomAccessFile = new OptimizedRandomAccessFile(file, "r");
-        randomAccessFile.seek(currentFilePointerPosition);
-        executorService.execute("LogMetricsProcessor", new LogMetricsProcessor(randomAccessFile, log, latch, logMetrics,
-                file, eventsServiceDataManager, offset));
+        execute(new LogMetricsProcessor(file, currentFilePointerPosition, log, timeBuckets, scanBudget, latch,
+                logMetrics, eventSink, offset));
+    }
+
+    private void execute(LogMetricsProcessor logMetricsProcessor) {
+        execute("LogMetricsProcessor", logMetricsProcessor);
     }
 
+    private void execute(String taskName, Runnable task) {
+        if (scanExecutor != null) {
+            scanExecutor.execute(task);
+        } else {
+            executorService.execute(taskName, task);
+        }
+    }
+
+    // files are scanned in order, the pointer added last is the one of the newest file read
     private void setNewFilePointer(String dynamicLogPath, CopyOnWriteArrayList<FilePointer> filePointers) {
-        FilePointer latestFilePointer = LogMonitorUtil.getLatestFilePointer(filePointers);
+        FilePointer latestFilePointer = filePointers.get(filePointers.size() - 1);
         LOGGER.debug("Updating File Pointer with the most recently processed log: {}, pointing to file: {} with the " +
                         "last read position: {} and a creation time stamp of: {}", dynamicLogPath,
                 latestFilePointer.getFilename(), latestFilePointer.getLastReadPosition(),
                 latestFilePointer.getFileCreationTime());
         filePointerProcessor.updateFilePointer(dynamicLogPath, latestFilePointer.getFilename(),
-                latestFilePointer.getLastReadPosition(), latestFilePointer.getFileCreationTime());
+                latestFilePointer.getLastReadPosition(), latestFilePointer.getFileCreationTime(),
+                latestFilePointer.getInode());
     }
 
-    private String resolveDirPath(String confDirPath) {
-        String resolvedPath = resolvePath(confDirPath);
-        if (!resolvedPath.endsWith(File.separator)) {
-            resolvedPath = resolvedPath + File.separator;
+    // publishes the oldest closed minute of log time instead of the matches found during this run
+    private void setTimeBucketedOccurrences(LogMetrics logMetrics) {
+        long[] minuteOccurrences = timeBuckets.pollClosed(TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis()));
+        String searchStringPrefix = getSearchStringPrefix(log);
+        List<SearchString> searchStrings = log.getSearchStrings();
+        for (int i = 0; i < searchStrings.size(); i++) {
+            String metricName = searchStringPrefix + searchStrings.get(i).getDisplayName() + METRIC_SEPARATOR +
+                    OCCURRENCES;
+            long value = minuteOccurrences == null ? 0 : minuteOccurrences[i];
+            logMetrics.add(metricName, new Metric(metricName, String.valueOf(value),
+                    logMetrics.getMetricPrefix() + METRIC_SEPARATOR + metricName));
         }
+    }
 
-        return resolvedPath;
+    private void setValueMetrics(LogMetrics logMetrics) {
+        for (Map.Entry<String, ValueStatistics> entry : logMetrics.getValueStatistics().entrySet()) {
+            String valuePrefix = entry.getKey() + VALUE + METRIC_SEPARATOR;
+            ValueStatistics statistics = entry.getValue();
+            addValueMetric(logMetrics, valuePrefix + "Count", statistics.getCount());
+            if (statistics.getCount() > 0) {
+                addValueMetric(logMetrics, valuePrefix + "Sum", statistics.getSum());
+                addValueMetric(logMetrics, valuePrefix + "Min", statistics.getMin());
+                addValueMetric(logMetrics, valuePrefix + "Max", statistics.getMax());
+                addValueMetric(logMetrics, valuePrefix + "P50", statistics.getPercentile(50));
+                addValueMetric(logMetrics, valuePrefix + "P95", statistics.getPercentile(95));
+                addValueMetric(logMetrics, valuePrefix + "P99", statistics.getPercentile(99));
+            }
+        }
+    }
+
+    // metric values are integers, fractions are rounded
+    private void addValueMetric(LogMetrics logMetrics, String metricName, double value) {
+        logMetrics.add(metricName, new Metric(metricName, String.valueOf(Math.round(value)),
+                logMetrics.getMetricPrefix() + METRIC_SEPARATOR + metricName));
+    }
+
+    // the key of the file pointer of the log, taking over the pointer of an earlier version
+    private String getDynamicLogPath(String dirPath) {
+        String dynamicLogPath = getFilePointerKey(log, dirPath);
+        filePointerProcessor.migrateFilePointer(dirPath + log.getLogName(), dynamicLogPath);
+        return dynamicLogPath;
     }
 
     private long getCurrentTimeStampFromFilePointer(String dynamicLogPath, String actualLogPath) {
@@ -138,65 +395,30 @@ public class LogFileManager {
         return filePointer.getFileCreationTime();
     }
 
-    private List<File> getFilesToBeProcessedFromDirectory(long currentTimeStampFromFilePointer, String path)
+    private List<FileEntry> getFilesToBeProcessedFromDirectory(long currentTimeStampFromFilePointer,
+                                                               DirectorySnapshot directorySnapshot)
             throws IOException {
-        List<File> filesToBeProcessed = Lists.newArrayList();
-        File directory = new File(path);
-
-        if (directory.isDirectory()) {
-            FileFilter fileFilter = new WildcardFileFilter(log.getLogName());
-            File[] files = directory.listFiles(fileFilter);
-
-            if (files != null && files.length > 0) {
-                for (File file : files) {
-                    long currentFileCreationTime = getCurrentFileCreationTimeStamp(file);
-                    if (currentFileCreationTime >= currentTimeStampFromFilePointer) {
-                        filesToBeProcessed.add(file);
-                    }
-                }
+        List<FileEntry> filesToBeProcessed = Lists.newArrayList();
+        for (FileEntry fileEntry : directorySnapshot.getFiles(log.getLogName())) {
+            if (fileEntry.getCreationTime() >= currentTimeStampFromFilePointer) {
+                filesToBeProcessed.add(fileEntry);
             }
-        } else {
-            throw new FileNotFoundException(
-                    String.format("Directory [%s] not found. Ensure it is a directory.", path));
         }
         return filesToBeProcessed;
     }
 
-    private File getLogFile(String dirPath) throws Exception {
-        File directory = new File(dirPath);
-        File logFile;
-
-        if (directory.isDirectory()) {
-            FileFilter fileFilter = new WildcardFileFilter(log.getLogName());
-            File[] files = directory.listFiles(fileFilter);
-            if (files != null && files.length > 0) {
-                logFile = getLatestFile(files);
-                if (!logFile.canRead()) {
-                    throw new IOException(String.format("Unable to read file [%s]", logFile.getPath()));
-                }
-            } else {
-                LOGGER.info("Unable to find any file with name {} in {}. Skipping", log.getLogName(), dirPath);
-                logFile = null;
+    private FileEntry getLogFile(DirectorySnapshot directorySnapshot, String dirPath) throws Exception {
+        FileEntry logFile = directorySnapshot.getLatestFile(log.getLogName());
+        if (logFile != null) {
+            if (!logFile.getFile().canRead()) {
+                throw new IOException(String.format("Unable to read file [%s]", logFile.getFile().getPath()));
             }
         } else {
-            throw new FileNotFoundException(String.format("Directory [%s] not found. Ensure that it's a directory", dirPath));
+            LOGGER.info("Unable to find any file with name {} in {}. Skipping", log.getLogName(), dirPath);
         }
         return logFile;
     }
 
-    private File getLatestFile(File[] files) {
-        File latestFile = null;
-        long lastModified = Long.MIN_VALUE;
-
-        for (File file : files) {
-            if (file.lastModified() > lastModified) {
-                latestFile = file;
-                lastModified = file.lastModified();
-            }
-        }
-        return latestFile;
-    }
-
     private boolean isLogRotated(long fileSize, long startPosition) {
         return fileSize < startPosition;
     }
@@ -208,7 +430,7 @@ public class LogFileManager {
     private boolean hasLogRolledOver(String dynamicLogPath, String actualLogPath, long fileSize) {
         FilePointer filePointer =
                 filePointerProcessor.getFilePointer(dynamicLogPath, actualLogPath);
-        long currentPosition = filePointer.getLastReadPosition().get();
+        long currentPosition = filePointer.getLastReadPosition();
         if (isFilenameChanged(filePointer.getFilename(), actualLogPath) || isLogRotated(fileSize, currentPosition)) {
             LOGGER.debug("File: {} has either changed or rotated, resetting position to 0", filePointer.getFilename());
             return true;
@@ -217,18 +439,11 @@ public class LogFileManager {
     }
 
     private long getCurrentFilePointerOffset(String dynamicLogPath, String actualLogPath) {
-        return filePointerProcessor.getFilePointer(dynamicLogPath, actualLogPath).getLastReadPosition().get();
+        return filePointerProcessor.getFilePointer(dynamicLogPath, actualLogPath).getLastReadPosition();
     }
 
     private void handleFileEncoding(File file) throws Exception {
         LOGGER.debug("Converting current file: {} to UTF-8 encoding for further processing", file.getName());
         convertToUTF8Encoding(file, log.getEncoding());
     }
-
-    private EventsServiceDataManager evaluateEventsServiceConfig() {
-        if (this.monitorContextConfiguration.getConfigYml().get("sendDataToEventsService").equals(true)) {
-            return monitorContextConfiguration.getContext().getEventsServiceDataManager();
-        }
-        return null;
-    }
 }
\ No newline at end of file
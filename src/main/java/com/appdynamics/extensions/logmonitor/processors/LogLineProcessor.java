@@ -0,0 +1,375 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.processors;
+
+import com.appdynamics.extensions.logging.ExtensionsLoggerFactory;
+import com.appdynamics.extensions.logmonitor.LogEventSink;
+import com.appdynamics.extensions.logmonitor.config.FilePointer;
+import com.appdynamics.extensions.logmonitor.config.Log;
+import com.appdynamics.extensions.logmonitor.config.SearchPattern;
+import com.appdynamics.extensions.logmonitor.metrics.LogMetrics;
+import com.appdynamics.extensions.logmonitor.metrics.ValueStatistics;
+import com.appdynamics.extensions.metrics.Metric;
+import com.appdynamics.extensions.util.MetricPathUtils;
+import org.apache.commons.lang3.text.WordUtils;
+import org.bitbucket.kienerj.OptimizedRandomAccessFile;
+import org.slf4j.Logger;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+
+import static com.appdynamics.extensions.logmonitor.processors.TimestampExtractor.NO_TIMESTAMP;
+import static com.appdynamics.extensions.logmonitor.util.Constants.*;
+import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.*;
+
+/**
+ * Matches the lines of a file against the search strings of one log and adds the results to the metrics of the
+ * log. The lines are fed by a {@link LogMetricsProcessor}, which can feed several line processors from a single
+ * read of a file, each one from its own start position. Not thread safe, used by the thread scanning the file.
+ */
+class LogLineProcessor {
+    private static final Logger LOGGER = ExtensionsLoggerFactory.getLogger(LogLineProcessor.class);
+    private Log log;
+    private long startPosition;
+    private TimeBuckets timeBuckets;
+    private List<SearchPattern> searchPatterns;
+    private ExactStringMatcher[] exactStringMatchers;
+    private String[] searchStringPrefixes;
+    private String[] occurrenceNames;
+    private String[] occurrencePaths;
+    private int[] occurrenceSlots;
+    private LogMetrics logMetrics;
+    private LogEventSink eventSink;
+    private LogEventsProcessor logEventsProcessor;
+    private OptimizedRandomAccessFile randomAccessFile;
+    private int offset;
+    private long[] occurrences;
+    private ValueStatistics[] valueStatistics;
+    private JsonLineScanner jsonLineScanner;
+    private int[] jsonFields;
+    private TimestampExtractor timestampExtractor;
+    private long[] minuteOccurrences;
+    private long currentMinute = NO_TIMESTAMP;
+    private MultilineAggregator multilineAggregator;
+    private LineSampler lineSampler;
+    private boolean lineSampled = true;
+    private long lines;
+    private long sampledLines;
+    private long[] squaredOccurrences;
+
+    LogLineProcessor(Log log, long startPosition, TimeBuckets timeBuckets, LogMetrics logMetrics,
+                     LogEventSink eventSink, int offset) {
+        this.log = log;
+        this.startPosition = startPosition;
+        this.timeBuckets = timeBuckets;
+        this.logMetrics = logMetrics;
+        this.searchPatterns = createPattern(this.log.getSearchStrings(), log.getMultiline() != null);
+        this.searchStringPrefixes = new String[searchPatterns.size()];
+        this.occurrenceNames = new String[searchPatterns.size()];
+        this.occurrencePaths = new String[searchPatterns.size()];
+        this.occurrenceSlots = new int[searchPatterns.size()];
+        this.exactStringMatchers = new ExactStringMatcher[searchPatterns.size()];
+        for (int i = 0; i < searchPatterns.size(); i++) {
+            // exact strings are found without the regex engine
+            String exactString = searchPatterns.get(i).getExactString();
+            if (exactString != null) {
+                exactStringMatchers[i] = new ExactStringMatcher(exactString, searchPatterns.get(i).getCaseSensitive());
+            }
+            searchStringPrefixes[i] = getSearchStringPrefix(log) + searchPatterns.get(i).getDisplayName() +
+                    METRIC_SEPARATOR;
+            // the names of the occurrence metrics are built once per run, and interned once per log
+            occurrenceNames[i] = searchStringPrefixes[i] + OCCURRENCES;
+            occurrencePaths[i] = logMetrics.getMetricPrefix() + METRIC_SEPARATOR + occurrenceNames[i];
+            occurrenceSlots[i] = logMetrics.counterSlot(occurrenceNames[i], occurrencePaths[i]);
+        }
+        this.eventSink = eventSink;
+        // multiline records already carry the lines following the match
+        this.offset = log.getMultiline() != null ? 0 : offset;
+        this.lineSampler = log.getSampling() == null ? null : new LineSampler(log.getSampling());
+    }
+
+    Log getLog() {
+        return log;
+    }
+
+    long getStartPosition() {
+        return startPosition;
+    }
+
+    void start(ScanContext scanContext, OptimizedRandomAccessFile randomAccessFile) {
+        this.randomAccessFile = randomAccessFile;
+        multilineAggregator = log.getMultiline() == null ? null :
+                new MultilineAggregator(log.getMultiline(), scanContext);
+        occurrences = new long[searchPatterns.size()];
+        if (lineSampler != null) {
+            squaredOccurrences = new long[searchPatterns.size()];
+            lines = 0;
+            sampledLines = 0;
+        }
+        valueStatistics = new ValueStatistics[searchPatterns.size()];
+        for (int i = 0; i < searchPatterns.size(); i++) {
+            if (searchPatterns.get(i).getValueGroup() != null) {
+                valueStatistics[i] = new ValueStatistics();
+            }
+        }
+        if (isJsonFormat(log)) {
+            initializeJsonLineScanner();
+        }
+        if (timeBuckets != null) {
+            timestampExtractor = new TimestampExtractor(log);
+            minuteOccurrences = new long[searchPatterns.size()];
+            currentMinute = timeBuckets.getLatestMinute();
+        }
+        if (eventSink != null) {
+            logEventsProcessor = new LogEventsProcessor(eventSink, offset, log, logMetrics);
+        }
+    }
+
+    /**
+     * Decides whether the line starting at the given position is matched. Called before the line is read, so that
+     * the reader can skip lines that no log samples.
+     *
+     * @return true if the next call of {@link #processLine} needs the text of the line
+     */
+    boolean sampleLine(long lineStart) {
+        lineSampled = lineSampler == null || lineSampler.sample(lineStart);
+        return lineSampled;
+    }
+
+    /**
+     * @param line      the text of the line, undefined if {@link #sampleLine} returned false for it
+     * @param lineStart the position of the first byte of the line
+     * @param lineEnd   the position after the line terminator
+     */
+    void processLine(ScanContext scanContext, CharSequence line, long lineStart, long lineEnd) {
+        if (lineEnd <= startPosition) {
+            return;
+        }
+        // a line this log was last read into is only read from where that scan stopped, as when the log is scanned
+        // on its own. Each char of the line is one byte of the file
+        if (lineStart < startPosition) {
+            line = line.subSequence((int) Math.min(startPosition - lineStart, line.length()), line.length());
+            lineStart = startPosition;
+        }
+        if (lineSampler != null) {
+            lines++;
+            if (!lineSampled) {
+                return;
+            }
+            sampledLines++;
+        }
+        if (multilineAggregator == null) {
+            processRecord(scanContext, line);
+        } else {
+            if (multilineAggregator.add(line, lineStart, lineEnd)) {
+                processRecord(scanContext, multilineAggregator.getCompletedRecord());
+            }
+        }
+    }
+
+    /**
+     * Adds the results of the scan to the metrics of the log. A multiline record pending at the end of a file that may
+     * still grow is not completed, its next lines may not be written yet: the next scan resumes at its start and reads
+     * it again. A record that is still pending at the end of that next scan is completed, so that the last record of
+     * a file that is no longer written to is held back for one run only.
+     *
+     * @param endPosition     the position the scan stopped at
+     * @param budgetExhausted true if the scan stopped before the end of the file
+     * @param rolledOver      true if the file rolled over and is not written to anymore
+     * @return the position the next scan of the file resumes from
+     */
+    long finish(ScanContext scanContext, long endPosition, boolean budgetExhausted, boolean rolledOver) {
+        long resumePosition = endPosition;
+        if (multilineAggregator != null) {
+            long pendingRecordStart = multilineAggregator.getPendingRecordStart();
+            if ((budgetExhausted || !rolledOver) && multilineAggregator.getPendingLines() > 0 &&
+                    pendingRecordStart > startPosition) {
+                // the pending record may continue past the budget or the end of the file, it is read again next run
+                LOGGER.debug("Holding back the last record of log: {}, resuming at {}", log.getDisplayName(),
+                        pendingRecordStart);
+                resumePosition = pendingRecordStart;
+            } else if (multilineAggregator.flush()) {
+                processRecord(scanContext, multilineAggregator.getCompletedRecord());
+            }
+        }
+        addOccurrences();
+        addValueStatistics();
+        if (timeBuckets != null) {
+            addMinuteOccurrences();
+        }
+        if (logEventsProcessor != null && logEventsProcessor.getTruncatedEvents() > 0) {
+            String metricName = getLogNamePrefix(log) + TRUNCATED_EVENTS;
+            logMetrics.increment(metricName, logMetrics.getMetricPrefix() + METRIC_SEPARATOR + metricName,
+                    logEventsProcessor.getTruncatedEvents());
+        }
+        randomAccessFile = null;
+        return resumePosition;
+    }
+
+    void updateFilePointer(File file, long fileSize, long lastReadPosition, long creationTimestamp, long inode) {
+        String metricName = getLogNamePrefix(log) + FILESIZE_METRIC_NAME;
+        logMetrics.add(metricName, new Metric(metricName, String.valueOf(fileSize),
+                logMetrics.getMetricPrefix() + METRIC_SEPARATOR + metricName));
+        logMetrics.updateFilePointer(new FilePointer(file.getPath(), lastReadPosition, creationTimestamp, inode));
+    }
+
+    private void initializeJsonLineScanner() {
+        List<String> fields = new ArrayList<String>();
+        jsonFields = new int[searchPatterns.size()];
+        for (int i = 0; i < searchPatterns.size(); i++) {
+            String field = searchPatterns.get(i).getField();
+            if (field != null && !fields.contains(field)) {
+                fields.add(field);
+            }
+            jsonFields[i] = fields.indexOf(field);
+        }
+        if (!fields.isEmpty()) {
+            jsonLineScanner = new JsonLineScanner(fields);
+        }
+    }
+
+    private void processRecord(ScanContext scanContext, CharSequence record) {
+        if (timestampExtractor != null) {
+            // lines without a timestamp (e.g. stack traces) belong to the minute of the previous line
+            long recordMinute = timestampExtractor.extractMinute(record, scanContext);
+            if (recordMinute != NO_TIMESTAMP && recordMinute != currentMinute) {
+                addMinuteOccurrences();
+                currentMinute = recordMinute;
+            }
+        }
+        incrementWordCountIfSearchStringMatched(scanContext, record);
+    }
+
+    private void addOccurrences() {
+        // also publishes the base (zero) occurrence metric for patterns without matches
+        for (int i = 0; i < occurrences.length; i++) {
+            long value = occurrences[i];
+            if (lineSampler != null) {
+                value = LineSampler.estimate(occurrences[i], sampledLines, lines);
+                // the margins of the files of a run are added up, which overstates the margin of the sum
+                String marginName = searchStringPrefixes[i] + OCCURRENCES_MARGIN;
+                logMetrics.increment(marginName, logMetrics.getMetricPrefix() + METRIC_SEPARATOR + marginName,
+                        LineSampler.margin(occurrences[i], squaredOccurrences[i], sampledLines, lines));
+            }
+            logMetrics.increment(occurrenceSlots[i], occurrenceNames[i], occurrencePaths[i], value);
+        }
+        if (lineSampler != null) {
+            String metricName = getLogNamePrefix(log) + SAMPLED_LINES;
+            logMetrics.increment(metricName, logMetrics.getMetricPrefix() + METRIC_SEPARATOR + metricName,
+                    sampledLines);
+        }
+    }
+
+    private void addValueStatistics() {
+        for (int i = 0; i < valueStatistics.length; i++) {
+            if (valueStatistics[i] != null) {
+                logMetrics.mergeValueStatistics(searchStringPrefixes[i], valueStatistics[i]);
+            }
+        }
+    }
+
+    private void addMinuteOccurrences() {
+        boolean matched = false;
+        for (long count : minuteOccurrences) {
+            matched |= count != 0;
+        }
+        if (matched) {
+            long minute = currentMinute;
+            if (minute == NO_TIMESTAMP) {
+                minute = TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis());
+            }
+            timeBuckets.add(minute, minuteOccurrences);
+            Arrays.fill(minuteOccurrences, 0);
+        }
+    }
+
+    private void incrementWordCountIfSearchStringMatched(ScanContext scanContext, CharSequence stringToCheck) {
+        // lines without any of the configured field names are not tokenized
+        boolean jsonScanned = jsonLineScanner != null && jsonLineScanner.mayContainFields(stringToCheck) &&
+                jsonLineScanner.scan(stringToCheck);
+        for (int i = 0; i < searchPatterns.size(); i++) {
+            SearchPattern searchPattern = searchPatterns.get(i);
+            CharSequence target = stringToCheck;
+            if (jsonLineScanner != null && jsonFields[i] >= 0) {
+                target = jsonScanned ? jsonLineScanner.getValue(jsonFields[i]) : null;
+                if (target == null) {
+                    continue;
+                }
+            }
+            ExactStringMatcher exactStringMatcher = exactStringMatchers[i];
+            Matcher matcher = exactStringMatcher == null ? scanContext.matcher(searchPattern.getPattern(), target) :
+                    null;
+            int exactMatchEnd = 0;
+
+            boolean eventCaptured = false;
+            long recordOccurrences = 0;
+
+            while (matcher != null ? matcher.find() :
+                    (exactMatchEnd = exactStringMatcher.find(target, exactMatchEnd)) >= 0) {
+                occurrences[i]++;
+                recordOccurrences++;
+                if (minuteOccurrences != null) {
+                    minuteOccurrences[i]++;
+                }
+                LOGGER.debug("Match found for pattern: {} in log: {}", searchPattern.getDisplayName(), log.getDisplayName());
+                if (valueStatistics[i] != null && matcher != null) {
+                    recordValue(valueStatistics[i], matcher, searchPattern.getValueGroup(), target);
+                }
+
+                if (searchPattern.getPrintMatchedString()) {
+                    String currentKey = searchStringPrefixes[i];
+                    String metricName;
+                    String path;
+                    LOGGER.debug("Adding actual matches to the queue for printing for log: {}", log.getDisplayName());
+                    String replacedWord = matcher != null ? matcher.group().trim() :
+                            exactStringMatcher.group(target, exactMatchEnd);
+                    if (searchPattern.getCaseSensitive()) {
+                        metricName = currentKey+MATCHES+METRIC_SEPARATOR+replacedWord;
+                        path = MetricPathUtils.buildMetricPath(currentKey,MATCHES,replacedWord);
+                    } else {
+                        metricName = currentKey+MATCHES+METRIC_SEPARATOR+WordUtils.capitalizeFully(replacedWord);
+                        path = MetricPathUtils.buildMetricPath(currentKey,MATCHES,WordUtils.capitalizeFully(replacedWord));
+                    }
+                    logMetrics.add(metricName, logMetrics.getMetricPrefix() + METRIC_SEPARATOR + path);
+                }
+
+                if (logEventsProcessor != null) {
+                    // one event per multiline record and pattern, further matches in the same record only count
+                    if (!eventCaptured) {
+                        logMetrics.addLogEvent(logEventsProcessor.processLogEvent(scanContext, searchPattern,
+                                randomAccessFile, stringToCheck));
+                        eventCaptured = multilineAggregator != null;
+                    }
+                } else {
+                    LOGGER.debug("This data does not have to be sent to the events service, skipping.");
+                }
+            }
+            if (squaredOccurrences != null) {
+                squaredOccurrences[i] += recordOccurrences * recordOccurrences;
+            }
+        }
+    }
+
+    private void recordValue(ValueStatistics statistics, Matcher matcher, String valueGroup, CharSequence record) {
+        int start = matcher.start(valueGroup);
+        if (start < 0) {
+            return;
+        }
+        double value = parseDecimal(record, start, matcher.end(valueGroup));
+        if (Double.isNaN(value)) {
+            LOGGER.debug("Skipping non numeric value of group {} in log: {}", valueGroup, log.getDisplayName());
+        } else {
+            statistics.record(value);
+        }
+    }
+}
@@ -8,28 +8,18 @@
 
 package com.appdynamics.extensions.logmonitor.processors;
 
-import com.appdynamics.extensions.eventsservice.EventsServiceDataManager;
 import com.appdynamics.extensions.logging.ExtensionsLoggerFactory;
-import com.appdynamics.extensions.logmonitor.config.FilePointer;
+import com.appdynamics.extensions.logmonitor.LogEventSink;
 import com.appdynamics.extensions.logmonitor.config.Log;
-import com.appdynamics.extensions.logmonitor.config.SearchPattern;
 import com.appdynamics.extensions.logmonitor.metrics.LogMetrics;
-import com.appdynamics.extensions.metrics.Metric;
-import com.appdynamics.extensions.util.MetricPathUtils;
-import com.google.common.base.Strings;
-import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.text.WordUtils;
+import com.appdynamics.extensions.logmonitor.processors.ScanScheduler.ScanBudget;
 import org.bitbucket.kienerj.OptimizedRandomAccessFile;
 import org.slf4j.Logger;
 import java.io.File;
-import java.math.BigInteger;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.CountDownLatch;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
-import static com.appdynamics.extensions.logmonitor.util.Constants.*;
 import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.*;
 
 /**
@@ -39,122 +29,130 @@ import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.*;
 public class LogMetricsProcessor implements Runnable {
     private static final Logger LOGGER = ExtensionsLoggerFactory.getLogger(LogMetricsProcessor.class);
     private OptimizedRandomAccessFile randomAccessFile;
-    private Log log;
     private CountDownLatch latch;
     private File currentFile;
-    private List<SearchPattern> searchPatterns;
-    private Map<Pattern, String> replacers;
-    private LogMetrics logMetrics;
-    private EventsServiceDataManager eventsServiceDataManager;
-    private LogEventsProcessor logEventsProcessor;
-    private int offset;
+    private LogLineProcessor[] lineProcessors;
+    private ScanBudget scanBudget;
+    private volatile boolean budgetExhausted;
+    private boolean rolledOver;
+
+    LogMetricsProcessor(File currentFile, long startPosition, Log log, TimeBuckets timeBuckets, CountDownLatch latch,
+                        LogMetrics logMetrics, LogEventSink eventSink, int offset) {
+        this(currentFile, startPosition, log, timeBuckets, null, latch, logMetrics, eventSink, offset);
+    }
 
-    LogMetricsProcessor(OptimizedRandomAccessFile randomAccessFile, Log log, CountDownLatch latch, LogMetrics logMetrics,
-                        File currentFile, EventsServiceDataManager eventsServiceDataManager,
+    LogMetricsProcessor(File currentFile, long startPosition, Log log, TimeBuckets timeBuckets, ScanBudget scanBudget,
+                        CountDownLatch latch, LogMetrics logMetrics, LogEventSink eventSink,
                         int offset) {
-        this.randomAccessFile = randomAccessFile;
-        this.log = log;
-        this.latch = latch;
-        this.logMetrics = logMetrics;
+        this(currentFile, scanBudget, latch, Collections.singletonList(new LogLineProcessor(log, startPosition,
+                timeBuckets, logMetrics, eventSink, offset)));
+    }
+
+    /**
+     * Reads the file once for all given line processors, from the lowest of their start positions.
+     */
+    LogMetricsProcessor(File currentFile, ScanBudget scanBudget, CountDownLatch latch,
+                        List<LogLineProcessor> lineProcessors) {
         this.currentFile = currentFile;
-        this.searchPatterns = createPattern(this.log.getSearchStrings());
-        this.eventsServiceDataManager = eventsServiceDataManager;
-        this.offset = offset;
+        this.scanBudget = scanBudget;
+        this.latch = latch;
+        // an array, so that the per line loops do not depend on escape analysis of an iterator
+        this.lineProcessors = lineProcessors.toArray(new LogLineProcessor[lineProcessors.size()]);
     }
 
     public void run() {
+        ScanContext scanContext = ScanContext.acquire();
         try {
-            processLogFile();
+            processLogFile(scanContext);
         } catch (Exception ex) {
-            LOGGER.error("Error encountered while processing log file : {}", log.getDisplayName(), ex);
+            LOGGER.error("Error encountered while processing log file : {}", getDisplayNames(), ex);
         } finally {
             closeRandomAccessFile(randomAccessFile);
+            scanContext.release();
             latch.countDown();
         }
     }
 
-    private void processLogFile() throws Exception {
-        long currentFilePointer = randomAccessFile.getFilePointer();
-        String currentLine;
-        setBaseOccurrenceCountForConfiguredPatterns();
-        if (eventsServiceDataManager != null) {
-            logEventsProcessor = new LogEventsProcessor(eventsServiceDataManager, offset, log);
+    private void processLogFile(ScanContext scanContext) throws Exception {
+        long startPosition = Long.MAX_VALUE;
+        for (LogLineProcessor lineProcessor : lineProcessors) {
+            startPosition = Math.min(startPosition, lineProcessor.getStartPosition());
+        }
+        randomAccessFile = scanContext.open(currentFile, currentFile.length() - startPosition);
+        for (LogLineProcessor lineProcessor : lineProcessors) {
+            lineProcessor.start(scanContext, randomAccessFile);
         }
-        while ((currentLine = randomAccessFile.readLine()) != null) {
-            incrementWordCountIfSearchStringMatched(searchPatterns, currentLine);
+        randomAccessFile.seek(startPosition);
+        long currentFilePointer = randomAccessFile.getFilePointer();
+        StringBuilder currentLine = scanContext.getLineBuffer();
+        long grantedBytes = 0;
+        long linesRead = 0;
+        while (true) {
+            if (scanBudget != null && currentFilePointer - startPosition >= grantedBytes &&
+                    currentFilePointer < randomAccessFile.length()) {
+                long granted = scanBudget.acquire(ScanBudget.SLICE_BYTES);
+                if (granted == 0) {
+                    budgetExhausted = true;
+                    break;
+                }
+                grantedBytes += granted;
+            }
+            long lineStart = currentFilePointer;
+            boolean sampled = false;
+            for (int i = 0; i < lineProcessors.length; i++) {
+                sampled |= lineProcessors[i].sampleLine(lineStart);
+            }
+            // lines no log samples are only scanned for their end
+            if (sampled ? !randomAccessFile.readLine(currentLine) : !randomAccessFile.skipLine()) {
+                break;
+            }
             currentFilePointer = randomAccessFile.getFilePointer();
+            linesRead++;
+            for (int i = 0; i < lineProcessors.length; i++) {
+                lineProcessors[i].processLine(scanContext, currentLine, lineStart, currentFilePointer);
+            }
         }
+        scanContext.recordLines(currentFilePointer - startPosition, linesRead);
+        long fileSize = randomAccessFile.length();
         long currentFileCreationTime = getCurrentFileCreationTimeStamp(currentFile);
-        String metricName = getLogNamePrefix() + FILESIZE_METRIC_NAME;
-        logMetrics.add(metricName, new Metric(metricName,
-                String.valueOf(randomAccessFile.length()), logMetrics.getMetricPrefix() + METRIC_SEPARATOR
-                + metricName));
-        updateCurrentFilePointer(currentFile.getPath(), currentFilePointer, currentFileCreationTime);
+        long inode = getInode(currentFile);
+        long resumePosition = currentFilePointer;
+        for (LogLineProcessor lineProcessor : lineProcessors) {
+            long lastReadPosition = lineProcessor.finish(scanContext, currentFilePointer, budgetExhausted,
+                    rolledOver);
+            lineProcessor.updateFilePointer(currentFile, fileSize, lastReadPosition, currentFileCreationTime, inode);
+            resumePosition = Math.min(resumePosition, lastReadPosition);
+        }
+        if (scanBudget != null && grantedBytes > resumePosition - startPosition) {
+            scanBudget.giveBack(grantedBytes - (resumePosition - startPosition));
+        }
         LOGGER.info(String.format("Successfully processed log file [%s]",
                 randomAccessFile));
     }
 
-    private void setBaseOccurrenceCountForConfiguredPatterns() {
-        for (SearchPattern searchPattern : searchPatterns) {
-            String currentKey = getSearchStringPrefix() + searchPattern.getDisplayName() + METRIC_SEPARATOR;
-            String metricName = currentKey + OCCURRENCES;
-            logMetrics.add(metricName, new Metric(metricName, String.valueOf(BigInteger.ZERO),
-                    logMetrics.getMetricPrefix() + METRIC_SEPARATOR + metricName));
-        }
+    /**
+     * Marks the file as rolled over, it is not written to anymore and the multiline records pending at its end are
+     * completed instead of being read again in the next run.
+     */
+    void setRolledOver(boolean rolledOver) {
+        this.rolledOver = rolledOver;
     }
 
-    private void incrementWordCountIfSearchStringMatched(List<SearchPattern> searchPatterns, String stringToCheck) {
-        for (SearchPattern searchPattern : searchPatterns) {
-            Matcher matcher = searchPattern.getPattern().matcher(stringToCheck);
-            String currentKey = getSearchStringPrefix() + searchPattern.getDisplayName() + METRIC_SEPARATOR;
-
-            while (matcher.find()) {
-                BigInteger occurrences = new BigInteger(logMetrics.getMetrics().get(currentKey + OCCURRENCES)
-                        .getMetricValue());
-                String metricName = currentKey + OCCURRENCES;
-                LOGGER.info("Match found for pattern: {} in log: {}", searchPattern.getDisplayName(), log.getDisplayName());
-                logMetrics.add(metricName, new Metric(metricName, String.valueOf(occurrences.add(BigInteger.ONE)),
-                        logMetrics.getMetricPrefix() + METRIC_SEPARATOR + metricName));
-
-                if (searchPattern.getPrintMatchedString()) {
-                    String path;
-                    LOGGER.info("Adding actual matches to the queue for printing for log: {}", log.getDisplayName());
-                    String replacedWord = matcher.group().trim();
-                    if (searchPattern.getCaseSensitive()) {
-                        metricName = currentKey+MATCHES+METRIC_SEPARATOR+replacedWord;
-                        path = MetricPathUtils.buildMetricPath(currentKey,MATCHES,replacedWord);
-                    } else {
-                        metricName = currentKey+MATCHES+METRIC_SEPARATOR+WordUtils.capitalizeFully(replacedWord);
-                        path = MetricPathUtils.buildMetricPath(currentKey,MATCHES,WordUtils.capitalizeFully(replacedWord));
-                    }
-                    logMetrics.add(metricName, logMetrics.getMetricPrefix() + METRIC_SEPARATOR + path);
-                }
+    /**
+     * @return true if the scan stopped before the end of the file because the scan budget of this run was used up
+     */
+    boolean isBudgetExhausted() {
+        return budgetExhausted;
+    }
 
-                if (logEventsProcessor != null) {
-                    logMetrics.addLogEvent(logEventsProcessor.processLogEvent(searchPattern, randomAccessFile, stringToCheck));
-                } else {
-                    LOGGER.info("This data does not have to be sent to the events service, skipping.");
-                }
+    private String getDisplayNames() {
+        StringBuilder displayNames = new StringBuilder();
+        for (LogLineProcessor lineProcessor : lineProcessors) {
+            if (displayNames.length() > 0) {
+                displayNames.append(", ");
             }
+            displayNames.append(lineProcessor.getLog().getDisplayName());
         }
+        return displayNames.toString();
     }
-
-    private void updateCurrentFilePointer(String filePath, long lastReadPosition, long creationTimestamp) {
-        FilePointer filePointer = new FilePointer();
-        filePointer.setFilename(filePath);
-        filePointer.setFileCreationTime(creationTimestamp);
-        filePointer.updateLastReadPosition(lastReadPosition);
-        logMetrics.updateFilePointer(filePointer);
-    }
-
-    private String getSearchStringPrefix() {
-        return String.format("%s%s%s", getLogNamePrefix(),
-                SEARCH_STRING, METRIC_SEPARATOR);
-    }
-
-    private String getLogNamePrefix() {
-        String displayName = StringUtils.isBlank(log.getDisplayName()) ?
-                log.getLogName() : log.getDisplayName();
-        return displayName + METRIC_SEPARATOR;
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,103 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.processors;
+
+import com.appdynamics.extensions.logmonitor.EventDeduplicator;
+import com.appdynamics.extensions.logmonitor.config.Log;
+import com.appdynamics.extensions.logmonitor.config.SearchString;
+import com.appdynamics.extensions.logmonitor.metrics.CounterStore;
+import com.appdynamics.extensions.logmonitor.metrics.MetricOutputState;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.appdynamics.extensions.logmonitor.util.Constants.METRIC_SEPARATOR;
+import static com.appdynamics.extensions.logmonitor.util.Constants.OCCURRENCES;
+import static com.appdynamics.extensions.logmonitor.util.Constants.OCCURRENCES_MARGIN;
+import static com.appdynamics.extensions.logmonitor.util.Constants.SAMPLED_LINES;
+import static com.appdynamics.extensions.logmonitor.util.Constants.VALUE;
+import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.getLogNamePrefix;
+import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.getSearchStringPrefix;
+
+/**
+ * In-memory state of a configured log that outlives a single monitor run. One instance per log is kept by the
+ * {@link com.appdynamics.extensions.logmonitor.LogMonitor} and handed to every run of that log.
+ */
+public class LogState {
+    private static final int TIME_BUCKET_CAPACITY = 60;
+
+    private TimeBuckets timeBuckets;
+    private final MetricOutputState metricOutputState = new MetricOutputState();
+    private final EventDeduplicator eventDeduplicator = new EventDeduplicator();
+    private final CounterStore counterStore = new CounterStore();
+    private Log zeroMetricsLog;
+    private List<String> zeroMetricNames;
+    private String lastScannedFile;
+    private long lastScannedModified;
+
+    synchronized TimeBuckets getTimeBuckets(Log log) {
+        int patternCount = log.getSearchStrings().size();
+        if (timeBuckets == null || timeBuckets.getPatternCount() != patternCount) {
+            timeBuckets = new TimeBuckets(TIME_BUCKET_CAPACITY, patternCount);
+        }
+        return timeBuckets;
+    }
+
+    /**
+     * @return the names of the metrics that a scan which reads no new line publishes with a value of 0
+     */
+    synchronized List<String> getZeroMetricNames(Log log) {
+        if (zeroMetricNames == null || zeroMetricsLog != log) {
+            List<String> names = new ArrayList<String>();
+            String searchStringPrefix = getSearchStringPrefix(log);
+            for (SearchString searchString : log.getSearchStrings()) {
+                String prefix = searchStringPrefix + searchString.getDisplayName() + METRIC_SEPARATOR;
+                names.add(prefix + OCCURRENCES);
+                if (log.getSampling() != null) {
+                    names.add(prefix + OCCURRENCES_MARGIN);
+                }
+                if (!StringUtils.isBlank(searchString.getValueGroup())) {
+                    names.add(prefix + VALUE + METRIC_SEPARATOR + "Count");
+                }
+            }
+            if (log.getSampling() != null) {
+                names.add(getLogNamePrefix(log) + SAMPLED_LINES);
+            }
+            zeroMetricNames = Collections.unmodifiableList(names);
+            zeroMetricsLog = log;
+        }
+        return zeroMetricNames;
+    }
+
+    /**
+     * Remembers the modification time the current file of the log had when it was last scanned.
+     */
+    synchronized void setLastScanned(String filename, long lastModified) {
+        lastScannedFile = filename;
+        lastScannedModified = lastModified;
+    }
+
+    synchronized boolean isLastScanned(String filename, long lastModified) {
+        return filename.equals(lastScannedFile) && lastModified == lastScannedModified;
+    }
+
+    public MetricOutputState getMetricOutputState() {
+        return metricOutputState;
+    }
+
+    public EventDeduplicator getEventDeduplicator() {
+        return eventDeduplicator;
+    }
+
+    CounterStore getCounterStore() {
+        return counterStore;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.processors;
+
+import com.appdynamics.extensions.logmonitor.config.Multiline;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.regex.Pattern;
+
+import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.compilePattern;
+
+/**
+ * Joins consecutive lines into logical records (e.g. a log statement followed by its stack trace), separated by
+ * '\n'. A line starts a new record if it matches the start pattern, or if it does not match the continuation
+ * pattern. A record is also completed once it reaches the configured maximum lines, or once it would span more than
+ * the configured maximum bytes of the file, line terminators included.
+ * Records are built in two buffers that are swapped and reused, so a record is only valid until the next call.
+ * Not thread safe, use one instance per scan.
+ */
+class MultilineAggregator {
+    private final Pattern startPattern;
+    private final Pattern continuationPattern;
+    private final int maxLines;
+    private final int maxBytes;
+    private final ScanContext scanContext;
+    private StringBuilder pending = new StringBuilder(1024);
+    private StringBuilder completed = new StringBuilder(1024);
+    private int pendingLines;
+    private long pendingRecordStart;
+
+    MultilineAggregator(Multiline multiline, ScanContext scanContext) {
+        this.startPattern = StringUtils.isBlank(multiline.getStartPattern()) ? null :
+                compilePattern(multiline.getStartPattern());
+        this.continuationPattern = StringUtils.isBlank(multiline.getContinuationPattern()) ? null :
+                compilePattern(multiline.getContinuationPattern());
+        this.maxLines = multiline.getMaxLines();
+        this.maxBytes = multiline.getMaxBytes();
+        this.scanContext = scanContext;
+    }
+
+    /**
+     * @param lineStart the position of the first byte of the line
+     * @param lineEnd   the position after the line terminator
+     * @return true if the line completed the pending record, which is then returned by {@link #getCompletedRecord()}
+     */
+    boolean add(CharSequence line, long lineStart, long lineEnd) {
+        if (pendingLines > 0 && isContinuation(line) && pendingLines < maxLines &&
+                lineEnd - pendingRecordStart <= maxBytes) {
+            pending.append('\n').append(line);
+            pendingLines++;
+            return false;
+        }
+        boolean hasCompleted = pendingLines > 0;
+        swap();
+        pending.append(line);
+        pendingLines = 1;
+        pendingRecordStart = lineStart;
+        return hasCompleted;
+    }
+
+    /**
+     * Completes the pending record, at the end of a scan.
+     *
+     * @return true if there was a pending record
+     */
+    boolean flush() {
+        boolean hasCompleted = pendingLines > 0;
+        swap();
+        pendingLines = 0;
+        return hasCompleted;
+    }
+
+    /**
+     * @return the number of lines of the pending record, 1 right after a line started a new record
+     */
+    int getPendingLines() {
+        return pendingLines;
+    }
+
+    /**
+     * @return the position of the first byte of the pending record, undefined if there is none
+     */
+    long getPendingRecordStart() {
+        return pendingRecordStart;
+    }
+
+    CharSequence getCompletedRecord() {
+        return completed;
+    }
+
+    private boolean isContinuation(CharSequence line) {
+        if (startPattern != null && scanContext.matcher(startPattern, line).find()) {
+            return false;
+        }
+        return continuationPattern == null || scanContext.matcher(continuationPattern, line).find();
+    }
+
+    private void swap() {
+        StringBuilder previous = completed;
+        completed = pending;
+        pending = previous;
+        pending.setLength(0);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.processors;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of large read buffers for scans of large backlogs. Each buffer is a direct byte buffer, which the file
+ * channel reads into without the copy through a temporary native buffer that large reads into a heap array take,
+ * and its char buffer. Buffers come in power of two sizes and at most a few of each size are kept. The direct memory
+ * of all buffers, pooled or in use, is capped; a scan that finds the cap reached reads into a heap buffer instead.
+ */
+final class ReadBufferPool {
+    static final int MIN_SIZE = ScanContext.BUFFER_SIZE;
+    static final int MAX_SIZE = 256 * 1024;
+    // the buffer is sized to read the unread bytes in about this many reads, within MIN_SIZE and MAX_SIZE
+    private static final int READS_PER_BACKLOG = 16;
+    private static final int MIN_LINES_PER_BUFFER = 64;
+    private static final int MAX_POOLED_PER_SIZE = 4;
+    static final long MAX_DIRECT_BYTES = 16L * 1024 * 1024;
+    private static final int SIZE_CLASSES = Integer.numberOfTrailingZeros(MAX_SIZE) -
+            Integer.numberOfTrailingZeros(MIN_SIZE) + 1;
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final Deque<ReadBuffer>[] POOL = new Deque[SIZE_CLASSES];
+    private static final AtomicLong DIRECT_BYTES = new AtomicLong();
+
+    static {
+        for (int i = 0; i < SIZE_CLASSES; i++) {
+            POOL[i] = new ArrayDeque<ReadBuffer>();
+        }
+    }
+
+    private ReadBufferPool() {
+    }
+
+    /**
+     * Picks a buffer size that grows with the bytes left to read, so that a catch up over a large backlog takes
+     * few large reads and a small log is read with a small buffer, and that holds a good number of lines of the
+     * observed length.
+     *
+     * @return a power of two between {@link #MIN_SIZE} and {@link #MAX_SIZE}
+     */
+    static int chooseBufferSize(long unreadBytes, int averageLineLength) {
+        long size = Math.max(unreadBytes / READS_PER_BACKLOG, (long) averageLineLength * MIN_LINES_PER_BUFFER);
+        if (size <= MIN_SIZE) {
+            return MIN_SIZE;
+        }
+        if (size >= MAX_SIZE) {
+            return MAX_SIZE;
+        }
+        return Integer.highestOneBit((int) size - 1) << 1;
+    }
+
+    /**
+     * @return a pooled buffer of the size, a new direct one if the direct memory cap allows, else a new heap buffer
+     */
+    static ReadBuffer acquire(int size) {
+        Deque<ReadBuffer> pooled = POOL[sizeClass(size)];
+        synchronized (pooled) {
+            ReadBuffer buffer = pooled.pollFirst();
+            if (buffer != null) {
+                return buffer;
+            }
+        }
+        if (DIRECT_BYTES.addAndGet(size) > MAX_DIRECT_BYTES) {
+            DIRECT_BYTES.addAndGet(-size);
+            return new ReadBuffer(ByteBuffer.allocate(size));
+        }
+        return new ReadBuffer(ByteBuffer.allocateDirect(size));
+    }
+
+    static void release(ReadBuffer buffer) {
+        if (!buffer.getBytes().isDirect()) {
+            return;
+        }
+        Deque<ReadBuffer> pooled = POOL[sizeClass(buffer.getSize())];
+        synchronized (pooled) {
+            if (pooled.size() < MAX_POOLED_PER_SIZE) {
+                pooled.addFirst(buffer);
+                return;
+            }
+        }
+        // dropped, its memory is freed once the buffer is collected
+        DIRECT_BYTES.addAndGet(-buffer.getSize());
+    }
+
+    static long getDirectBytes() {
+        return DIRECT_BYTES.get();
+    }
+
+    private static int sizeClass(int size) {
+        return Integer.numberOfTrailingZeros(size) - Integer.numberOfTrailingZeros(MIN_SIZE);
+    }
+
+    static final class ReadBuffer {
+        private final ByteBuffer bytes;
+        private final char[] chars;
+
+        private ReadBuffer(ByteBuffer bytes) {
+            this.bytes = bytes;
+            this.chars = new char[bytes.capacity()];
+        }
+
+        ByteBuffer getBytes() {
+            return bytes;
+        }
+
+        char[] getChars() {
+            return chars;
+        }
+
+        int getSize() {
+            return chars.length;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.processors;
+
+import com.appdynamics.extensions.logging.ExtensionsLoggerFactory;
+import org.slf4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the head of the next rolled over file of a log while the current one is scanned, so that its first reads
+ * are served from the page cache. The bytes read are dropped, the file is only held open for the read.
+ */
+class RolloverPrefetch implements Runnable {
+    private static final Logger LOGGER = ExtensionsLoggerFactory.getLogger(RolloverPrefetch.class);
+    static final int PREFETCH_BYTES = 1024 * 1024;
+
+    private final File file;
+
+    RolloverPrefetch(File file) {
+        this.file = file;
+    }
+
+    public void run() {
+        ReadBufferPool.ReadBuffer readBuffer = ReadBufferPool.acquire(ReadBufferPool.MAX_SIZE);
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            ByteBuffer bytes = readBuffer.getBytes();
+            long position = 0;
+            while (position < PREFETCH_BYTES) {
+                bytes.clear();
+                int read = channel.read(bytes, position);
+                if (read <= 0) {
+                    break;
+                }
+                position += read;
+            }
+            LOGGER.debug("Prefetched {} bytes of {}", position, file.getPath());
+        } catch (IOException ex) {
+            LOGGER.debug("Unable to prefetch {}", file.getPath(), ex);
+        } finally {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ex) {
+                    LOGGER.debug("Error encountered while closing {}", file.getPath(), ex);
+                }
+            }
+            ReadBufferPool.release(readBuffer);
+        }
+    }
+}
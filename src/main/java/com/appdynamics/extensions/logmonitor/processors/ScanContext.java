@@ -0,0 +1,145 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.processors;
+
+import org.bitbucket.kienerj.OptimizedRandomAccessFile;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Scanning state (read buffers, line buffers and matchers) that is reused across files and monitor runs, so that
+ * steady-state scanning does not allocate per line. Contexts are pooled rather than kept per thread, as a virtual
+ * thread runs a single scan and would never see its context again.
+ * A context is owned by the scan that obtained it through {@link #acquire()} until it is given back with
+ * {@link #release()}.
+ */
+final class ScanContext {
+    static final int BUFFER_SIZE = 8192;
+    private static final int MAX_RETAINED_BUILDER_CAPACITY = 1024 * 1024;
+    private static final int MAX_CACHED_MATCHERS = 1024;
+    private static final int INITIAL_AVERAGE_LINE_LENGTH = 128;
+    private static final int MAX_IDLE_CONTEXTS = 64;
+    private static final Queue<ScanContext> IDLE_CONTEXTS = new ConcurrentLinkedQueue<ScanContext>();
+    private static final AtomicInteger IDLE_COUNT = new AtomicInteger();
+
+    private final char[] charBuffer = new char[BUFFER_SIZE];
+    private final byte[] byteBuffer = new byte[BUFFER_SIZE];
+    private final Map<Pattern, Matcher> matchers = new IdentityHashMap<Pattern, Matcher>();
+    private StringBuilder lineBuffer = new StringBuilder(256);
+    private StringBuilder scratchBuffer = new StringBuilder(256);
+    private ReadBufferPool.ReadBuffer pooledBuffer;
+    private int averageLineLength = INITIAL_AVERAGE_LINE_LENGTH;
+
+    private ScanContext() {
+    }
+
+    /**
+     * @return an idle context, or a new one if all contexts are in use
+     */
+    static ScanContext acquire() {
+        ScanContext scanContext = IDLE_CONTEXTS.poll();
+        if (scanContext == null) {
+            return new ScanContext();
+        }
+        IDLE_COUNT.decrementAndGet();
+        return scanContext;
+    }
+
+    OptimizedRandomAccessFile open(File file) throws FileNotFoundException {
+        return new OptimizedRandomAccessFile(file, "r", charBuffer, byteBuffer);
+    }
+
+    /**
+     * Opens the file with a read buffer sized to the bytes left to read and the line length seen in earlier scans
+     * by this context. Small reads use the buffers of this context, larger ones a buffer of the ReadBufferPool that is
+     * returned on {@link #release()}.
+     */
+    OptimizedRandomAccessFile open(File file, long unreadBytes) throws FileNotFoundException {
+        int bufferSize = ReadBufferPool.chooseBufferSize(unreadBytes, averageLineLength);
+        if (bufferSize <= BUFFER_SIZE) {
+            return open(file);
+        }
+        if (pooledBuffer != null) {
+            ReadBufferPool.release(pooledBuffer);
+        }
+        pooledBuffer = ReadBufferPool.acquire(bufferSize);
+        return new OptimizedRandomAccessFile(file, "r", pooledBuffer.getChars(), pooledBuffer.getBytes());
+    }
+
+    /**
+     * Folds the line length of a finished scan into the running average used to size read buffers.
+     */
+    void recordLines(long bytesRead, long linesRead) {
+        if (linesRead > 0) {
+            long lineLength = Math.min(bytesRead / linesRead, ReadBufferPool.MAX_SIZE);
+            averageLineLength = (int) ((3L * averageLineLength + lineLength) / 4);
+        }
+    }
+
+    int getAverageLineLength() {
+        return averageLineLength;
+    }
+
+    Matcher matcher(Pattern pattern, CharSequence input) {
+        Matcher matcher = matchers.get(pattern);
+        if (matcher == null) {
+            if (matchers.size() >= MAX_CACHED_MATCHERS) {
+                matchers.clear();
+            }
+            matcher = pattern.matcher(input);
+            matchers.put(pattern, matcher);
+            return matcher;
+        }
+        return matcher.reset(input);
+    }
+
+    StringBuilder getLineBuffer() {
+        return lineBuffer;
+    }
+
+    StringBuilder getScratchBuffer() {
+        scratchBuffer.setLength(0);
+        return scratchBuffer;
+    }
+
+    /**
+     * Drops references to the last scanned text, shrinks buffers that grew on an unusually long line and gives the
+     * context back to the pool. The context must not be used afterwards.
+     */
+    void release() {
+        if (pooledBuffer != null) {
+            ReadBufferPool.release(pooledBuffer);
+            pooledBuffer = null;
+        }
+        for (Matcher matcher : matchers.values()) {
+            matcher.reset("");
+        }
+        if (lineBuffer.capacity() > MAX_RETAINED_BUILDER_CAPACITY) {
+            lineBuffer = new StringBuilder(256);
+        } else {
+            lineBuffer.setLength(0);
+        }
+        if (scratchBuffer.capacity() > MAX_RETAINED_BUILDER_CAPACITY) {
+            scratchBuffer = new StringBuilder(256);
+        }
+        if (IDLE_COUNT.incrementAndGet() <= MAX_IDLE_CONTEXTS) {
+            IDLE_CONTEXTS.offer(this);
+        } else {
+            IDLE_COUNT.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.processors;
+
+import com.appdynamics.extensions.logmonitor.config.Log;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shares a global number of bytes to scan per monitor run between the configured logs, so that a log with a large
+ * backlog can not starve the others. Every log gets a quota proportional to its scan weight, which it claims in
+ * slices while scanning. Quota left over by logs that are done goes to a spare pool that logs with more to read
+ * can claim from. A log that runs out of budget stops at a line boundary and resumes from there in the next run.
+ */
+public class ScanScheduler {
+    private Map<Log, ScanBudget> budgets = new IdentityHashMap<Log, ScanBudget>();
+    private long sparePool;
+
+    /**
+     * @param budgetBytes the bytes to scan in this run across all logs, unlimited if not positive
+     */
+    public synchronized void startCycle(List<Log> logs, long budgetBytes) {
+        budgets = new IdentityHashMap<Log, ScanBudget>();
+        sparePool = 0;
+        if (budgetBytes <= 0 || logs.isEmpty()) {
+            return;
+        }
+        long totalWeight = 0;
+        for (Log log : logs) {
+            totalWeight += log.getScanWeight();
+        }
+        long assigned = 0;
+        for (Log log : logs) {
+            long quota = budgetBytes / totalWeight * log.getScanWeight();
+            budgets.put(log, new ScanBudget(this, quota));
+            assigned += quota;
+        }
+        sparePool = budgetBytes - assigned;
+    }
+
+    /**
+     * @return the budget of the log in the current run, or null if scanning is not limited
+     */
+    public synchronized ScanBudget getBudget(Log log) {
+        return budgets.get(log);
+    }
+
+    synchronized long acquire(ScanBudget budget, long requested) {
+        long granted = Math.min(requested, budget.remaining);
+        budget.remaining -= granted;
+        long fromPool = Math.min(requested - granted, sparePool);
+        sparePool -= fromPool;
+        return granted + fromPool;
+    }
+
+    synchronized void giveBack(ScanBudget budget, long bytes) {
+        budget.remaining += bytes;
+    }
+
+    synchronized void release(ScanBudget budget) {
+        sparePool += budget.remaining;
+        budget.remaining = 0;
+    }
+
+    /**
+     * Bytes a single log may still scan in the current run.
+     */
+    public static class ScanBudget {
+        static final long SLICE_BYTES = 1024 * 1024;
+
+        private final ScanScheduler scheduler;
+        private long remaining;
+
+        ScanBudget(ScanScheduler scheduler, long quota) {
+            this.scheduler = scheduler;
+            this.remaining = quota;
+        }
+
+        /**
+         * @return the bytes granted, up to the requested amount, or 0 if the budget of this run is used up
+         */
+        long acquire(long requested) {
+            return scheduler.acquire(this, requested);
+        }
+
+        /**
+         * Returns granted bytes that were not scanned.
+         */
+        void giveBack(long bytes) {
+            scheduler.giveBack(this, bytes);
+        }
+
+        /**
+         * Hands the unused quota over to the logs that still have more to scan.
+         */
+        void release() {
+            scheduler.release(this);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.processors;
+
+import java.util.Arrays;
+
+/**
+ * Ring of per-minute occurrence counts keyed by the minute a line was written (log time), for one log.
+ * Scanners add counts for any minute; closed minutes are polled oldest first, one per monitor run, so that a
+ * backlog is published in time order instead of as a single spike. Minutes without matches take no slot.
+ * When a minute falls outside the ring, the oldest pending minutes are folded into the next pending one so that
+ * no counts are lost.
+ */
+class TimeBuckets {
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final int patternCount;
+    private final long[] minutes;
+    private final long[][] counts;
+    private long lastPolledMinute = EMPTY;
+    private long latestMinute = EMPTY;
+
+    TimeBuckets(int capacity, int patternCount) {
+        this.patternCount = patternCount;
+        this.minutes = new long[capacity];
+        this.counts = new long[capacity][patternCount];
+        Arrays.fill(minutes, EMPTY);
+    }
+
+    int getPatternCount() {
+        return patternCount;
+    }
+
+    /**
+     * @return the newest minute added so far, or {@link TimestampExtractor#NO_TIMESTAMP} if none
+     */
+    synchronized long getLatestMinute() {
+        return latestMinute;
+    }
+
+    synchronized void add(long minute, long[] patternCounts) {
+        if (lastPolledMinute != EMPTY && minute <= lastPolledMinute) {
+            // late lines for a minute that was already published go out with the next one
+            minute = lastPolledMinute + 1;
+        }
+        latestMinute = Math.max(latestMinute, minute);
+        long oldest = getOldestPendingMinute();
+        while (oldest != EMPTY && minute - oldest >= minutes.length) {
+            foldIntoNextPending(oldest, minute);
+            oldest = getOldestPendingMinute();
+        }
+        if (oldest != EMPTY && minute < oldest && getNewestPendingMinute() - minute >= minutes.length) {
+            minute = oldest;
+        }
+        int slot = slotOf(minute);
+        if (minutes[slot] != minute) {
+            minutes[slot] = minute;
+            Arrays.fill(counts[slot], 0);
+        }
+        for (int i = 0; i < patternCount; i++) {
+            counts[slot][i] += patternCounts[i];
+        }
+    }
+
+    /**
+     * Removes and returns the counts of the oldest closed minute. A minute is closed once a newer minute has
+     * been seen, or once it is older than the previous wall clock minute.
+     *
+     * @return the counts per pattern, or null if no minute is closed
+     */
+    synchronized long[] pollClosed(long currentMinute) {
+        long oldest = getOldestPendingMinute();
+        if (oldest == EMPTY || (oldest >= latestMinute && oldest >= currentMinute - 1)) {
+            return null;
+        }
+        int slot = slotOf(oldest);
+        minutes[slot] = EMPTY;
+        lastPolledMinute = oldest;
+        return Arrays.copyOf(counts[slot], patternCount);
+    }
+
+    private void foldIntoNextPending(long oldest, long incomingMinute) {
+        int oldestSlot = slotOf(oldest);
+        minutes[oldestSlot] = EMPTY;
+        long next = getOldestPendingMinute();
+        if (next == EMPTY) {
+            // nothing else pending, keep the counts in the slot of the incoming minute
+            next = incomingMinute;
+            int slot = slotOf(next);
+            minutes[slot] = next;
+            if (slot != oldestSlot) {
+                System.arraycopy(counts[oldestSlot], 0, counts[slot], 0, patternCount);
+            }
+            return;
+        }
+        int nextSlot = slotOf(next);
+        for (int i = 0; i < patternCount; i++) {
+            counts[nextSlot][i] += counts[oldestSlot][i];
+        }
+    }
+
+    private long getOldestPendingMinute() {
+        long oldest = EMPTY;
+        for (long minute : minutes) {
+            if (minute != EMPTY && (oldest == EMPTY || minute < oldest)) {
+                oldest = minute;
+            }
+        }
+        return oldest;
+    }
+
+    private long getNewestPendingMinute() {
+        long newest = EMPTY;
+        for (long minute : minutes) {
+            if (minute != EMPTY && minute > newest) {
+                newest = minute;
+            }
+        }
+        return newest;
+    }
+
+    private int slotOf(long minute) {
+        return (int) Math.floorMod(minute, (long) minutes.length);
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.processors;
+
+import com.appdynamics.extensions.logmonitor.config.Log;
+import org.apache.commons.lang3.StringUtils;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoField;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.compilePattern;
+import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.createTimestampFormatter;
+import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.getTimestampZone;
+import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.hasYear;
+
+/**
+ * Extracts the epoch minute of a log line from its timestamp. The timestamp is either located with the configured
+ * timestampPattern (first group, or the whole match) or expected at the start of the line with the width of the
+ * timestampFormat. Only the text up to the minute field is compared against the previously parsed timestamp, so
+ * consecutive lines of the same minute are not parsed again. Timestamps without a year are read as the current year
+ * at the time of parsing, or as the previous year if that would put them more than a day ahead of the clock. Not
+ * thread safe, use one instance per scan.
+ */
+class TimestampExtractor {
+    static final long NO_TIMESTAMP = Long.MIN_VALUE;
+    private static final String SUB_MINUTE_FIELDS = "sSnNA";
+    private static final long MAX_SECONDS_AHEAD = 24 * 60 * 60;
+
+    private final String format;
+    private final String timeZone;
+    private final ZoneId zoneId;
+    private final boolean yearless;
+    private DateTimeFormatter formatter;
+    private DateTimeFormatter previousYearFormatter;
+    private long yearStartMillis;
+    private long yearEndMillis;
+    private final Pattern locator;
+    private final int formatWidth;
+    private final int minutePrefixWidth;
+    private final char[] cachedKey;
+    private int cachedKeyLength = -1;
+    private long cachedMinute = NO_TIMESTAMP;
+
+    TimestampExtractor(Log log) {
+        this.format = log.getTimestampFormat();
+        this.timeZone = log.getTimestampTimeZone();
+        this.zoneId = getTimestampZone(timeZone);
+        this.yearless = !hasYear(format);
+        if (!yearless) {
+            this.formatter = createTimestampFormatter(format, timeZone, 0);
+        }
+        this.locator = StringUtils.isBlank(log.getTimestampPattern()) ? null :
+                compilePattern(log.getTimestampPattern());
+        int width = 0;
+        int prefixWidth = 0;
+        boolean quoted = false;
+        for (int i = 0; i < format.length(); i++) {
+            char c = format.charAt(i);
+            if (c == '\'') {
+                if (i + 1 < format.length() && format.charAt(i + 1) == '\'') {
+                    i++;
+                    width++;
+                } else {
+                    quoted = !quoted;
+                }
+                continue;
+            }
+            width++;
+            if (!quoted && Character.isLetter(c) && SUB_MINUTE_FIELDS.indexOf(c) < 0) {
+                prefixWidth = width;
+            }
+        }
+        this.formatWidth = width;
+        this.minutePrefixWidth = prefixWidth;
+        this.cachedKey = new char[Math.max(width, 64)];
+    }
+
+    /**
+     * @return the epoch minute of the line, or {@link #NO_TIMESTAMP} if the line carries no parsable timestamp
+     */
+    long extractMinute(CharSequence line, ScanContext scanContext) {
+        int start;
+        int end;
+        if (locator == null) {
+            if (line.length() < formatWidth) {
+                return NO_TIMESTAMP;
+            }
+            start = 0;
+            end = formatWidth;
+        } else {
+            Matcher matcher = scanContext.matcher(locator, line);
+            if (!matcher.find()) {
+                return NO_TIMESTAMP;
+            }
+            int group = matcher.groupCount() > 0 ? 1 : 0;
+            start = matcher.start(group);
+            end = matcher.end(group);
+            if (start < 0) {
+                return NO_TIMESTAMP;
+            }
+        }
+        // a fixed width timestamp only needs its date, hour and minute characters compared
+        int keyLength = end - start == formatWidth ? minutePrefixWidth : end - start;
+        if (keyLength <= cachedKey.length && isCached(line, start, keyLength)) {
+            return cachedMinute;
+        }
+        try {
+            long epochSecond = parseEpochSecond(line.subSequence(start, end));
+            cachedMinute = Math.floorDiv(epochSecond, 60);
+        } catch (RuntimeException ex) {
+            cachedKeyLength = -1;
+            return NO_TIMESTAMP;
+        }
+        if (keyLength <= cachedKey.length) {
+            for (int i = 0; i < keyLength; i++) {
+                cachedKey[i] = line.charAt(start + i);
+            }
+            cachedKeyLength = keyLength;
+        }
+        return cachedMinute;
+    }
+
+    private long parseEpochSecond(CharSequence timestamp) {
+        if (!yearless) {
+            return formatter.parse(timestamp).getLong(ChronoField.INSTANT_SECONDS);
+        }
+        long now = System.currentTimeMillis();
+        if (now < yearStartMillis || now >= yearEndMillis) {
+            startYear(now);
+        }
+        long epochSecond = formatter.parse(timestamp).getLong(ChronoField.INSTANT_SECONDS);
+        if (epochSecond - now / 1000 > MAX_SECONDS_AHEAD) {
+            epochSecond = previousYearFormatter.parse(timestamp).getLong(ChronoField.INSTANT_SECONDS);
+        }
+        return epochSecond;
+    }
+
+    // the formatters of yearless timestamps are created again when the year of the clock changes
+    private void startYear(long now) {
+        int year = Instant.ofEpochMilli(now).atZone(zoneId).getYear();
+        formatter = createTimestampFormatter(format, timeZone, year);
+        previousYearFormatter = createTimestampFormatter(format, timeZone, year - 1);
+        yearStartMillis = ZonedDateTime.of(year, 1, 1, 0, 0, 0, 0, zoneId).toInstant().toEpochMilli();
+        yearEndMillis = ZonedDateTime.of(year + 1, 1, 1, 0, 0, 0, 0, zoneId).toInstant().toEpochMilli();
+        cachedKeyLength = -1;
+    }
+
+    private boolean isCached(CharSequence line, int start, int keyLength) {
+        if (keyLength != cachedKeyLength) {
+            return false;
+        }
+        for (int i = keyLength - 1; i >= 0; i--) {
+            if (cachedKey[i] != line.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
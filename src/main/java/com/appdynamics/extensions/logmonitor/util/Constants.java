@@ -13,12 +13,22 @@ package com.appdynamics.extensions.logmonitor.util;
 
 public final class Constants {
     public static final String FILEPOINTER_FILENAME = "filepointer.json";
+    public static final String FILEPOINTER_JOURNAL_FILENAME = "filepointer.journal";
     public static final String METRIC_SEPARATOR = "|";
     public static final String SEARCH_STRING = "Search String";
     public static final String FILESIZE_METRIC_NAME = "File size (Bytes)";
+    public static final String UNREAD_BACKLOG_METRIC_NAME = "Unread Backlog (Bytes)";
     public static final String DEFAULT_METRIC_PREFIX = "Custom Metrics|Log Monitor|";
     public static final String MONITOR_NAME = "Log Monitor";
     public static final String OCCURRENCES = "Occurrences";
+    public static final String TOTAL_OCCURRENCES = "Total Occurrences";
+    public static final String OCCURRENCES_PER_MINUTE = "Occurrences Per Minute";
+    public static final String OCCURRENCES_MARGIN = "Occurrences Margin (95%)";
+    public static final String SAMPLED_LINES = "Sampled Lines";
+    public static final String TRUNCATED_EVENTS = "Truncated Events";
     public static final String MATCHES = "Matches";
+    public static final String VALUE = "Value";
+    public static final String TEXT_FORMAT = "text";
+    public static final String JSON_FORMAT = "json";
     public static final String SCHEMA_NAME = "LogSchema";
 }
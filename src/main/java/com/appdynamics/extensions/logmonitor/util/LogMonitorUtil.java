@@ -9,11 +9,15 @@
 package com.appdynamics.extensions.logmonitor.util;
 
 import com.appdynamics.extensions.logmonitor.LogEvent;
-import com.appdynamics.extensions.logmonitor.config.FilePointer;
+import com.appdynamics.extensions.logmonitor.config.EventBatching;
+import com.appdynamics.extensions.logmonitor.config.EventDeduplication;
+import com.appdynamics.extensions.logmonitor.config.EventOutput;
 import com.appdynamics.extensions.logmonitor.config.Log;
+import com.appdynamics.extensions.logmonitor.config.MetricOutput;
+import com.appdynamics.extensions.logmonitor.config.Multiline;
+import com.appdynamics.extensions.logmonitor.config.Sampling;
 import com.appdynamics.extensions.logmonitor.config.SearchPattern;
 import com.appdynamics.extensions.logmonitor.config.SearchString;
-import com.appdynamics.extensions.metrics.Metric;
 import com.appdynamics.extensions.util.PathResolver;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.Lists;
@@ -24,15 +28,30 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.lang.reflect.Method;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.BasicFileAttributeView;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.time.DateTimeException;
+import java.time.Year;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.regex.Pattern;
 
+import static com.appdynamics.extensions.logmonitor.util.Constants.JSON_FORMAT;
+import static com.appdynamics.extensions.logmonitor.util.Constants.METRIC_SEPARATOR;
+import static com.appdynamics.extensions.logmonitor.util.Constants.SEARCH_STRING;
+import static com.appdynamics.extensions.logmonitor.util.Constants.TEXT_FORMAT;
+
 /**
  * @author Aditya Jagtiani
  */
@@ -40,6 +59,20 @@ public class LogMonitorUtil {
     private static final Logger LOGGER = LoggerFactory.getLogger(LogMonitorUtil.class);
     private static final String CASE_SENSITIVE_PATTERN = "(?-i)";
     private static final String CASE_INSENSITIVE_PATTERN = "(?i)";
+    private static final String DOTALL_PATTERN = "(?s)";
+    private static final int MAX_COMPILED_PATTERNS = 4096;
+    private static final ConcurrentHashMap<String, Pattern> compiledPatterns = new ConcurrentHashMap<String, Pattern>();
+
+    /**
+     * @return the resolved path of the log directory, ending with a separator
+     */
+    public static String resolveDirPath(String confDirPath) {
+        String resolvedPath = resolvePath(confDirPath);
+        if (!resolvedPath.endsWith(File.separator)) {
+            resolvedPath = resolvedPath + File.separator;
+        }
+        return resolvedPath;
+    }
 
     public static String resolvePath(String filename) {
         if (StringUtils.isBlank(filename)) {
@@ -57,6 +90,13 @@ public class LogMonitorUtil {
     }
 
     public static List<SearchPattern> createPattern(List<SearchString> searchStrings) {
+        return createPattern(searchStrings, false);
+    }
+
+    /**
+     * @param dotAll lets '.' match line terminators, for records spanning multiple lines
+     */
+    public static List<SearchPattern> createPattern(List<SearchString> searchStrings, boolean dotAll) {
         List<SearchPattern> searchPatterns = new ArrayList<SearchPattern>();
         if (searchStrings != null && !searchStrings.isEmpty()) {
             for (SearchString searchString : searchStrings) {
@@ -67,6 +107,9 @@ public class LogMonitorUtil {
                 } else {
                     rawPatternsStringBuilder.append(CASE_INSENSITIVE_PATTERN);
                 }
+                if (dotAll) {
+                    rawPatternsStringBuilder.append(DOTALL_PATTERN);
+                }
                 if (searchString.getMatchExactString()) {
                     rawPatternsStringBuilder.append("(?<=\\s|^)");
                     rawPatternsStringBuilder.append(Pattern.quote(searchString.getPattern().trim()));
@@ -74,15 +117,75 @@ public class LogMonitorUtil {
                 } else {
                     rawPatternsStringBuilder.append(searchString.getPattern().trim());
                 }
-                pattern = Pattern.compile(rawPatternsStringBuilder.toString());
+                pattern = compilePattern(rawPatternsStringBuilder.toString());
                 SearchPattern searchPattern = new SearchPattern(searchString.getDisplayName(), pattern,
-                        searchString.getCaseSensitive(), searchString.getPrintMatchedString());
+                        searchString.getCaseSensitive(), searchString.getPrintMatchedString(),
+                        StringUtils.isBlank(searchString.getValueGroup()) ? null : searchString.getValueGroup(),
+                        StringUtils.isBlank(searchString.getField()) ? null : searchString.getField().trim());
+                if (searchString.getMatchExactString() && !searchString.getPattern().trim().isEmpty()) {
+                    searchPattern.setExactString(searchString.getPattern().trim());
+                }
                 searchPatterns.add(searchPattern);
             }
         }
         return searchPatterns;
     }
 
+    // compiled patterns are shared across runs so that matchers cached per scanning thread can be reused
+    public static Pattern compilePattern(String regex) {
+        Pattern pattern = compiledPatterns.get(regex);
+        if (pattern == null) {
+            if (compiledPatterns.size() >= MAX_COMPILED_PATTERNS) {
+                compiledPatterns.clear();
+            }
+            pattern = Pattern.compile(regex);
+            Pattern previous = compiledPatterns.putIfAbsent(regex, pattern);
+            if (previous != null) {
+                pattern = previous;
+            }
+        }
+        return pattern;
+    }
+
+    /**
+     * @param year the year of timestamps whose format does not carry one, see {@link #hasYear(String)}
+     */
+    public static DateTimeFormatter createTimestampFormatter(String timestampFormat, String timeZone, int year) {
+        DateTimeFormatterBuilder builder = new DateTimeFormatterBuilder().appendPattern(timestampFormat);
+        if (!hasYear(timestampFormat)) {
+            builder.parseDefaulting(ChronoField.YEAR_OF_ERA, year);
+        }
+        return builder.toFormatter(Locale.ENGLISH).withZone(getTimestampZone(timeZone));
+    }
+
+    // formats like syslog's "MMM dd HH:mm:ss" do not carry a year
+    public static boolean hasYear(String timestampFormat) {
+        return timestampFormat.indexOf('y') >= 0 || timestampFormat.indexOf('u') >= 0;
+    }
+
+    public static ZoneId getTimestampZone(String timeZone) {
+        return StringUtils.isBlank(timeZone) ? ZoneId.systemDefault() : ZoneId.of(timeZone);
+    }
+
+    /**
+     * @return the key of the file pointer of the log. Logs reading the same file keep their own pointers, told apart
+     * like their metrics by the prefix of {@link #getLogNamePrefix(Log)}
+     */
+    public static String getFilePointerKey(Log log, String dirPath) {
+        return getLogNamePrefix(log) + dirPath + log.getLogName();
+    }
+
+    public static String getLogNamePrefix(Log log) {
+        String displayName = StringUtils.isBlank(log.getDisplayName()) ?
+                log.getLogName() : log.getDisplayName();
+        return displayName + METRIC_SEPARATOR;
+    }
+
+    public static String getSearchStringPrefix(Log log) {
+        return String.format("%s%s%s", getLogNamePrefix(log),
+                SEARCH_STRING, METRIC_SEPARATOR);
+    }
+
     public static void closeRandomAccessFile(OptimizedRandomAccessFile randomAccessFile) {
         if (randomAccessFile != null) {
             try {
@@ -101,32 +204,49 @@ public class LogMonitorUtil {
         return view.creationTime().toMillis();
     }
 
-    public static FilePointer getLatestFilePointer(CopyOnWriteArrayList<FilePointer> filePointers) {
-        return Collections.max(filePointers, new Comparator<FilePointer>() {
-            public int compare(FilePointer file1, FilePointer file2) {
-                if (file1.getFileCreationTime() > file2.getFileCreationTime())
-                    return 1;
-                else if (file1.getFileCreationTime() < file2.getFileCreationTime())
-                    return -1;
-                return 0;
-            }
-        });
+    /**
+     * @return the inode of the file, or 0 if the file system does not expose one
+     */
+    public static long getInode(File file) throws IOException {
+        return getInode(Paths.get(file.getAbsolutePath()));
+    }
+
+    /**
+     * @return the inode of the file, or 0 if the file system has no unix attribute view, e.g. on Windows
+     */
+    public static long getInode(Path path) throws IOException {
+        if (!path.getFileSystem().supportedFileAttributeViews().contains("unix")) {
+            return 0;
+        }
+        Object inode = Files.getAttribute(path, "unix:ino");
+        return inode instanceof Number ? ((Number) inode).longValue() : 0;
     }
 
     public static List<Log> getValidLogsFromConfig(List<Map<String, ?>> logsFromConfig, String metricPrefix) {
         List<Log> validLogs = new ArrayList<Log>();
         for (Map<String, ?> logFromConfig : logsFromConfig) {
-            try {
-                Log log = initializeLog(logFromConfig, metricPrefix);
-                validateLog(log);
+            Log log = getValidLogFromConfig(logFromConfig, metricPrefix);
+            if (log != null) {
                 validLogs.add(log);
-            } catch (IllegalArgumentException ex) {
-                LOGGER.error("Invalid Log Configuration : " + logFromConfig.get("displayName"), ex);
             }
         }
         return validLogs;
     }
 
+    /**
+     * @return the log, or null if its configuration is invalid
+     */
+    public static Log getValidLogFromConfig(Map<String, ?> logFromConfig, String metricPrefix) {
+        try {
+            Log log = initializeLog(logFromConfig, metricPrefix);
+            validateLog(log);
+            return log;
+        } catch (IllegalArgumentException ex) {
+            LOGGER.error("Invalid Log Configuration : " + logFromConfig.get("displayName"), ex);
+        }
+        return null;
+    }
+
     private static void validateLog(Log log) {
         if (StringUtils.isBlank(log.getLogDirectory())) {
             throw new IllegalArgumentException("Log directory must not be blank.");
@@ -137,8 +257,164 @@ public class LogMonitorUtil {
         if (log.getSearchStrings() == null || log.getSearchStrings().isEmpty()) {
             throw new IllegalArgumentException("You must provide at least one search string.");
         }
+        for (SearchString searchString : log.getSearchStrings()) {
+            validateValueGroup(searchString);
+        }
+        validateFormat(log);
+        if (log.getScanWeight() <= 0) {
+            throw new IllegalArgumentException("scanWeight must be positive.");
+        }
+        Multiline multiline = log.getMultiline();
+        if (multiline != null) {
+            if (StringUtils.isBlank(multiline.getStartPattern()) && StringUtils.isBlank(multiline.getContinuationPattern())) {
+                throw new IllegalArgumentException("multiline needs a startPattern or a continuationPattern.");
+            }
+            if (multiline.getMaxLines() <= 0 || multiline.getMaxBytes() <= 0) {
+                throw new IllegalArgumentException("multiline maxLines and maxBytes must be positive.");
+            }
+            if (!StringUtils.isBlank(multiline.getStartPattern())) {
+                compilePattern(multiline.getStartPattern());
+            }
+            if (!StringUtils.isBlank(multiline.getContinuationPattern())) {
+                compilePattern(multiline.getContinuationPattern());
+            }
+        }
+        validateSampling(log);
+        if (!StringUtils.isBlank(log.getTimestampFormat())) {
+            try {
+                getTimestampZone(log.getTimestampTimeZone());
+            } catch (DateTimeException ex) {
+                throw new IllegalArgumentException("Invalid timestampTimeZone: " + log.getTimestampTimeZone() + ", " +
+                        ex.getMessage(), ex);
+            }
+            try {
+                createTimestampFormatter(log.getTimestampFormat(), log.getTimestampTimeZone(), Year.now().getValue());
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException("Invalid timestampFormat: " + log.getTimestampFormat() + ", " +
+                        ex.getMessage(), ex);
+            }
+            if (!StringUtils.isBlank(log.getTimestampPattern())) {
+                Pattern.compile(log.getTimestampPattern());
+            }
+        }
+    }
+
+    private static void validateValueGroup(SearchString searchString) {
+        String valueGroup = searchString.getValueGroup();
+        if (StringUtils.isBlank(valueGroup)) {
+            return;
+        }
+        if (searchString.getMatchExactString()) {
+            throw new IllegalArgumentException("valueGroup of " + searchString.getDisplayName() +
+                    " needs matchExactString to be false.");
+        }
+        if (!searchString.getPattern().contains("(?<" + valueGroup + ">")) {
+            throw new IllegalArgumentException("Pattern of " + searchString.getDisplayName() +
+                    " has no named group (?<" + valueGroup + ">...)");
+        }
+    }
+
+    private static void validateSampling(Log log) {
+        Sampling sampling = log.getSampling();
+        if (sampling == null) {
+            return;
+        }
+        if (!Sampling.LINES_MODE.equals(sampling.getMode()) && !Sampling.RANDOM_MODE.equals(sampling.getMode()) &&
+                !Sampling.BLOCKS_MODE.equals(sampling.getMode())) {
+            throw new IllegalArgumentException("sampling mode must be " + Sampling.LINES_MODE + ", " +
+                    Sampling.RANDOM_MODE + " or " + Sampling.BLOCKS_MODE + ".");
+        }
+        if (!(sampling.getRate() > 0 && sampling.getRate() <= 1)) {
+            throw new IllegalArgumentException("sampling rate must be greater than 0 and at most 1.");
+        }
+        if (sampling.getBlockBytes() <= 0) {
+            throw new IllegalArgumentException("sampling blockBytes must be positive.");
+        }
+        // records and minutes would be cut by unsampled lines, and value counts cannot be scaled
+        if (log.getMultiline() != null || !StringUtils.isBlank(log.getTimestampFormat())) {
+            throw new IllegalArgumentException("sampling cannot be combined with multiline or timestampFormat.");
+        }
+        for (SearchString searchString : log.getSearchStrings()) {
+            if (!StringUtils.isBlank(searchString.getValueGroup())) {
+                throw new IllegalArgumentException("sampling cannot be combined with the valueGroup of " +
+                        searchString.getDisplayName() + ".");
+            }
+        }
+    }
+
+    private static void validateFormat(Log log) {
+        boolean json = JSON_FORMAT.equalsIgnoreCase(log.getFormat());
+        if (!json && !StringUtils.isBlank(log.getFormat()) && !TEXT_FORMAT.equalsIgnoreCase(log.getFormat())) {
+            throw new IllegalArgumentException("Unsupported format: " + log.getFormat() + ". Use text or json.");
+        }
+        if (json && log.getMultiline() != null) {
+            throw new IllegalArgumentException("multiline is not supported for json logs.");
+        }
+        for (SearchString searchString : log.getSearchStrings()) {
+            if (!json && !StringUtils.isBlank(searchString.getField())) {
+                throw new IllegalArgumentException("field of " + searchString.getDisplayName() +
+                        " is only supported for json logs.");
+            }
+        }
+    }
+
+    /**
+     * @return an executor starting a virtual thread per task, or null if the JVM does not support virtual threads
+     */
+    public static ExecutorService newVirtualThreadExecutor() {
+        try {
+            // looked up reflectively, the extension is built for Java 8
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (NoSuchMethodException ex) {
+            LOGGER.info("Virtual threads are not supported by Java {}", System.getProperty("java.version"));
+        } catch (Exception ex) {
+            LOGGER.warn("Unable to create a virtual thread executor", ex);
+        }
+        return null;
     }
 
+    public static boolean isJsonFormat(Log log) {
+        return JSON_FORMAT.equalsIgnoreCase(log.getFormat());
+    }
+
+    /**
+     * Parses a plain decimal number (optional sign, digits, optional fraction) without creating a String.
+     *
+     * @return the value, or NaN if the characters are not a number
+     */
+    public static double parseDecimal(CharSequence chars, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (chars.charAt(i) == '-' || chars.charAt(i) == '+')) {
+            negative = chars.charAt(i) == '-';
+            i++;
+        }
+        double value = 0;
+        double scale = 0;
+        boolean hasDigits = false;
+        for (; i < end; i++) {
+            char c = chars.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                scale *= 10;
+                hasDigits = true;
+            } else if (c == '.' && scale == 0) {
+                scale = 1;
+            } else {
+                return Double.NaN;
+            }
+        }
+        if (!hasDigits) {
+            return Double.NaN;
+        }
+        if (scale > 1) {
+            value /= scale;
+        }
+        return negative ? -value : value;
+    }
+
+    @SuppressWarnings("unchecked")
     private static Log initializeLog(Map<String, ?> currentLogFromConfig, String metricPrefix) {
         Log log = new Log();
         log.setDisplayName((String) currentLogFromConfig.get("displayName"));
@@ -146,6 +422,23 @@ public class LogMonitorUtil {
         log.setLogDirectory((String) currentLogFromConfig.get("logDirectory"));
         log.setSearchStrings(initializeSearchStrings(currentLogFromConfig));
 
+        log.setFormat((String) currentLogFromConfig.get("format"));
+        log.setTimestampFormat((String) currentLogFromConfig.get("timestampFormat"));
+        log.setTimestampPattern((String) currentLogFromConfig.get("timestampPattern"));
+        log.setTimestampTimeZone((String) currentLogFromConfig.get("timestampTimeZone"));
+
+        if (currentLogFromConfig.get("scanWeight") != null) {
+            log.setScanWeight(getInteger(currentLogFromConfig, "", "scanWeight"));
+        }
+
+        if (currentLogFromConfig.get("multiline") instanceof Map) {
+            log.setMultiline(initializeMultiline((Map<String, ?>) currentLogFromConfig.get("multiline")));
+        }
+
+        if (currentLogFromConfig.get("sampling") instanceof Map) {
+            log.setSampling(initializeSampling((Map<String, ?>) currentLogFromConfig.get("sampling")));
+        }
+
         if (currentLogFromConfig.containsKey("encoding")) {
             String encodingFromConfig = (String) currentLogFromConfig.get("encoding");
             if (!StringUtils.isBlank(encodingFromConfig) && isValidEncodingType(encodingFromConfig, log.getDisplayName())) {
@@ -155,6 +448,191 @@ public class LogMonitorUtil {
         return log;
     }
 
+    /**
+     * @return the metricOutput section of the config.yml, or the default (print all metrics) if there is none
+     * @throws IllegalArgumentException if the section is invalid
+     */
+    @SuppressWarnings("unchecked")
+    public static MetricOutput getMetricOutput(Map<String, ?> configYml) {
+        MetricOutput metricOutput = new MetricOutput();
+        if (!(configYml.get("metricOutput") instanceof Map)) {
+            return metricOutput;
+        }
+        Map<String, ?> metricOutputFromConfig = (Map<String, ?>) configYml.get("metricOutput");
+        if (metricOutputFromConfig.get("mode") != null) {
+            metricOutput.setMode((String) metricOutputFromConfig.get("mode"));
+        }
+        if (metricOutputFromConfig.get("heartbeatMinutes") != null) {
+            metricOutput.setHeartbeatMinutes(getInteger(metricOutputFromConfig, "metricOutput", "heartbeatMinutes"));
+        }
+        if (metricOutputFromConfig.get("rates") != null) {
+            metricOutput.setRates(getBoolean(metricOutputFromConfig, "metricOutput", "rates"));
+        }
+        if (metricOutputFromConfig.get("totals") != null) {
+            metricOutput.setTotals(getBoolean(metricOutputFromConfig, "metricOutput", "totals"));
+        }
+        if (!MetricOutput.ALL_MODE.equals(metricOutput.getMode()) &&
+                !MetricOutput.CHANGED_MODE.equals(metricOutput.getMode())) {
+            throw new IllegalArgumentException("metricOutput mode must be " + MetricOutput.ALL_MODE + " or " +
+                    MetricOutput.CHANGED_MODE + ".");
+        }
+        if (metricOutput.getHeartbeatMinutes() <= 0) {
+            throw new IllegalArgumentException("metricOutput heartbeatMinutes must be positive.");
+        }
+        return metricOutput;
+    }
+
+    /**
+     * @return the eventBatching section of the config.yml, or the defaults if there is none
+     * @throws IllegalArgumentException if the section is invalid
+     */
+    @SuppressWarnings("unchecked")
+    public static EventBatching getEventBatching(Map<String, ?> configYml) {
+        EventBatching eventBatching = new EventBatching();
+        if (!(configYml.get("eventBatching") instanceof Map)) {
+            return eventBatching;
+        }
+        Map<String, ?> batchingFromConfig = (Map<String, ?>) configYml.get("eventBatching");
+        if (batchingFromConfig.get("maxBatchBytes") != null) {
+            eventBatching.setMaxBatchBytes(getInteger(batchingFromConfig, "eventBatching", "maxBatchBytes"));
+        }
+        if (batchingFromConfig.get("maxBatchEvents") != null) {
+            eventBatching.setMaxBatchEvents(getInteger(batchingFromConfig, "eventBatching", "maxBatchEvents"));
+        }
+        if (batchingFromConfig.get("maxConcurrentRequests") != null) {
+            eventBatching.setMaxConcurrentRequests(getInteger(batchingFromConfig, "eventBatching",
+                    "maxConcurrentRequests"));
+        }
+        if (eventBatching.getMaxBatchBytes() <= 0 || eventBatching.getMaxBatchEvents() <= 0 ||
+                eventBatching.getMaxConcurrentRequests() <= 0) {
+            throw new IllegalArgumentException("eventBatching maxBatchBytes, maxBatchEvents and " +
+                    "maxConcurrentRequests must be positive.");
+        }
+        return eventBatching;
+    }
+
+    /**
+     * @return the eventOutput section of the config.yml, or the defaults if there is none
+     * @throws IllegalArgumentException if the section is invalid
+     */
+    @SuppressWarnings("unchecked")
+    public static EventOutput getEventOutput(Map<String, ?> configYml) {
+        EventOutput eventOutput = new EventOutput();
+        if (!(configYml.get("eventOutput") instanceof Map)) {
+            return eventOutput;
+        }
+        Map<String, ?> eventOutputFromConfig = (Map<String, ?>) configYml.get("eventOutput");
+        if (eventOutputFromConfig.get("type") != null) {
+            eventOutput.setType((String) eventOutputFromConfig.get("type"));
+        }
+        if (eventOutputFromConfig.get("directory") != null) {
+            eventOutput.setDirectory((String) eventOutputFromConfig.get("directory"));
+        }
+        if (eventOutputFromConfig.get("maxFileMB") != null) {
+            eventOutput.setMaxFileMB(getInteger(eventOutputFromConfig, "eventOutput", "maxFileMB"));
+        }
+        if (eventOutputFromConfig.get("maxFiles") != null) {
+            eventOutput.setMaxFiles(getInteger(eventOutputFromConfig, "eventOutput", "maxFiles"));
+        }
+        if (!EventOutput.EVENTS_SERVICE_TYPE.equals(eventOutput.getType()) &&
+                !EventOutput.FILE_TYPE.equals(eventOutput.getType()) &&
+                !EventOutput.NONE_TYPE.equals(eventOutput.getType())) {
+            throw new IllegalArgumentException("eventOutput type must be " + EventOutput.EVENTS_SERVICE_TYPE + ", " +
+                    EventOutput.FILE_TYPE + " or " + EventOutput.NONE_TYPE + ".");
+        }
+        if (StringUtils.isBlank(eventOutput.getDirectory())) {
+            throw new IllegalArgumentException("eventOutput directory must not be empty.");
+        }
+        if (eventOutput.getMaxFileMB() <= 0 || eventOutput.getMaxFiles() <= 0) {
+            throw new IllegalArgumentException("eventOutput maxFileMB and maxFiles must be positive.");
+        }
+        return eventOutput;
+    }
+
+    /**
+     * @return the eventDeduplication section of the config.yml, or null if there is none
+     * @throws IllegalArgumentException if the section is invalid
+     */
+    @SuppressWarnings("unchecked")
+    public static EventDeduplication getEventDeduplication(Map<String, ?> configYml) {
+        if (!(configYml.get("eventDeduplication") instanceof Map)) {
+            return null;
+        }
+        Map<String, ?> deduplicationFromConfig = (Map<String, ?>) configYml.get("eventDeduplication");
+        EventDeduplication eventDeduplication = new EventDeduplication();
+        if (deduplicationFromConfig.get("windowSeconds") != null) {
+            eventDeduplication.setWindowSeconds(getInteger(deduplicationFromConfig, "eventDeduplication",
+                    "windowSeconds"));
+        }
+        if (deduplicationFromConfig.get("maxFingerprints") != null) {
+            eventDeduplication.setMaxFingerprints(getInteger(deduplicationFromConfig, "eventDeduplication",
+                    "maxFingerprints"));
+        }
+        if (eventDeduplication.getWindowSeconds() < 0) {
+            throw new IllegalArgumentException("eventDeduplication windowSeconds must not be negative.");
+        }
+        if (eventDeduplication.getMaxFingerprints() <= 0) {
+            throw new IllegalArgumentException("eventDeduplication maxFingerprints must be positive.");
+        }
+        return eventDeduplication;
+    }
+
+    private static Multiline initializeMultiline(Map<String, ?> multilineFromConfig) {
+        Multiline multiline = new Multiline();
+        multiline.setStartPattern((String) multilineFromConfig.get("startPattern"));
+        multiline.setContinuationPattern((String) multilineFromConfig.get("continuationPattern"));
+        if (multilineFromConfig.get("maxLines") != null) {
+            multiline.setMaxLines(getInteger(multilineFromConfig, "multiline", "maxLines"));
+        }
+        if (multilineFromConfig.get("maxBytes") != null) {
+            multiline.setMaxBytes(getInteger(multilineFromConfig, "multiline", "maxBytes"));
+        }
+        return multiline;
+    }
+
+    private static Sampling initializeSampling(Map<String, ?> samplingFromConfig) {
+        Sampling sampling = new Sampling();
+        if (samplingFromConfig.get("mode") != null) {
+            sampling.setMode((String) samplingFromConfig.get("mode"));
+        }
+        if (samplingFromConfig.get("rate") != null) {
+            sampling.setRate(getNumber(samplingFromConfig, "sampling", "rate").doubleValue());
+        }
+        if (samplingFromConfig.get("blockBytes") != null) {
+            sampling.setBlockBytes(getInteger(samplingFromConfig, "sampling", "blockBytes"));
+        }
+        return sampling;
+    }
+
+    // the yaml parser maps values to their own types, a value of the wrong type is a configuration error
+    private static int getInteger(Map<String, ?> section, String sectionName, String key) {
+        Object value = section.get(key);
+        if (!(value instanceof Integer)) {
+            throw new IllegalArgumentException(describe(sectionName, key) + " must be a whole number, found: " + value);
+        }
+        return (Integer) value;
+    }
+
+    private static boolean getBoolean(Map<String, ?> section, String sectionName, String key) {
+        Object value = section.get(key);
+        if (!(value instanceof Boolean)) {
+            throw new IllegalArgumentException(describe(sectionName, key) + " must be true or false, found: " + value);
+        }
+        return (Boolean) value;
+    }
+
+    private static Number getNumber(Map<String, ?> section, String sectionName, String key) {
+        Object value = section.get(key);
+        if (!(value instanceof Number)) {
+            throw new IllegalArgumentException(describe(sectionName, key) + " must be a number, found: " + value);
+        }
+        return (Number) value;
+    }
+
+    private static String describe(String sectionName, String key) {
+        return sectionName.isEmpty() ? key : sectionName + " " + key;
+    }
+
     private static List<SearchString> initializeSearchStrings(Map<String, ?> currentLogFromConfig) {
         List<SearchString> searchStrings = Lists.newArrayList();
         List<Map<String, ?>> searchStringsForCurrentLog = (List) currentLogFromConfig.get("searchStrings");
@@ -165,6 +643,8 @@ public class LogMonitorUtil {
             searchString.setMatchExactString((Boolean) searchStringFromLog.get("matchExactString"));
             searchString.setCaseSensitive((Boolean) searchStringFromLog.get("caseSensitive"));
             searchString.setPrintMatchedString((Boolean) searchStringFromLog.get("printMatchedString"));
+            searchString.setValueGroup((String) searchStringFromLog.get("valueGroup"));
+            searchString.setField((String) searchStringFromLog.get("field"));
             searchStrings.add(searchString);
         }
         return searchStrings;
@@ -196,14 +676,6 @@ public class LogMonitorUtil {
         outputStreamWriter.close();
     }
 
-    public static List<Metric> getFinalMetricList(Map<String, Metric> metricMap) {
-        List<Metric> metrics = Lists.newArrayList();
-        for (Map.Entry<String, Metric> metric : metricMap.entrySet()) {
-            metrics.add(metric.getValue());
-        }
-        return metrics;
-    }
-
     public static CopyOnWriteArrayList<String> prepareEventsForPublishing(List<LogEvent> eventsToBePublished) {
         CopyOnWriteArrayList<String> events = new CopyOnWriteArrayList<String>();
         ObjectMapper mapper = new ObjectMapper();
@@ -24,6 +24,8 @@
 package org.bitbucket.kienerj;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 /**
  * Copied from original lib (as jar was compiled with higher JDK causing UnsupportedClassVersionError):
@@ -38,7 +40,9 @@ import java.io.*;
  *
  * <p> {@link RandomAccessFile#readLine()} is very slow as it reads a
  * file byte by byte. This here will perform 2 orders of magnitude faster.
- * For thread-safety all read and write methods are synchronized. </p>
+ * An instance is not thread-safe: it is read by a single thread at a time, so
+ * that blocking reads do not hold a monitor and pin the carrier of a virtual
+ * thread. </p>
  * </p>
  * If the underlying {@link java.nio.channels.FileChannel
  * <code>FileChannel</code>} is manipulated, the behavior is unpredictable.
@@ -52,8 +56,12 @@ public class OptimizedRandomAccessFile {
     private static final int BUFFER_SIZE = 8192;
     private static int defaultExpectedLineLength = 80;
     private RandomAccessFile raf;
-    private Long actualFilePointer;
+    private static final long UNKNOWN_POSITION = -1L;
+    private long actualFilePointer = UNKNOWN_POSITION;
     private char[] charBuffer;
+    private byte[] byteBuffer;
+    private ByteBuffer directBuffer;
+    private FileChannel channel;
     private int nChars, nextChar;
     private int bufferSize;
     private long lastOffset;
@@ -81,10 +89,50 @@ public class OptimizedRandomAccessFile {
      */
     public OptimizedRandomAccessFile(File file, String mode)
             throws FileNotFoundException {
+        this(file, mode, new char[BUFFER_SIZE], new byte[BUFFER_SIZE]);
+    }
+
+    /**
+     * Same as {@link #OptimizedRandomAccessFile(File, String)} but reads through
+     * caller supplied buffers, so that a scanner can reuse them across files.
+     * Both buffers must have the same length.
+     *
+     * @param file
+     * @param mode
+     * @param charBuffer
+     * @param byteBuffer
+     * @throws FileNotFoundException
+     */
+    public OptimizedRandomAccessFile(File file, String mode, char[] charBuffer, byte[] byteBuffer)
+            throws FileNotFoundException {
+        this.raf = new RandomAccessFile(file, mode);
+        actualFilePointer = UNKNOWN_POSITION;
+        this.bufferSize = Math.min(charBuffer.length, byteBuffer.length);
+        this.charBuffer = charBuffer;
+        this.byteBuffer = byteBuffer;
+    }
+
+    /**
+     * Same as {@link #OptimizedRandomAccessFile(File, String, char[], byte[])}
+     * but reads through the file channel into a caller supplied (typically
+     * direct) buffer, which saves the copy through a temporary native buffer
+     * for large reads. The char buffer must be at least as long as the
+     * capacity of the byte buffer.
+     *
+     * @param file
+     * @param mode
+     * @param charBuffer
+     * @param directBuffer
+     * @throws FileNotFoundException
+     */
+    public OptimizedRandomAccessFile(File file, String mode, char[] charBuffer, ByteBuffer directBuffer)
+            throws FileNotFoundException {
         this.raf = new RandomAccessFile(file, mode);
-        actualFilePointer = null;
-        this.bufferSize = BUFFER_SIZE;
-        charBuffer = new char[bufferSize];
+        actualFilePointer = UNKNOWN_POSITION;
+        this.bufferSize = Math.min(charBuffer.length, directBuffer.capacity());
+        this.charBuffer = charBuffer;
+        this.directBuffer = directBuffer;
+        this.channel = raf.getChannel();
     }
 
     /**
@@ -111,7 +159,7 @@ public class OptimizedRandomAccessFile {
      * @exception IOException if an I/O error occurs. Not thrown if end-of-file
      * has been reached.
      */
-    public synchronized int read() throws IOException {
+    public int read() throws IOException {
         //resetPosition();
         for (;;) {
             if (nextChar >= nChars) {
@@ -144,7 +192,7 @@ public class OptimizedRandomAccessFile {
              characters into the local buffer.  In this way buffered streams
              will cascade harmlessly. */
             if (len >= charBuffer.length && !skipLF) {
-                actualFilePointer = null;
+                actualFilePointer = UNKNOWN_POSITION;
                 return raf.read(cbuf, off, len);
             }
             fill();
@@ -196,7 +244,7 @@ public class OptimizedRandomAccessFile {
      * <code>len</code> is negative, or <code>len</code> is greater than
      * <code>b.length - off</code>
      */
-    public synchronized int read(byte b[], int off, int len) throws IOException {
+    public int read(byte b[], int off, int len) throws IOException {
         //resetPosition();
         if ((off < 0) || (off > b.length) || (len < 0)
                 || ((off + len) > b.length) || ((off + len) < 0)) {
@@ -236,7 +284,7 @@ public class OptimizedRandomAccessFile {
      * if some other I/O error occurs.
      * @exception NullPointerException If <code>b</code> is <code>null</code>.
      */
-    public synchronized int read(byte b[]) throws IOException {
+    public int read(byte b[]) throws IOException {
         return read(b, 0, b.length);
     }
 
@@ -253,7 +301,7 @@ public class OptimizedRandomAccessFile {
      * the bytes.
      * @exception IOException if an I/O error occurs.
      */
-    public synchronized final void readFully(byte b[]) throws IOException {
+    public final void readFully(byte b[]) throws IOException {
         resetPosition();
         raf.readFully(b);
     }
@@ -273,7 +321,7 @@ public class OptimizedRandomAccessFile {
      * the bytes.
      * @exception IOException if an I/O error occurs.
      */
-    public synchronized final void readFully(byte b[], int off, int len) throws IOException {
+    public final void readFully(byte b[], int off, int len) throws IOException {
         resetPosition();
         raf.readFully(b, off, len);
     }
@@ -295,7 +343,7 @@ public class OptimizedRandomAccessFile {
      * @return the actual number of bytes skipped.
      * @exception IOException if an I/O error occurs.
      */
-    public synchronized int skipBytes(int n) throws IOException {
+    public int skipBytes(int n) throws IOException {
 
         if (n < 0L) {
             throw new IllegalArgumentException("skip value is negative");
@@ -341,7 +389,7 @@ public class OptimizedRandomAccessFile {
      * @param b the <code>byte</code> to be written.
      * @exception IOException if an I/O error occurs.
      */
-    public synchronized void write(int b) throws IOException {
+    public void write(int b) throws IOException {
         resetPosition();
         raf.write(b);
     }
@@ -354,7 +402,7 @@ public class OptimizedRandomAccessFile {
      * @param b the data.
      * @exception IOException if an I/O error occurs.
      */
-    public synchronized void write(byte b[]) throws IOException {
+    public void write(byte b[]) throws IOException {
         resetPosition();
         raf.write(b, 0, b.length);
     }
@@ -369,7 +417,7 @@ public class OptimizedRandomAccessFile {
      * @param len the number of bytes to write.
      * @exception IOException if an I/O error occurs.
      */
-    public synchronized void write(byte b[], int off, int len) throws IOException {
+    public void write(byte b[], int off, int len) throws IOException {
         resetPosition();
         raf.write(b, off, len);
     }
@@ -382,8 +430,8 @@ public class OptimizedRandomAccessFile {
      * next read or write occurs.
      * @exception IOException if an I/O error occurs.
      */
-    public synchronized long getFilePointer() throws IOException {
-        if (actualFilePointer == null) {
+    public long getFilePointer() throws IOException {
+        if (actualFilePointer == UNKNOWN_POSITION) {
             return raf.getFilePointer();
         } else {
             return this.actualFilePointer;
@@ -402,8 +450,8 @@ public class OptimizedRandomAccessFile {
      * @exception IOException if <code>pos</code> is less than <code>0</code> or
      * if an I/O error occurs.
      */
-    public synchronized void seek(long pos) throws IOException {
-        actualFilePointer = null;
+    public void seek(long pos) throws IOException {
+        actualFilePointer = UNKNOWN_POSITION;
         resetPosition();
         raf.seek(pos);
     }
@@ -414,7 +462,7 @@ public class OptimizedRandomAccessFile {
      * @return the length of this file, measured in bytes.
      * @exception IOException if an I/O error occurs.
      */
-    public synchronized long length() throws IOException {
+    public long length() throws IOException {
         return raf.length();
     }
 
@@ -439,7 +487,7 @@ public class OptimizedRandomAccessFile {
      * @exception IOException If an I/O error occurs
      * @since 1.2
      */
-    public synchronized void setLength(long newLength) throws IOException {
+    public void setLength(long newLength) throws IOException {
         if (newLength < raf.length()) {
             resetPosition();
         }
@@ -480,7 +528,7 @@ public class OptimizedRandomAccessFile {
      * @exception EOFException if this file has reached the end.
      * @exception IOException if an I/O error occurs.
      */
-    public synchronized final boolean readBoolean() throws IOException {
+    public final boolean readBoolean() throws IOException {
         resetPosition();
         return raf.readBoolean();
     }
@@ -501,7 +549,7 @@ public class OptimizedRandomAccessFile {
      * @exception EOFException if this file has reached the end.
      * @exception IOException if an I/O error occurs.
      */
-    public synchronized final byte readByte() throws IOException {
+    public final byte readByte() throws IOException {
         resetPosition();
         return raf.readByte();
     }
@@ -517,7 +565,7 @@ public class OptimizedRandomAccessFile {
      * @exception EOFException if this file has reached the end.
      * @exception IOException if an I/O error occurs.
      */
-    public synchronized final int readUnsignedByte() throws IOException {
+    public final int readUnsignedByte() throws IOException {
         resetPosition();
         return raf.readUnsignedByte();
     }
@@ -541,7 +589,7 @@ public class OptimizedRandomAccessFile {
      * bytes.
      * @exception IOException if an I/O error occurs.
      */
-    public synchronized final short readShort() throws IOException {
+    public final short readShort() throws IOException {
         resetPosition();
         return raf.readShort();
     }
@@ -565,7 +613,7 @@ public class OptimizedRandomAccessFile {
      * bytes.
      * @exception IOException if an I/O error occurs.
      */
-    public synchronized final int readUnsignedShort() throws IOException {
+    public final int readUnsignedShort() throws IOException {
         resetPosition();
         return raf.readUnsignedShort();
     }
@@ -589,7 +637,7 @@ public class OptimizedRandomAccessFile {
      * bytes.
      * @exception IOException if an I/O error occurs.
      */
-    public synchronized final char readChar() throws IOException {
+    public final char readChar() throws IOException {
         resetPosition();
         return raf.readChar();
     }
@@ -615,7 +663,7 @@ public class OptimizedRandomAccessFile {
      * bytes.
      * @exception IOException if an I/O error occurs.
      */
-    public synchronized final int readInt() throws IOException {
+    public final int readInt() throws IOException {
         resetPosition();
         return raf.readInt();
     }
@@ -649,7 +697,7 @@ public class OptimizedRandomAccessFile {
      * bytes.
      * @exception IOException if an I/O error occurs.
      */
-    public synchronized final long readLong() throws IOException {
+    public final long readLong() throws IOException {
         resetPosition();
         return raf.readLong();
     }
@@ -674,7 +722,7 @@ public class OptimizedRandomAccessFile {
      * @see RandomAccessFile#readInt()
      * @see Float#intBitsToFloat(int)
      */
-    public synchronized final float readFloat() throws IOException {
+    public final float readFloat() throws IOException {
         resetPosition();
         return raf.readFloat();
     }
@@ -699,7 +747,7 @@ public class OptimizedRandomAccessFile {
      * @see RandomAccessFile#readLong()
      * @see Double#longBitsToDouble(long)
      */
-    public synchronized final double readDouble() throws IOException {
+    public final double readDouble() throws IOException {
         resetPosition();
         return raf.readDouble();
     }
@@ -723,7 +771,7 @@ public class OptimizedRandomAccessFile {
      * encountered before even one byte is read.
      * @exception IOException if an I/O error occurs.
      */
-    public synchronized final String readLine(boolean ignoreLF) throws IOException {
+    public final String readLine(boolean ignoreLF) throws IOException {
 
         StringBuilder s = null;
         int startChar;
@@ -803,22 +851,238 @@ public class OptimizedRandomAccessFile {
      * @return
      * @throws IOException
      */
-    public synchronized String readLine() throws IOException {
+    public String readLine() throws IOException {
         return readLine(false);
     }
 
+    /**
+     * <p> Same as {@link #readLine()} but appends the line to the supplied
+     * builder instead of creating a new <code>String</code>. The builder is
+     * cleared first. </p>
+     *
+     * @param line the builder receiving the next line of text
+     * @return false if end of file is encountered before even one byte is read
+     * @throws IOException
+     */
+    public boolean readLine(StringBuilder line) throws IOException {
+
+        int startChar;
+        int separatorIndex = 0;
+
+        boolean omitLF = skipLF;
+        line.setLength(0);
+
+        for (;;) {
+
+            if (nextChar >= nChars) {
+                fill();
+            }
+            if (nextChar >= nChars) { /* EOF */
+                return line.length() > 0;
+            }
+            boolean eol = false;
+            char c = 0;
+            int i;
+
+            /* Skip a leftover '\n', if necessary */
+            if (omitLF && (charBuffer[nextChar] == '\n')) {
+                nextChar++;
+            }
+            skipLF = false;
+            omitLF = false;
+
+            charLoop:
+            for (i = nextChar; i < nChars; i++) {
+                c = charBuffer[i];
+                if ((c == '\n') || (c == '\r')) {
+                    eol = true;
+                    break charLoop;
+                }
+            }
+
+            startChar = nextChar;
+            nextChar = i;
+            line.append(charBuffer, startChar, i - startChar);
+
+            if (eol) {
+                nextChar++;
+                if (c == '\r') {
+                    skipLF = true;
+                    if (nextChar >= nChars) {
+                        fill();
+                    }
+                    if (charBuffer[nextChar] == '\n') {
+                        separatorIndex = 1;
+                    }
+                }
+                actualFilePointer = lastOffset + nextChar + separatorIndex;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * <p> Same as {@link #readLine(StringBuilder)} but appends at most
+     * <code>maxLength</code> characters of the next line to the builder,
+     * which is not cleared, and moves past the rest of the line without
+     * copying it. As each byte of the file is read as one character, the
+     * length is a number of bytes. </p>
+     *
+     * @param line the builder the start of the next line is appended to
+     * @param maxLength the most characters to append
+     * @return the number of characters of the line that were not appended,
+     * or -1 if end of file is encountered before even one byte is read
+     * @throws IOException
+     */
+    public long appendLine(StringBuilder line, int maxLength) throws IOException {
+
+        int separatorIndex = 0;
+        boolean read = false;
+        long skipped = 0;
+        int room = Math.max(0, maxLength);
+
+        boolean omitLF = skipLF;
+
+        for (;;) {
+
+            if (nextChar >= nChars) {
+                fill();
+            }
+            if (nextChar >= nChars) { /* EOF */
+                return read ? skipped : -1;
+            }
+            boolean eol = false;
+            char c = 0;
+            int i;
+
+            /* Skip a leftover '\n', if necessary */
+            if (omitLF && (charBuffer[nextChar] == '\n')) {
+                nextChar++;
+            }
+            skipLF = false;
+            omitLF = false;
+
+            charLoop:
+            for (i = nextChar; i < nChars; i++) {
+                c = charBuffer[i];
+                if ((c == '\n') || (c == '\r')) {
+                    eol = true;
+                    break charLoop;
+                }
+            }
+
+            int length = i - nextChar;
+            int copied = Math.min(length, room);
+            line.append(charBuffer, nextChar, copied);
+            room -= copied;
+            skipped += length - copied;
+            read |= length > 0;
+            nextChar = i;
+
+            if (eol) {
+                nextChar++;
+                if (c == '\r') {
+                    skipLF = true;
+                    if (nextChar >= nChars) {
+                        fill();
+                    }
+                    if (charBuffer[nextChar] == '\n') {
+                        separatorIndex = 1;
+                    }
+                }
+                actualFilePointer = lastOffset + nextChar + separatorIndex;
+                return skipped;
+            }
+        }
+    }
+
+    /**
+     * <p> Same as {@link #readLine(StringBuilder)} but only moves past the
+     * next line without copying it. </p>
+     *
+     * @return false if end of file is encountered before even one byte is read
+     * @throws IOException
+     */
+    public boolean skipLine() throws IOException {
+
+        int separatorIndex = 0;
+        boolean skipped = false;
+
+        boolean omitLF = skipLF;
+
+        for (;;) {
+
+            if (nextChar >= nChars) {
+                fill();
+            }
+            if (nextChar >= nChars) { /* EOF */
+                return skipped;
+            }
+            boolean eol = false;
+            char c = 0;
+            int i;
+
+            /* Skip a leftover '\n', if necessary */
+            if (omitLF && (charBuffer[nextChar] == '\n')) {
+                nextChar++;
+            }
+            skipLF = false;
+            omitLF = false;
+
+            charLoop:
+            for (i = nextChar; i < nChars; i++) {
+                c = charBuffer[i];
+                if ((c == '\n') || (c == '\r')) {
+                    eol = true;
+                    break charLoop;
+                }
+            }
+
+            skipped |= i > nextChar;
+            nextChar = i;
+
+            if (eol) {
+                nextChar++;
+                if (c == '\r') {
+                    skipLF = true;
+                    if (nextChar >= nChars) {
+                        fill();
+                    }
+                    if (charBuffer[nextChar] == '\n') {
+                        separatorIndex = 1;
+                    }
+                }
+                actualFilePointer = lastOffset + nextChar + separatorIndex;
+                return true;
+            }
+        }
+    }
+
     private void fill() throws IOException {
 
         lastOffset = raf.getFilePointer();
         actualFilePointer = lastOffset;
-        byte[] buffer = new byte[bufferSize];
-        int n = raf.read(buffer);
+        int n;
+        if (directBuffer != null) {
+            // the channel shares the position of raf
+            directBuffer.clear();
+            directBuffer.limit(bufferSize);
+            n = channel.read(directBuffer);
+            for (int i = 0; i < n; i++) {
+                charBuffer[i] = (char) directBuffer.get(i);
+            }
+        } else {
+            n = raf.read(byteBuffer, 0, bufferSize);
+            for (int i = 0; i < n; i++) {
+                charBuffer[i] = (char) byteBuffer[i];
+            }
+        }
         if (n > 0) {
             nChars = n;
             nextChar = 0;
-        }
-        for (int i = 0; i < buffer.length; i++) {
-            charBuffer[i] = (char) buffer[i];
+        } else if (nextChar < bufferSize) {
+            // nothing read: make sure a stale char is not mistaken for a trailing '\n'
+            charBuffer[nextChar] = 0;
         }
     }
 
@@ -842,7 +1106,7 @@ public class OptimizedRandomAccessFile {
      * modified UTF-8 encoding of a Unicode string.
      * @see RandomAccessFile#readUnsignedShort()
      */
-    public synchronized final String readUTF() throws IOException {
+    public final String readUTF() throws IOException {
         resetPosition();
         return raf.readUTF();
     }
@@ -859,7 +1123,7 @@ public class OptimizedRandomAccessFile {
      * @param v a <code>boolean</code> value to be written.
      * @exception IOException if an I/O error occurs.
      */
-    public synchronized final void writeBoolean(boolean v) throws IOException {
+    public final void writeBoolean(boolean v) throws IOException {
         resetPosition();
         raf.writeBoolean(v);
     }
@@ -872,7 +1136,7 @@ public class OptimizedRandomAccessFile {
      * @param v a <code>byte</code> value to be written.
      * @exception IOException if an I/O error occurs.
      */
-    public synchronized final void writeByte(int v) throws IOException {
+    public final void writeByte(int v) throws IOException {
         resetPosition();
         raf.writeByte(v);
     }
@@ -885,7 +1149,7 @@ public class OptimizedRandomAccessFile {
      * @param v a <code>short</code> to be written.
      * @exception IOException if an I/O error occurs.
      */
-    public synchronized final void writeShort(int v) throws IOException {
+    public final void writeShort(int v) throws IOException {
         resetPosition();
         raf.writeShort(v);
     }
@@ -898,7 +1162,7 @@ public class OptimizedRandomAccessFile {
      * @param v a <code>char</code> value to be written.
      * @exception IOException if an I/O error occurs.
      */
-    public synchronized final void writeChar(int v) throws IOException {
+    public final void writeChar(int v) throws IOException {
         resetPosition();
         raf.writeChar(v);
     }
@@ -911,7 +1175,7 @@ public class OptimizedRandomAccessFile {
      * @param v an <code>int</code> to be written.
      * @exception IOException if an I/O error occurs.
      */
-    public synchronized final void writeInt(int v) throws IOException {
+    public final void writeInt(int v) throws IOException {
         resetPosition();
         raf.writeInt(v);
     }
@@ -924,7 +1188,7 @@ public class OptimizedRandomAccessFile {
      * @param v a <code>long</code> to be written.
      * @exception IOException if an I/O error occurs.
      */
-    public synchronized final void writeLong(long v) throws IOException {
+    public final void writeLong(long v) throws IOException {
         resetPosition();
         raf.writeLong(v);
     }
@@ -941,7 +1205,7 @@ public class OptimizedRandomAccessFile {
      * @exception IOException if an I/O error occurs.
      * @see Float#floatToIntBits(float)
      */
-    public synchronized final void writeFloat(float v) throws IOException {
+    public final void writeFloat(float v) throws IOException {
         resetPosition();
         raf.writeFloat(v);
     }
@@ -958,7 +1222,7 @@ public class OptimizedRandomAccessFile {
      * @exception IOException if an I/O error occurs.
      * @see Double#doubleToLongBits(double)
      */
-    public synchronized final void writeDouble(double v) throws IOException {
+    public final void writeDouble(double v) throws IOException {
         resetPosition();
         raf.writeDouble(v);
     }
@@ -971,7 +1235,7 @@ public class OptimizedRandomAccessFile {
      * @param s a string of bytes to be written.
      * @exception IOException if an I/O error occurs.
      */
-    public synchronized final void writeBytes(String s) throws IOException {
+    public final void writeBytes(String s) throws IOException {
         resetPosition();
         raf.writeBytes(s);
     }
@@ -986,7 +1250,7 @@ public class OptimizedRandomAccessFile {
      * @exception IOException if an I/O error occurs.
      * @see RandomAccessFile#writeChar(int)
      */
-    public synchronized final void writeChars(String s) throws IOException {
+    public final void writeChars(String s) throws IOException {
         resetPosition();
         raf.writeChars(s);
     }
@@ -1004,15 +1268,15 @@ public class OptimizedRandomAccessFile {
      * @param str a string to be written.
      * @exception IOException if an I/O error occurs.
      */
-    public synchronized final void writeUTF(String str) throws IOException {
+    public final void writeUTF(String str) throws IOException {
         resetPosition();
         raf.writeUTF(str);
     }
 
     private void resetPosition() throws IOException {
-        if (actualFilePointer != null) {
+        if (actualFilePointer != UNKNOWN_POSITION) {
             raf.seek(actualFilePointer);
-            actualFilePointer = null;
+            actualFilePointer = UNKNOWN_POSITION;
         }
         nChars = 0;
         nextChar = 0;
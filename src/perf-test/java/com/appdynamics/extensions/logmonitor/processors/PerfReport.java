@@ -0,0 +1,114 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.processors;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The results of the scenarios of a {@link ThroughputBenchmark} run, written as JSON and compared with the results
+ * of a baseline run. The baseline is a report of an earlier run, e.g. of the last release on the same machine.
+ */
+class PerfReport {
+    static final String MB_PER_SECOND = "mbPerSecond";
+    static final String ALLOCATED_BYTES_PER_MB = "allocatedBytesPerMB";
+    static final String CYCLE_MILLIS = "cycleMillis";
+    private static final String SCENARIOS = "scenarios";
+    // a steady scan allocates next to nothing, a few hundred bytes more per MB vary with JIT and thread scheduling
+    private static final double ALLOCATION_SLACK_BYTES_PER_MB = 1024;
+
+    private final Map<String, Map<String, Object>> scenarios = new LinkedHashMap<String, Map<String, Object>>();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    synchronized void record(String scenario, long bytes, long cycleNanos, long allocatedBytes) {
+        double megabytes = bytes / (1024.0 * 1024.0);
+        Map<String, Object> result = new LinkedHashMap<String, Object>();
+        result.put("bytes", bytes);
+        result.put(MB_PER_SECOND, round(megabytes / (cycleNanos / 1e9)));
+        result.put(ALLOCATED_BYTES_PER_MB, round(allocatedBytes / Math.max(megabytes, 1e-9)));
+        result.put(CYCLE_MILLIS, round(cycleNanos / 1e6));
+        scenarios.put(scenario, result);
+    }
+
+    void write(File file, double threshold) throws IOException {
+        Map<String, Object> report = new LinkedHashMap<String, Object>();
+        report.put("timestamp", System.currentTimeMillis());
+        report.put("javaVersion", System.getProperty("java.version"));
+        report.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        report.put("regressionThreshold", threshold);
+        synchronized (this) {
+            report.put(SCENARIOS, scenarios);
+        }
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Unable to create " + parent);
+        }
+        mapper.writerWithDefaultPrettyPrinter().writeValue(file, report);
+    }
+
+    /**
+     * A scenario regresses when its throughput dropped, or its cycle time or allocations grew, by more than the
+     * threshold. Scenarios missing from the baseline are not compared.
+     *
+     * @param threshold the tolerated change, e.g. 0.25 for 25%
+     * @return a description of each regression, empty if there is none
+     */
+    @SuppressWarnings("unchecked")
+    synchronized List<String> compare(File baselineFile, double threshold) throws IOException {
+        Map<String, Object> baseline = mapper.readValue(baselineFile, Map.class);
+        Map<String, Map<String, Number>> baselineScenarios = (Map<String, Map<String, Number>>) baseline.get(SCENARIOS);
+        List<String> regressions = Lists.newArrayList();
+        if (baselineScenarios == null) {
+            return regressions;
+        }
+        for (Map.Entry<String, Map<String, Object>> entry : scenarios.entrySet()) {
+            Map<String, Number> expected = baselineScenarios.get(entry.getKey());
+            if (expected == null) {
+                continue;
+            }
+            Map<String, Object> actual = entry.getValue();
+            checkNotBelow(regressions, entry.getKey(), MB_PER_SECOND, expected, actual, threshold);
+            checkNotAbove(regressions, entry.getKey(), CYCLE_MILLIS, expected, actual, threshold, 0);
+            checkNotAbove(regressions, entry.getKey(), ALLOCATED_BYTES_PER_MB, expected, actual, threshold,
+                    ALLOCATION_SLACK_BYTES_PER_MB);
+        }
+        return regressions;
+    }
+
+    private static void checkNotBelow(List<String> regressions, String scenario, String measure,
+                                      Map<String, Number> expected, Map<String, Object> actual, double threshold) {
+        double baselineValue = expected.get(measure).doubleValue();
+        double value = ((Number) actual.get(measure)).doubleValue();
+        if (value < baselineValue * (1 - threshold)) {
+            regressions.add(String.format("%s: %s %.2f is below the baseline %.2f", scenario, measure, value,
+                    baselineValue));
+        }
+    }
+
+    private static void checkNotAbove(List<String> regressions, String scenario, String measure,
+                                      Map<String, Number> expected, Map<String, Object> actual, double threshold,
+                                      double slack) {
+        double baselineValue = expected.get(measure).doubleValue();
+        double value = ((Number) actual.get(measure)).doubleValue();
+        if (value > baselineValue * (1 + threshold) + slack) {
+            regressions.add(String.format("%s: %s %.2f is above the baseline %.2f", scenario, measure, value,
+                    baselineValue));
+        }
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
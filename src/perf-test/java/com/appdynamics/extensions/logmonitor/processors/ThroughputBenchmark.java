@@ -0,0 +1,396 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.processors;
+
+import com.appdynamics.extensions.AMonitorJob;
+import com.appdynamics.extensions.conf.MonitorContextConfiguration;
+import com.appdynamics.extensions.eventsservice.EventsServiceDataManager;
+import com.appdynamics.extensions.logging.ExtensionsLoggerFactory;
+import com.appdynamics.extensions.logmonitor.EventsPublisher;
+import com.appdynamics.extensions.logmonitor.EventsServiceSink;
+import com.appdynamics.extensions.logmonitor.LogEventSink;
+import com.appdynamics.extensions.logmonitor.config.Log;
+import com.appdynamics.extensions.logmonitor.config.SearchString;
+import com.appdynamics.extensions.logmonitor.metrics.LogMetrics;
+import com.appdynamics.extensions.logmonitor.util.LogMonitorUtil;
+import com.google.common.collect.Lists;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.appdynamics.extensions.logmonitor.util.Constants.SCHEMA_NAME;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the throughput, allocations and cycle time of monitor cycles over generated logs: a large file, many small
+ * files, a rollover storm, a UTF-16 file, a log with 50 search strings and a log whose events are sent to a local
+ * stub of the Events Service. Each scenario runs a warm up cycle and then {@code perf.iterations} cycles over the
+ * whole data, the fastest cycle is reported.
+ * <p>
+ * Run with {@code mvn verify -Pperf}. The results are written to {@code perf.report} and compared with the report
+ * stored at {@code perf.baseline}: the run fails if a scenario regressed by more than {@code perf.regressionThreshold}.
+ * Run with {@code -Dperf.updateBaseline=true} to store the results as the new baseline.
+ */
+public class ThroughputBenchmark {
+    private static final Logger LOGGER = ExtensionsLoggerFactory.getLogger(ThroughputBenchmark.class);
+    private static final File DIRECTORY = new File("./target/throughput-benchmark");
+    private static final int LARGE_FILE_MB = Integer.getInteger("perf.largeFileMB", 1024);
+    private static final int ITERATIONS = Integer.getInteger("perf.iterations", 3);
+    private static final double THRESHOLD = Double.parseDouble(System.getProperty("perf.regressionThreshold", "0.25"));
+    private static final File REPORT_FILE = new File(System.getProperty("perf.report", "target/perf-report.json"));
+    private static final File BASELINE_FILE = new File(System.getProperty("perf.baseline",
+            "src/perf-test/resources/perf-baseline.json"));
+    private static final long MB = 1024 * 1024;
+    private static final int SMALL_FILES = 500;
+    private static final int SMALL_FILE_LINES = 200;
+    private static final int ROLLED_OVER_FILES = 200;
+    private static final int PATTERNS = 50;
+    private static final int POOL_THREADS = 10;
+
+    private static final PerfReport REPORT = new PerfReport();
+    private static MonitorContextConfiguration monitorContextConfiguration;
+
+    private File pointerDirectory;
+    private FilePointerProcessor filePointerProcessor;
+
+    @BeforeClass
+    public static void setUpClass() {
+        monitorContextConfiguration = new MonitorContextConfiguration("Log Monitor", "Custom Metrics|Log Monitor|",
+                Mockito.mock(File.class), Mockito.mock(AMonitorJob.class));
+        monitorContextConfiguration.setConfigYml("src/test/resources/conf/config.yaml");
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean &&
+                ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported()) {
+            ((com.sun.management.ThreadMXBean) threadMXBean).setThreadAllocatedMemoryEnabled(true);
+        }
+    }
+
+    @AfterClass
+    public static void writeReport() throws Exception {
+        deleteDirectory(DIRECTORY);
+        REPORT.write(REPORT_FILE, THRESHOLD);
+        LOGGER.info("Wrote the performance report to {}", REPORT_FILE.getPath());
+        if (Boolean.getBoolean("perf.updateBaseline")) {
+            Files.copy(REPORT_FILE.toPath(), BASELINE_FILE.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            LOGGER.info("Stored the performance report as the baseline {}", BASELINE_FILE.getPath());
+        } else if (!BASELINE_FILE.exists()) {
+            LOGGER.info("No performance baseline at {}, skipping the comparison", BASELINE_FILE.getPath());
+        } else {
+            List<String> regressions = REPORT.compare(BASELINE_FILE, THRESHOLD);
+            assertTrue("Performance regressed against " + BASELINE_FILE.getPath() + ": " + regressions,
+                    regressions.isEmpty());
+        }
+    }
+
+    @Before
+    public void setUp() {
+        deleteDirectory(DIRECTORY);
+        pointerDirectory = new File(DIRECTORY, "pointers");
+        pointerDirectory.mkdirs();
+    }
+
+    @Test
+    public void testSingleLargeFile() throws Exception {
+        final File file = new File(DIRECTORY, "large.log");
+        final long errors = writeLog(file, LARGE_FILE_MB * MB, 1000, StandardCharsets.UTF_8);
+        final Log log = createLog("Large", file.getName(), createSearchStrings(0));
+        measure("singleLargeFile", file.length(), new Scenario() {
+            void cycle() throws Exception {
+                assertEquals(errors, getErrors(log, runLog(log, null)));
+            }
+        });
+    }
+
+    @Test
+    public void testManySmallFiles() throws Exception {
+        final List<Log> logs = Lists.newArrayList();
+        long bytes = 0;
+        long errorsPerFile = 0;
+        for (int i = 0; i < SMALL_FILES; i++) {
+            File file = new File(DIRECTORY, "small-" + i + ".log");
+            errorsPerFile = writeLog(file, SMALL_FILE_LINES * 100, 10, StandardCharsets.UTF_8);
+            bytes += file.length();
+            logs.add(createLog("Small " + i, file.getName(), createSearchStrings(0)));
+        }
+        final long errors = errorsPerFile * SMALL_FILES;
+        // created once, so that the threads live through the measured cycles and their allocations are counted
+        final ExecutorService pool = Executors.newFixedThreadPool(POOL_THREADS);
+        try {
+            measure("manySmallFiles", bytes, new Scenario() {
+                void cycle() throws Exception {
+                    assertEquals(errors, runLogsOnPool(pool, logs));
+                }
+            });
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testRolloverStorm() throws Exception {
+        long bytes = 0;
+        long errors = 0;
+        for (int i = 0; i < ROLLED_OVER_FILES; i++) {
+            File file = new File(DIRECTORY, String.format("storm-%04d.log", i));
+            errors += writeLog(file, MB / 2, 100, StandardCharsets.UTF_8);
+            bytes += file.length();
+        }
+        final Log log = createLog("Storm", "storm-*", createSearchStrings(0));
+        final File oldestFile = new File(DIRECTORY, String.format("storm-%04d.log", 0));
+        final String dynamicLogPath = LogMonitorUtil.getFilePointerKey(log,
+                LogMonitorUtil.resolveDirPath(DIRECTORY.getPath()));
+        final String oldestPath = LogMonitorUtil.resolveDirPath(DIRECTORY.getPath()) + oldestFile.getName();
+        final long expectedErrors = errors;
+        measure("rolloverStorm", bytes, new Scenario() {
+            void prepare() throws Exception {
+                super.prepare();
+                // all files rolled over since the log was last read at the start of the oldest one
+                filePointerProcessor.updateFilePointer(dynamicLogPath, oldestPath, 0,
+                        LogMonitorUtil.getCurrentFileCreationTimeStamp(oldestFile), LogMonitorUtil.getInode(oldestFile));
+            }
+
+            void cycle() throws Exception {
+                assertEquals(expectedErrors, getErrors(log, runLog(log, null)));
+            }
+        });
+    }
+
+    @Test
+    public void testUtf16File() throws Exception {
+        final File file = new File(DIRECTORY, "utf16.log");
+        final long errors = writeLog(file, LARGE_FILE_MB * MB / 32, 1000, StandardCharsets.UTF_16LE);
+        final File original = new File(DIRECTORY, "utf16.original");
+        Files.copy(file.toPath(), original.toPath());
+        final Log log = createLog("Utf16", file.getName(), createSearchStrings(0));
+        log.setEncoding("UTF-16LE");
+        measure("utf16File", file.length(), new Scenario() {
+            void prepare() throws Exception {
+                super.prepare();
+                // the file is converted to UTF-8 in place before it is read
+                Files.copy(original.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            void cycle() throws Exception {
+                assertEquals(errors, getErrors(log, runLog(log, null)));
+            }
+        });
+    }
+
+    @Test
+    public void testFiftyPatterns() throws Exception {
+        final File file = new File(DIRECTORY, "patterns.log");
+        final long errors = writeLog(file, LARGE_FILE_MB * MB / 8, 1000, StandardCharsets.UTF_8);
+        final Log log = createLog("Patterns", file.getName(), createSearchStrings(PATTERNS - 3));
+        measure("fiftyPatterns", file.length(), new Scenario() {
+            void cycle() throws Exception {
+                assertEquals(errors, getErrors(log, runLog(log, null)));
+            }
+        });
+    }
+
+    @Test
+    public void testEventsToLocalStub() throws Exception {
+        final File file = new File(DIRECTORY, "events.log");
+        final long errors = writeLog(file, LARGE_FILE_MB * MB / 16, 100, StandardCharsets.UTF_8);
+        final Log log = createLog("Events", file.getName(), createSearchStrings(0));
+        // the stub accepts every request at once, so that only the capture and serialization of events is measured
+        final LogEventSink eventSink = new EventsServiceSink(Mockito.mock(EventsServiceDataManager.class),
+                new EventsPublisher());
+        measure("eventsToLocalStub", file.length(), new Scenario() {
+            void cycle() throws Exception {
+                LogMetrics logMetrics = runLog(log, eventSink);
+                assertEquals(errors, getErrors(log, logMetrics));
+                List<String> events = LogMonitorUtil.prepareEventsForPublishing(logMetrics.getEventsToBePublished());
+                assertTrue(events.size() >= errors);
+                assertEquals(events.size(), eventSink.publish(SCHEMA_NAME, events));
+            }
+        });
+    }
+
+    /**
+     * A monitor cycle over the data of a scenario. By default each cycle reads all data, from new file pointers.
+     */
+    private abstract class Scenario {
+        void prepare() throws Exception {
+            deleteDirectory(pointerDirectory);
+            pointerDirectory.mkdirs();
+            filePointerProcessor = new FilePointerProcessor(pointerDirectory);
+        }
+
+        abstract void cycle() throws Exception;
+    }
+
+    private static void measure(String name, long bytes, Scenario scenario) throws Exception {
+        long fastestNanos = Long.MAX_VALUE;
+        long leastAllocatedBytes = Long.MAX_VALUE;
+        for (int i = -1; i < ITERATIONS; i++) {
+            scenario.prepare();
+            System.gc();
+            long allocatedBefore = getAllocatedBytes();
+            long start = System.nanoTime();
+            scenario.cycle();
+            long nanos = System.nanoTime() - start;
+            long allocatedBytes = getAllocatedBytes() - allocatedBefore;
+            // the first cycle warms up
+            if (i >= 0) {
+                fastestNanos = Math.min(fastestNanos, nanos);
+                leastAllocatedBytes = Math.min(leastAllocatedBytes, allocatedBytes);
+            }
+        }
+        REPORT.record(name, bytes, fastestNanos, leastAllocatedBytes);
+    }
+
+    // the bytes allocated by all live threads. The scans run on the threads of the monitor's executor service and
+    // the pools of the scenarios, which all outlive the measured cycles
+    private static long getAllocatedBytes() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+            return 0;
+        }
+        long total = 0;
+        for (long allocated : ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(
+                threadMXBean.getAllThreadIds())) {
+            if (allocated > 0) {
+                total += allocated;
+            }
+        }
+        return total;
+    }
+
+    private LogMetrics runLog(Log log, LogEventSink eventSink) throws Exception {
+        return new LogFileManager(filePointerProcessor, log, new LogState(), null, null, new DirectorySnapshots(),
+                eventSink, monitorContextConfiguration).processLogMetrics();
+    }
+
+    // like the task executor of the monitor: one pooled thread per log
+    private long runLogsOnPool(ExecutorService pool, List<Log> logs) throws Exception {
+        final DirectorySnapshots directorySnapshots = new DirectorySnapshots();
+        List<Future<Long>> futures = Lists.newArrayList();
+        for (final Log log : logs) {
+            futures.add(pool.submit(new Callable<Long>() {
+                public Long call() throws Exception {
+                    return getErrors(log, new LogFileManager(filePointerProcessor, log, new LogState(), null,
+                            null, directorySnapshots, null, monitorContextConfiguration).processLogMetrics());
+                }
+            }));
+        }
+        long errors = 0;
+        for (Future<Long> future : futures) {
+            errors += future.get();
+        }
+        return errors;
+    }
+
+    private static long getErrors(Log log, LogMetrics logMetrics) {
+        return Long.parseLong(logMetrics.getMetrics().get(log.getDisplayName() +
+                "|Search String|Errors|Occurrences").getMetricValue());
+    }
+
+    /**
+     * Writes lines of about 100 characters until the file holds the given number of bytes.
+     *
+     * @param errorEvery one line in this many is an error
+     * @return the number of error lines
+     */
+    private static long writeLog(File file, long bytes, int errorEvery, Charset charset) throws Exception {
+        file.getParentFile().mkdirs();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), charset), 1 << 16);
+        long errors = 0;
+        long written = 0;
+        int bytesPerChar = charset.equals(StandardCharsets.UTF_8) ? 1 : 2;
+        StringBuilder line = new StringBuilder(128);
+        try {
+            for (long i = 0; written < bytes; i++) {
+                boolean error = i % errorEvery == 0;
+                line.setLength(0);
+                line.append("[Thread-").append(i % 16).append("] 29 Apr 2014 12:31:18,647 ")
+                        .append(error ? "ERROR" : i % 3 == 0 ? "WARN" : "INFO")
+                        .append(" user-").append(i % 1000).append(" action=k").append(i % PATTERNS)
+                        .append(" DynamicServiceManager - Scheduling at interval of ").append(i % 60)
+                        .append(" seconds\n");
+                writer.append(line);
+                written += line.length() * bytesPerChar;
+                if (error) {
+                    errors++;
+                }
+            }
+        } finally {
+            writer.close();
+        }
+        return errors;
+    }
+
+    private static Log createLog(String displayName, String logName, List<SearchString> searchStrings) {
+        Log log = new Log();
+        log.setDisplayName(displayName);
+        log.setLogDirectory(DIRECTORY.getPath());
+        log.setLogName(logName);
+        log.setSearchStrings(searchStrings);
+        return log;
+    }
+
+    /**
+     * @param additional the number of search strings added to the three base ones, every other one a regex
+     */
+    private static List<SearchString> createSearchStrings(int additional) {
+        List<SearchString> searchStrings = Lists.newArrayList(createSearchString("Errors", "ERROR", true),
+                createSearchString("Warnings", "WARN", true),
+                createSearchString("Intervals", "interval of [0-5]0 seconds", false));
+        for (int i = 0; i < additional; i++) {
+            searchStrings.add(i % 2 == 0 ? createSearchString("Action " + i, "action=k" + i, true) :
+                    createSearchString("User " + i, "user-\\d*" + i + " action", false));
+        }
+        return searchStrings;
+    }
+
+    private static SearchString createSearchString(String displayName, String pattern, boolean matchExactString) {
+        SearchString searchString = new SearchString();
+        searchString.setDisplayName(displayName);
+        searchString.setPattern(pattern);
+        searchString.setMatchExactString(matchExactString);
+        searchString.setCaseSensitive(true);
+        searchString.setPrintMatchedString(false);
+        return searchString;
+    }
+
+    private static void deleteDirectory(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    deleteDirectory(file);
+                } else {
+                    file.delete();
+                }
+            }
+        }
+        directory.delete();
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor;
+
+import com.appdynamics.extensions.logmonitor.config.EventDeduplication;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EventDeduplicatorTest {
+    private static final long MINUTE = 60000;
+
+    @Test
+    public void testFingerprintMasksVariableParts() {
+        assertEquals(EventDeduplicator.fingerprint("2020-06-01 12:00:01 ERROR order 4711 failed, id " +
+                        "3f2b8c1e-1a2b-4c3d-9e8f-0123456789ab at 0x7ffe1234 trace deadbeef42"),
+                EventDeduplicator.fingerprint("2020-06-01 12:00:59 ERROR order 815 failed, id " +
+                        "a0b1c2d3-e4f5-4a6b-8c7d-9e0f1a2b3c4d at 0x10 trace cafebabe07"));
+        assertTrue(!EventDeduplicator.fingerprint("ERROR order failed").equals(
+                EventDeduplicator.fingerprint("ERROR payment failed")));
+        assertEquals("ERROR in decade", EventDeduplicator.fingerprint("ERROR in decade"));
+    }
+
+    @Test
+    public void testRepeatsAreCollapsedUntilTheWindowCloses() {
+        EventDeduplicator deduplicator = new EventDeduplicator();
+        EventDeduplication eventDeduplication = createEventDeduplication(120, 100);
+        List<LogEvent> events = Lists.newArrayList(event("ERROR", "request 1 failed"),
+                event("ERROR", "request 2 failed"), event("WARN", "request 3 failed"));
+
+        assertTrue(deduplicator.deduplicate(events, eventDeduplication, 0).isEmpty());
+        assertTrue(deduplicator.deduplicate(Lists.newArrayList(event("ERROR", "request 4 failed")),
+                eventDeduplication, MINUTE).isEmpty());
+        List<LogEvent> published = deduplicator.deduplicate(Collections.<LogEvent>emptyList(), eventDeduplication,
+                2 * MINUTE);
+
+        assertEquals(2, published.size());
+        LogEvent errors = published.get(0).getSearchPattern().equals("ERROR") ? published.get(0) : published.get(1);
+        assertEquals(3, errors.getCount());
+        assertEquals("request 1 failed", errors.getLogMatch());
+        assertEquals("1970-01-01T00:00:00Z", errors.getFirstSeen());
+        assertEquals("1970-01-01T00:01:00Z", errors.getLastSeen());
+        assertEquals(0, deduplicator.getOpenWindows());
+    }
+
+    @Test
+    public void testLeastRecentlyRepeatedWindowIsClosedWhenFull() {
+        EventDeduplicator deduplicator = new EventDeduplicator();
+        EventDeduplication eventDeduplication = createEventDeduplication(600, 2);
+        deduplicator.deduplicate(Lists.newArrayList(event("ERROR", "a"), event("ERROR", "b"), event("ERROR", "a")),
+                eventDeduplication, 0);
+
+        List<LogEvent> published = deduplicator.deduplicate(Lists.newArrayList(event("ERROR", "c")),
+                eventDeduplication, MINUTE);
+
+        assertEquals(1, published.size());
+        assertEquals("b", published.get(0).getLogMatch());
+        assertEquals(2, deduplicator.getOpenWindows());
+    }
+
+    @Test
+    public void testWithoutDeduplicationEveryEventIsPublished() {
+        EventDeduplicator deduplicator = new EventDeduplicator();
+        List<LogEvent> published = deduplicator.deduplicate(Lists.newArrayList(event("ERROR", "a"),
+                event("ERROR", "a")), null, 0);
+
+        assertEquals(2, published.size());
+        assertEquals(1, published.get(0).getCount());
+        assertEquals(published.get(0).getFirstSeen(), published.get(0).getLastSeen());
+    }
+
+    private EventDeduplication createEventDeduplication(int windowSeconds, int maxFingerprints) {
+        EventDeduplication eventDeduplication = new EventDeduplication();
+        eventDeduplication.setWindowSeconds(windowSeconds);
+        eventDeduplication.setMaxFingerprints(maxFingerprints);
+        return eventDeduplication;
+    }
+
+    private LogEvent event(String searchPattern, String logMatch) {
+        LogEvent logEvent = new LogEvent();
+        logEvent.setLogDisplayName("TestLog");
+        logEvent.setSearchPattern(searchPattern);
+        logEvent.setLogMatch(logMatch);
+        return logEvent;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor;
+
+import com.appdynamics.extensions.eventsservice.EventsServiceDataManager;
+import com.appdynamics.extensions.logmonitor.config.EventBatching;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+
+public class EventsPublisherTest {
+
+    @Test
+    public void testBatchesAreLimitedByBytesAndEvents() {
+        List<String> events = Lists.newArrayList("{\"a\":1}", "{\"b\":2}", "{\"c\":3}", "{\"d\":4}", "{\"e\":5}");
+        // 2 brackets, 7 bytes per event and a comma between events
+        assertEquals(3, EventsPublisher.split(events, 2 + 7 + 1 + 7, 100).size());
+        assertEquals(2, EventsPublisher.split(events, 2 + 7 + 1 + 7, 100).get(0).size());
+        assertEquals(2, EventsPublisher.split(events, 1000, 3).size());
+        assertEquals(1, EventsPublisher.split(events, 1000, 100).size());
+        assertTrue(EventsPublisher.split(Collections.<String>emptyList(), 1000, 100).isEmpty());
+    }
+
+    @Test
+    public void testOversizedEventIsSentOnItsOwn() {
+        List<List<String>> batches = EventsPublisher.split(Lists.newArrayList("{}", "{\"stackTrace\":\"...\"}", "{}"),
+                10, 100);
+        assertEquals(3, batches.size());
+        assertEquals("{\"stackTrace\":\"...\"}", batches.get(1).get(0));
+    }
+
+    @Test
+    public void testUtf8Length() {
+        assertEquals(3, EventsPublisher.utf8Length("abc"));
+        assertEquals(2, EventsPublisher.utf8Length("é"));
+        assertEquals(3, EventsPublisher.utf8Length("€"));
+        assertEquals(4, EventsPublisher.utf8Length("😀"));
+    }
+
+    @Test
+    public void testBatchesAreSentConcurrentlyUpToTheLimit() throws Exception {
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final AtomicInteger publishedEvents = new AtomicInteger();
+        // a request only completes once 4 requests are in flight, batches sent one after the other time out
+        final CyclicBarrier barrier = new CyclicBarrier(4);
+        EventsServiceDataManager eventsServiceDataManager = Mockito.mock(EventsServiceDataManager.class);
+        doAnswer(new Answer<Void>() {
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                int current = inFlight.incrementAndGet();
+                synchronized (maxInFlight) {
+                    maxInFlight.set(Math.max(maxInFlight.get(), current));
+                }
+                try {
+                    barrier.await(10, TimeUnit.SECONDS);
+                    publishedEvents.addAndGet(((List<?>) invocation.getArguments()[1]).size());
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+                return null;
+            }
+        }).when(eventsServiceDataManager).publishEvents(anyString(), anyList());
+        EventBatching eventBatching = new EventBatching();
+        eventBatching.setMaxBatchEvents(10);
+        eventBatching.setMaxConcurrentRequests(4);
+        EventsPublisher eventsPublisher = new EventsPublisher();
+        eventsPublisher.startCycle(eventBatching);
+        List<String> events = Lists.newArrayList();
+        for (int i = 0; i < 80; i++) {
+            events.add("{\"logMatch\":\"line " + i + "\"}");
+        }
+
+        // 8 batches, 4 at a time
+        assertEquals(80, eventsPublisher.publish(eventsServiceDataManager, "LogSchema", events));
+        assertEquals(80, publishedEvents.get());
+        assertEquals(4, maxInFlight.get());
+    }
+}
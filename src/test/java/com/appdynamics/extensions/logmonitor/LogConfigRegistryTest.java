@@ -0,0 +1,125 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor;
+
+import com.appdynamics.extensions.logmonitor.config.EventDeduplication;
+import com.appdynamics.extensions.logmonitor.config.Log;
+import com.appdynamics.extensions.logmonitor.processors.LogState;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LogConfigRegistryTest {
+    private static final int LOGS = 500;
+
+    @Test
+    public void testOnlyChangedLogsAreInitialized() {
+        LogConfigRegistry registry = new LogConfigRegistry();
+        List<Log> logs = registry.update(createLogsFromConfig("ERROR"), "Prefix");
+        assertEquals(LOGS, logs.size());
+        LogState unchangedState = registry.getLogState(logs.get(0));
+        LogState changedState = registry.getLogState(logs.get(1));
+        LogState changedSearchStringsState = registry.getLogState(logs.get(2));
+
+        List<Map<String, ?>> logsFromConfig = createLogsFromConfig("ERROR");
+        Map<String, Object> changedLog = (Map<String, Object>) logsFromConfig.get(1);
+        changedLog.put("scanWeight", 2);
+        Map<String, Object> changedSearchStrings = (Map<String, Object>) logsFromConfig.get(2);
+        changedSearchStrings.put("searchStrings", Lists.newArrayList(createSearchString("WARN")));
+        logsFromConfig.remove(3);
+
+        List<Log> reloaded = registry.update(logsFromConfig, "Prefix");
+
+        assertEquals(LOGS - 1, reloaded.size());
+        assertSame(logs.get(0), reloaded.get(0));
+        assertSame(unchangedState, registry.getLogState(reloaded.get(0)));
+        assertNotSame(logs.get(1), reloaded.get(1));
+        assertEquals(2, reloaded.get(1).getScanWeight());
+        // the state is kept as long as the search strings are the same
+        assertSame(changedState, registry.getLogState(reloaded.get(1)));
+        assertEquals("WARN", reloaded.get(2).getSearchStrings().get(0).getPattern());
+        assertNotSame(changedSearchStringsState, registry.getLogState(reloaded.get(2)));
+        // every other log is kept as it was, behind the removed one
+        for (int i = 4; i < LOGS; i++) {
+            assertSame(logs.get(i), reloaded.get(i - 1));
+        }
+    }
+
+    @Test
+    public void testSameConfigIsNotReinitialized() {
+        LogConfigRegistry registry = new LogConfigRegistry();
+        List<Map<String, ?>> logsFromConfig = createLogsFromConfig("ERROR");
+        List<Log> logs = registry.update(logsFromConfig, "Prefix");
+        assertSame(logs, registry.update(logsFromConfig, "Prefix"));
+        assertTrue(registry.update(createLogsFromConfig("ERROR"), "Other Prefix").get(0) != logs.get(0));
+    }
+
+    @Test
+    public void testResetAndRemovedStatesAreDrainedWithTheirHeldEvents() {
+        LogConfigRegistry registry = new LogConfigRegistry();
+        List<Log> logs = registry.update(createLogsFromConfig("ERROR"), "Prefix");
+        EventDeduplication eventDeduplication = new EventDeduplication();
+        for (int i = 0; i < 3; i++) {
+            LogEvent event = new LogEvent();
+            event.setSearchPattern("Errors");
+            event.setLogMatch("request " + i + " failed");
+            registry.getLogState(logs.get(i)).getEventDeduplicator().deduplicate(Lists.newArrayList(event),
+                    eventDeduplication, 0);
+        }
+        LogState resetState = registry.getLogState(logs.get(1));
+        LogState removedState = registry.getLogState(logs.get(2));
+
+        List<Map<String, ?>> logsFromConfig = createLogsFromConfig("ERROR");
+        ((Map<String, Object>) logsFromConfig.get(1)).put("searchStrings",
+                Lists.newArrayList(createSearchString("WARN")));
+        logsFromConfig.remove(2);
+        registry.update(logsFromConfig, "Prefix");
+
+        List<LogState> retired = registry.drainRetiredLogStates();
+        assertEquals(2, retired.size());
+        assertSame(resetState, retired.get(0));
+        assertSame(removedState, retired.get(1));
+        assertEquals("request 1 failed", retired.get(0).getEventDeduplicator().closeAll().get(0).getLogMatch());
+        assertEquals(1, retired.get(1).getEventDeduplicator().closeAll().size());
+        assertTrue(registry.drainRetiredLogStates().isEmpty());
+        // the kept state still holds its event until it is closed, e.g. when the monitor stops
+        assertEquals(1, registry.getLogState(logs.get(0)).getEventDeduplicator().closeAll().size());
+    }
+
+    private List<Map<String, ?>> createLogsFromConfig(String pattern) {
+        List<Map<String, ?>> logsFromConfig = Lists.newArrayList();
+        for (int i = 0; i < LOGS; i++) {
+            Map<String, Object> logFromConfig = Maps.newLinkedHashMap();
+            logFromConfig.put("displayName", "Log " + i);
+            logFromConfig.put("logDirectory", "/var/log");
+            logFromConfig.put("logName", "log-" + i + ".log");
+            logFromConfig.put("searchStrings", Lists.newArrayList(createSearchString(pattern)));
+            logsFromConfig.add(logFromConfig);
+        }
+        return logsFromConfig;
+    }
+
+    private Map<String, Object> createSearchString(String pattern) {
+        Map<String, Object> searchString = Maps.newLinkedHashMap();
+        searchString.put("displayName", "Errors");
+        searchString.put("pattern", pattern);
+        searchString.put("matchExactString", true);
+        searchString.put("caseSensitive", false);
+        searchString.put("printMatchedString", false);
+        return searchString;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class NdjsonFileSinkTest {
+    private File directory;
+
+    @Before
+    public void setUp() {
+        directory = new File("./target/ndjson-sink-test");
+        deleteDirectory();
+    }
+
+    @After
+    public void tearDown() {
+        deleteDirectory();
+    }
+
+    @Test
+    public void testEventsAreAppendedOnePerLine() throws Exception {
+        NdjsonFileSink sink = new NdjsonFileSink(directory, 1024 * 1024, 3);
+        sink.prepareSchema("LogSchema");
+        assertEquals(2, sink.publish("LogSchema", Lists.newArrayList("{\"a\":1}", "{\"b\":\"\u00e9\"}")));
+        assertEquals(1, sink.publish("LogSchema", Lists.newArrayList("{\"c\":3}")));
+        sink.close();
+        // a new sink appends to the existing file
+        sink = new NdjsonFileSink(directory, 1024 * 1024, 3);
+        sink.publish("LogSchema", Lists.newArrayList("{\"d\":4}"));
+        sink.close();
+
+        assertEquals("{\"a\":1}\n{\"b\":\"\u00e9\"}\n{\"c\":3}\n{\"d\":4}\n",
+                read("LogSchema.ndjson"));
+    }
+
+    @Test
+    public void testEventsLargerThanTheBufferAreWrittenWhole() throws Exception {
+        String event = "{\"logMatch\":\"" + Strings.repeat("x", 200 * 1024) + "\"}";
+        NdjsonFileSink sink = new NdjsonFileSink(directory, 1024 * 1024, 3);
+        sink.prepareSchema("LogSchema");
+        sink.publish("LogSchema", Lists.newArrayList(event, event));
+        sink.close();
+
+        assertEquals(event + "\n" + event + "\n",
+                read("LogSchema.ndjson"));
+    }
+
+    @Test
+    public void testFilesAreRotatedAtTheMaximumSize() throws Exception {
+        NdjsonFileSink sink = new NdjsonFileSink(directory, 20, 3);
+        sink.prepareSchema("LogSchema");
+        List<String> events = Lists.newArrayList();
+        for (int i = 0; i < 10; i++) {
+            // 10 bytes per line, two lines per file
+            events.add("{\"i\":" + i + "   }");
+        }
+        assertEquals(10, sink.publish("LogSchema", events));
+        sink.close();
+
+        assertEquals("{\"i\":8   }\n{\"i\":9   }\n",
+                read("LogSchema.ndjson"));
+        assertEquals("{\"i\":6   }\n{\"i\":7   }\n",
+                read("LogSchema.ndjson.1"));
+        assertEquals("{\"i\":4   }\n{\"i\":5   }\n",
+                read("LogSchema.ndjson.2"));
+        assertFalse(new File(directory, "LogSchema.ndjson.3").exists());
+    }
+
+    @Test
+    public void testNullSinkOnlyCountsEvents() {
+        NullEventSink sink = new NullEventSink();
+        assertEquals(2, sink.publish("LogSchema", Lists.newArrayList("{}", "{}")));
+        assertEquals(1, sink.publish("LogSchema", Lists.newArrayList("{}")));
+        assertEquals(3, sink.getPublishedEvents());
+        assertFalse(directory.exists());
+    }
+
+    private String read(String filename) throws Exception {
+        return new String(Files.readAllBytes(new File(directory, filename).toPath()), StandardCharsets.UTF_8);
+    }
+
+    private void deleteDirectory() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+}
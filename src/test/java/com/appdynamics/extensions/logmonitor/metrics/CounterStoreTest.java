@@ -0,0 +1,108 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.metrics;
+
+import com.appdynamics.extensions.metrics.Metric;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class CounterStoreTest {
+    private static final String ERRORS = "Log|Search String|Errors|Occurrences";
+    private static final String MATCH = "Log|Search String|Errors|Matches|Timeout";
+
+    @Test
+    public void testCountedMetricsEqualHeapMetrics() {
+        LogMetrics heapMetrics = new LogMetrics();
+        LogMetrics counterMetrics = new LogMetrics();
+        counterMetrics.setCounterStore(new CounterStore());
+        for (LogMetrics logMetrics : new LogMetrics[]{heapMetrics, counterMetrics}) {
+            logMetrics.increment(ERRORS, "Prefix|" + ERRORS, 0);
+            logMetrics.increment(ERRORS, "Prefix|" + ERRORS, 5);
+            logMetrics.add(MATCH, "Prefix|" + MATCH);
+            logMetrics.add(MATCH, "Prefix|" + MATCH);
+            logMetrics.add("Log|File size (Bytes)", new Metric("Log|File size (Bytes)", "42",
+                    "Prefix|Log|File size (Bytes)"));
+        }
+
+        assertMetrics(heapMetrics.getMetrics(), counterMetrics.getMetrics());
+        assertEquals("5", counterMetrics.getMetrics().get(ERRORS).getMetricValue());
+        assertEquals("2", counterMetrics.getMetrics().get(MATCH).getMetricValue());
+        assertEquals("Prefix|" + MATCH, counterMetrics.getMetrics().get(MATCH).getMetricPath());
+    }
+
+    @Test
+    public void testValueSetDirectlyReplacesCountsAndIsAddedToLaterCounts() {
+        LogMetrics logMetrics = new LogMetrics();
+        logMetrics.setCounterStore(new CounterStore());
+        logMetrics.increment(ERRORS, "Prefix|" + ERRORS, 3);
+        logMetrics.add(ERRORS, new Metric(ERRORS, "10", "Prefix|" + ERRORS));
+        assertEquals("10", logMetrics.getMetrics().get(ERRORS).getMetricValue());
+
+        logMetrics.increment(ERRORS, "Prefix|" + ERRORS, 2);
+        assertEquals("12", logMetrics.getMetrics().get(ERRORS).getMetricValue());
+        assertEquals("12", logMetrics.getMetrics().get(ERRORS).getMetricValue());
+    }
+
+    @Test
+    public void testNamesAreInternedOnceAndCountersReusedAcrossRuns() {
+        CounterStore counterStore = new CounterStore();
+        String firstRunName = null;
+        for (int run = 0; run < 3; run++) {
+            LogMetrics logMetrics = new LogMetrics();
+            logMetrics.setCounterStore(counterStore);
+            int slot = logMetrics.counterSlot(new String(ERRORS), "Prefix|" + ERRORS);
+            for (int i = 0; i < 100; i++) {
+                logMetrics.increment(slot, ERRORS, "Prefix|" + ERRORS, 1);
+            }
+            Metric metric = logMetrics.getMetrics().get(ERRORS);
+            assertEquals("100", metric.getMetricValue());
+            if (firstRunName == null) {
+                firstRunName = metric.getMetricName();
+            }
+            assertSame(firstRunName, metric.getMetricName());
+        }
+        assertEquals(1, counterStore.size());
+        CounterStore.Counters counters = counterStore.acquire();
+        assertSame(counters, reacquire(counterStore, counters));
+    }
+
+    @Test
+    public void testCountersGrowAndMetricsBeyondMaxSlotsAreCountedOnTheHeap() {
+        CounterStore counterStore = new CounterStore(100);
+        LogMetrics logMetrics = new LogMetrics();
+        logMetrics.setCounterStore(counterStore);
+        for (int i = 0; i < 150; i++) {
+            logMetrics.add(MATCH + i, "Prefix|" + MATCH + i);
+            logMetrics.add(MATCH + i, "Prefix|" + MATCH + i);
+        }
+
+        assertEquals(100, counterStore.size());
+        assertEquals(150, logMetrics.getMetrics().size());
+        assertEquals("2", logMetrics.getMetrics().get(MATCH + 0).getMetricValue());
+        assertEquals("2", logMetrics.getMetrics().get(MATCH + 99).getMetricValue());
+        assertEquals("2", logMetrics.getMetrics().get(MATCH + 149).getMetricValue());
+    }
+
+    private static CounterStore.Counters reacquire(CounterStore counterStore, CounterStore.Counters counters) {
+        counterStore.release(counters);
+        return counterStore.acquire();
+    }
+
+    private static void assertMetrics(Map<String, Metric> expected, Map<String, Metric> actual) {
+        assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<String, Metric> entry : expected.entrySet()) {
+            assertEquals(entry.getValue().getMetricValue(), actual.get(entry.getKey()).getMetricValue());
+            assertEquals(entry.getValue().getMetricPath(), actual.get(entry.getKey()).getMetricPath());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.metrics;
+
+import com.appdynamics.extensions.logmonitor.config.MetricOutput;
+import com.appdynamics.extensions.logmonitor.util.LogMonitorUtil;
+import com.appdynamics.extensions.metrics.Metric;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class MetricOutputStateTest {
+    private static final String ERRORS = "Log|Search String|Errors|Occurrences";
+    private static final String WARNINGS = "Log|Search String|Warnings|Occurrences";
+
+    @Test
+    public void testOnlyChangedMetricsArePrintedBetweenHeartbeats() {
+        MetricOutput metricOutput = new MetricOutput();
+        metricOutput.setMode(MetricOutput.CHANGED_MODE);
+        metricOutput.setHeartbeatMinutes(10);
+        MetricOutputState state = new MetricOutputState();
+        long now = 1000000;
+
+        assertEquals(2, state.select(metrics(0, 0), metricOutput, now).size());
+        assertEquals(0, state.select(metrics(0, 0), metricOutput, now + 60000).size());
+        List<Metric> changed = state.select(metrics(3, 0), metricOutput, now + 120000);
+        assertEquals(1, changed.size());
+        assertEquals("Prefix|" + ERRORS, changed.get(0).getMetricPath());
+        assertEquals(1, state.select(metrics(0, 0), metricOutput, now + 180000).size());
+        assertEquals(2, state.select(metrics(0, 0), metricOutput, now + 600000).size());
+    }
+
+    @Test
+    public void testRatesAndTotalsAreDerivedFromOccurrences() {
+        MetricOutput metricOutput = new MetricOutput();
+        metricOutput.setRates(true);
+        metricOutput.setTotals(true);
+        MetricOutputState state = new MetricOutputState();
+
+        Map<String, String> first = values(state.select(metrics(120, 0), metricOutput, 1000000));
+        assertEquals("120", first.get("Prefix|Log|Search String|Errors|Total Occurrences"));
+        assertEquals(null, first.get("Prefix|Log|Search String|Errors|Occurrences Per Minute"));
+
+        Map<String, String> second = values(state.select(metrics(60, 1), metricOutput, 1060000));
+        assertEquals("60", second.get("Prefix|" + ERRORS));
+        assertEquals("180", second.get("Prefix|Log|Search String|Errors|Total Occurrences"));
+        assertEquals("60", second.get("Prefix|Log|Search String|Errors|Occurrences Per Minute"));
+        assertEquals("1", second.get("Prefix|Log|Search String|Warnings|Occurrences Per Minute"));
+
+        // a single occurrence over two minutes still shows
+        Map<String, String> third = values(state.select(metrics(0, 1), metricOutput, 1180000));
+        assertEquals("0", third.get("Prefix|Log|Search String|Errors|Occurrences Per Minute"));
+        assertEquals("1", third.get("Prefix|Log|Search String|Warnings|Occurrences Per Minute"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMetricOutputOfTheWrongTypeIsRejected() {
+        Map<String, Object> metricOutput = new HashMap<String, Object>();
+        metricOutput.put("rates", "yes");
+        Map<String, Object> configYml = new HashMap<String, Object>();
+        configYml.put("metricOutput", metricOutput);
+        LogMonitorUtil.getMetricOutput(configYml);
+    }
+
+    private static Map<String, Metric> metrics(long errors, long warnings) {
+        Map<String, Metric> metrics = new LinkedHashMap<String, Metric>();
+        metrics.put(ERRORS, new Metric(ERRORS, String.valueOf(errors), "Prefix|" + ERRORS));
+        metrics.put(WARNINGS, new Metric(WARNINGS, String.valueOf(warnings), "Prefix|" + WARNINGS));
+        return metrics;
+    }
+
+    private static Map<String, String> values(List<Metric> metrics) {
+        Map<String, String> values = new HashMap<String, String>();
+        for (Metric metric : metrics) {
+            values.put(metric.getMetricPath(), metric.getMetricValue());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ValueStatisticsTest {
+
+    @Test
+    public void testStatisticsOfMergedParallelScans() {
+        ValueStatistics first = new ValueStatistics();
+        ValueStatistics second = new ValueStatistics();
+        for (int i = 1; i <= 1000; i++) {
+            (i % 2 == 0 ? first : second).record(i);
+        }
+        first.merge(second);
+
+        assertEquals(1000, first.getCount());
+        assertEquals(500500, first.getSum(), 0);
+        assertEquals(1, first.getMin(), 0);
+        assertEquals(1000, first.getMax(), 0);
+        assertEquals(500, first.getPercentile(50), 500 * 0.03);
+        assertEquals(950, first.getPercentile(95), 950 * 0.03);
+        assertEquals(990, first.getPercentile(99), 990 * 0.03);
+        assertEquals(1000, first.getPercentile(100), 0);
+    }
+
+    @Test
+    public void testFractionalAndZeroValues() {
+        ValueStatistics statistics = new ValueStatistics();
+        statistics.record(0);
+        statistics.record(0.25);
+        statistics.record(0.25);
+
+        assertEquals(0, statistics.getPercentile(30), 0);
+        assertEquals(0.25, statistics.getPercentile(50), 0.25 * 0.03);
+        assertEquals(0.5, statistics.getSum(), 0);
+    }
+
+    @Test
+    public void testEmptyStatistics() {
+        ValueStatistics statistics = new ValueStatistics();
+        assertEquals(0, statistics.getCount());
+        assertEquals(0, statistics.getMin(), 0);
+        assertEquals(0, statistics.getPercentile(99), 0);
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.processors;
+
+import com.appdynamics.extensions.logmonitor.config.Log;
+import com.appdynamics.extensions.logmonitor.util.LogMonitorUtil;
+import com.google.common.collect.Lists;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.List;
+
+import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.resolveDirPath;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class BacklogEstimatorTest {
+    private File directory;
+    private File pointerDirectory;
+    private DirectorySnapshots directorySnapshots;
+    private FilePointerProcessor filePointerProcessor;
+
+    @Before
+    public void setUp() {
+        directory = new File("./target/backlog-estimator-test").getAbsoluteFile();
+        pointerDirectory = new File(directory, "pointers");
+        deleteDirectory();
+        pointerDirectory.mkdirs();
+        directorySnapshots = new DirectorySnapshots();
+        filePointerProcessor = new FilePointerProcessor(pointerDirectory);
+    }
+
+    @After
+    public void deleteDirectory() {
+        for (File dir : new File[]{pointerDirectory, directory}) {
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void testLogWithoutFilePointerIsBehindByItsCurrentFile() throws IOException {
+        write("app.log", 100);
+        Log log = log("app.log");
+        directorySnapshots.startCycle(Lists.newArrayList(log));
+
+        BacklogEstimator backlogEstimator = new BacklogEstimator(directorySnapshots, filePointerProcessor);
+        assertEquals(100, backlogEstimator.getUnreadBytes(log));
+        assertEquals(null, filePointerProcessor.peekFilePointer("app.log|" + resolveDirPath(directory.getPath()) +
+                "app.log"));
+    }
+
+    @Test
+    public void testLogIsBehindByTheRestOfItsCurrentFile() throws IOException {
+        File file = write("app.log", 100);
+        Log log = log("app.log");
+        setFilePointer("app.log", file, 30);
+        directorySnapshots.startCycle(Lists.newArrayList(log));
+
+        assertEquals(70, new BacklogEstimator(directorySnapshots, filePointerProcessor).getUnreadBytes(log));
+    }
+
+    @Test
+    public void testRolledOverFilesAreAddedToTheBacklog() throws Exception {
+        File oldestFile = write("app.log.1", 100);
+        Thread.sleep(1000);
+        write("app.log.2", 200);
+        Thread.sleep(1000);
+        write("app.log.3", 50);
+        Log log = log("app.log*");
+        setFilePointer("app.log*", oldestFile, 40);
+        directorySnapshots.startCycle(Lists.newArrayList(log));
+
+        assertEquals(60 + 200 + 50, new BacklogEstimator(directorySnapshots, filePointerProcessor)
+                .getUnreadBytes(log));
+    }
+
+    @Test
+    public void testMissingLogsHaveNoBacklog() {
+        Log missingFile = log("missing.log");
+        Log missingDirectory = log("app.log");
+        missingDirectory.setLogDirectory(new File(directory, "missing").getPath());
+        directory.mkdirs();
+        directorySnapshots.startCycle(Lists.newArrayList(missingFile, missingDirectory));
+
+        BacklogEstimator backlogEstimator = new BacklogEstimator(directorySnapshots, filePointerProcessor);
+        assertEquals(0, backlogEstimator.getUnreadBytes(missingFile));
+        assertEquals(0, backlogEstimator.getUnreadBytes(missingDirectory));
+    }
+
+    @Test
+    public void testGroupsAreOrderedByTheirLargestBacklog() throws IOException {
+        write("small.log", 10);
+        write("large.log", 1000);
+        write("medium.log", 500);
+        write("other-small.log", 10);
+        Log small = log("small.log");
+        Log large = log("large.log");
+        Log medium = log("medium.log");
+        Log sharedMedium = log("medium.log");
+        Log otherSmall = log("other-small.log");
+        directorySnapshots.startCycle(Lists.newArrayList(small, large, medium, sharedMedium, otherSmall));
+        List<Log> smallGroup = Lists.newArrayList(small);
+        List<Log> largeGroup = Lists.newArrayList(large);
+        List<Log> mediumGroup = Lists.newArrayList(sharedMedium, medium);
+        List<Log> otherSmallGroup = Lists.newArrayList(otherSmall);
+
+        List<List<Log>> ordered = new BacklogEstimator(directorySnapshots, filePointerProcessor).orderByBacklog(
+                Lists.newArrayList(smallGroup, largeGroup, mediumGroup, otherSmallGroup));
+        assertEquals(4, ordered.size());
+        assertSame(largeGroup, ordered.get(0));
+        assertSame(mediumGroup, ordered.get(1));
+        assertSame(smallGroup, ordered.get(2));
+        assertSame(otherSmallGroup, ordered.get(3));
+    }
+
+    private void setFilePointer(String logName, File file, long position) throws IOException {
+        filePointerProcessor.updateFilePointer(logName + "|" + resolveDirPath(directory.getPath()) + logName,
+                file.getPath(), position, LogMonitorUtil.getCurrentFileCreationTimeStamp(file),
+                LogMonitorUtil.getInode(file));
+    }
+
+    private Log log(String logName) {
+        Log log = new Log();
+        log.setDisplayName(logName);
+        log.setLogDirectory(directory.getPath());
+        log.setLogName(logName);
+        return log;
+    }
+
+    private File write(String filename, int bytes) throws IOException {
+        directory.mkdirs();
+        File file = new File(directory, filename);
+        FileWriter writer = new FileWriter(file);
+        try {
+            for (int i = 0; i < bytes; i++) {
+                writer.write(i % 10 == 9 ? '\n' : 'x');
+            }
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.processors;
+
+import com.appdynamics.extensions.logmonitor.config.Log;
+import com.appdynamics.extensions.logmonitor.processors.DirectorySnapshot.FileEntry;
+import com.appdynamics.extensions.logmonitor.util.LogMonitorUtil;
+import com.google.common.collect.Lists;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.List;
+
+import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.resolveDirPath;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DirectorySnapshotsTest {
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = new File("./target/directory-snapshots-test").getAbsoluteFile();
+        deleteDirectory();
+        new File(directory, "app.log.dir").mkdirs();
+        write("app.log", "current");
+        write("app.log.1", "rolled over");
+        write("other.log", "other");
+        write("app[1].log", "brackets");
+    }
+
+    @After
+    public void deleteDirectory() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testDirectoryIsListedOnceForAllLogs() throws IOException {
+        DirectorySnapshots directorySnapshots = new DirectorySnapshots();
+        directorySnapshots.startCycle(Lists.newArrayList(log("app.log*"), log("other.log")));
+        String dirPath = resolveDirPath(directory.getPath());
+
+        DirectorySnapshot snapshot = directorySnapshots.getSnapshot(dirPath);
+        assertEquals(2, snapshot.getFiles("app.log*").size());
+        write("other.log.1", "created after the snapshot");
+
+        assertSame(snapshot, directorySnapshots.getSnapshot(dirPath));
+        List<FileEntry> otherFiles = snapshot.getFiles("other.log");
+        assertEquals(1, otherFiles.size());
+        assertEquals(new File(directory, "other.log").getPath(), otherFiles.get(0).getFile().getPath());
+        assertEquals(5, otherFiles.get(0).getSize());
+        assertEquals(1, snapshot.getFiles("other.log*").size());
+
+        directorySnapshots.startCycle(Lists.newArrayList(log("app.log*"), log("other.log")));
+        assertEquals(2, directorySnapshots.getSnapshot(dirPath).getFiles("other.log*").size());
+    }
+
+    @Test
+    public void testAttributesAreReadOnceForAllMatchingLogNames() throws IOException {
+        File file = new File(directory, "app.log");
+        DirectorySnapshots directorySnapshots = new DirectorySnapshots();
+        directorySnapshots.startCycle(Lists.newArrayList(log("app.log"), log("app.log*")));
+        DirectorySnapshot snapshot = directorySnapshots.getSnapshot(resolveDirPath(directory.getPath()));
+
+        FileEntry entry = snapshot.getFiles("app.log").get(0);
+        assertSame(entry, snapshot.getLatestFile("app.log"));
+        assertTrue(snapshot.getFiles("app.log*").contains(entry));
+        assertTrue(snapshot.getFiles("app?log").contains(entry));
+        assertEquals(file.length(), entry.getSize());
+        assertEquals(file.lastModified(), entry.getLastModified());
+        assertEquals(LogMonitorUtil.getInode(file), entry.getInode());
+    }
+
+    @Test
+    public void testOnlyWildcardsAreGlobSyntax() throws IOException {
+        DirectorySnapshots directorySnapshots = new DirectorySnapshots();
+        directorySnapshots.startCycle(Lists.newArrayList(log("app[1].log")));
+        DirectorySnapshot snapshot = directorySnapshots.getSnapshot(resolveDirPath(directory.getPath()));
+
+        List<FileEntry> files = snapshot.getFiles("app[1].log");
+        assertEquals(1, files.size());
+        assertEquals("app[1].log", files.get(0).getFile().getName());
+        assertEquals(2, snapshot.getFiles("app?log*").size());
+    }
+
+    @Test
+    public void testLogsAreGroupedByTheirCurrentFile() throws IOException {
+        Log current = log("app.log");
+        Log rollover = log("app.log*");
+        Log other = log("other.log");
+        new File(directory, "app.log").setLastModified(System.currentTimeMillis() + 60000);
+        DirectorySnapshots directorySnapshots = new DirectorySnapshots();
+        List<Log> logs = Lists.newArrayList(current, other, rollover);
+        directorySnapshots.startCycle(logs);
+
+        List<List<Log>> groups = directorySnapshots.groupByCurrentFile(logs);
+        assertEquals(2, groups.size());
+        assertEquals(Lists.newArrayList(current, rollover), groups.get(0));
+        assertEquals(Lists.newArrayList(other), groups.get(1));
+    }
+
+    private Log log(String logName) {
+        Log log = new Log();
+        log.setDisplayName(logName);
+        log.setLogDirectory(directory.getPath());
+        log.setLogName(logName);
+        return log;
+    }
+
+    private void write(String name, String content) throws IOException {
+        FileWriter writer = new FileWriter(new File(directory, name));
+        writer.write(content);
+        writer.close();
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.processors;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+
+public class ExactStringMatcherTest {
+
+    @Test
+    public void testMatchesWholeWordsOnly() {
+        ExactStringMatcher matcher = new ExactStringMatcher("ERROR", true);
+        assertEquals(5, matcher.find("ERROR at start", 0));
+        assertEquals(30, matcher.find("2020-06-01 12:00:00\tWARN ERROR", 0));
+        assertEquals(9, matcher.find("a\nb ERROR\r\n", 0));
+        assertEquals(-1, matcher.find("ERRORS and XERROR and ERROR: and error", 0));
+        assertEquals(-1, matcher.find("ERR", 0));
+    }
+
+    @Test
+    public void testCaseInsensitiveMatchesFoldAsciiLetters() {
+        ExactStringMatcher matcher = new ExactStringMatcher("Timeout", false);
+        String line = "read TIMEOUT then timeout";
+        int end = matcher.find(line, 0);
+        assertEquals(12, end);
+        assertEquals("TIMEOUT", matcher.group(line, end));
+        end = matcher.find(line, end);
+        assertEquals(25, end);
+        assertEquals("timeout", matcher.group(line, end));
+        assertEquals(-1, matcher.find(line, end));
+        assertEquals("Timeout", new ExactStringMatcher("Timeout", true).group("x Timeout", 9));
+    }
+
+    @Test
+    public void testFindsTheSameMatchesAsTheRegex() {
+        String[] literals = {"ab", "a b", "aa", "aAa", "b", "a\u00e9", "ab\u0085", "\u0130a"};
+        String alphabet = "aAbB\u00e9\u0130 \t\n\r\u000B\f\u0085\u2028\u2029-";
+        Random random = new Random(42);
+        for (int run = 0; run < 20000; run++) {
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(12);
+            for (int i = 0; i < length; i++) {
+                text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            String literal = literals[random.nextInt(literals.length)];
+            boolean caseSensitive = random.nextBoolean();
+            assertEquals(literal + " in " + escape(text), regexMatches(literal, caseSensitive, text),
+                    exactMatches(literal, caseSensitive, text));
+        }
+    }
+
+    @Test
+    public void testSkipsAheadOnLongLines() {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            line.append("lorem ipsum dolor ");
+        }
+        line.append("NullPointerException");
+        ExactStringMatcher matcher = new ExactStringMatcher("NullPointerException", true);
+        assertEquals(line.length(), matcher.find(line, 0));
+        assertEquals(regexMatches("NullPointerException", true, line),
+                exactMatches("NullPointerException", true, line));
+    }
+
+    private static String regexMatches(String literal, boolean caseSensitive, CharSequence text) {
+        Pattern pattern = Pattern.compile((caseSensitive ? "(?-i)" : "(?i)") + "(?<=\\s|^)" + Pattern.quote(literal) +
+                "(?=\\s|$)");
+        StringBuilder matches = new StringBuilder();
+        Matcher matcher = pattern.matcher(text);
+        while (matcher.find()) {
+            matches.append(matcher.end()).append(':').append(matcher.group()).append(';');
+        }
+        return matches.toString();
+    }
+
+    private static String exactMatches(String literal, boolean caseSensitive, CharSequence text) {
+        ExactStringMatcher matcher = new ExactStringMatcher(literal, caseSensitive);
+        StringBuilder matches = new StringBuilder();
+        int end = 0;
+        while ((end = matcher.find(text, end)) >= 0) {
+            matches.append(end).append(':').append(matcher.group(text, end)).append(';');
+        }
+        return matches.toString();
+    }
+
+    private static String escape(CharSequence text) {
+        StringBuilder escaped = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            escaped.append(String.format("\\u%04x", (int) text.charAt(i)));
+        }
+        return escaped.toString();
+    }
+}
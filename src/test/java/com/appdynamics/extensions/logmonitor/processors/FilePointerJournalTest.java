@@ -0,0 +1,128 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.processors;
+
+import com.appdynamics.extensions.logmonitor.config.FilePointer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FilePointerJournalTest {
+    private File journalFile;
+
+    @Before
+    public void setUp() {
+        new File("./target").mkdirs();
+        journalFile = new File("./target/filepointer-test.journal");
+        journalFile.delete();
+    }
+
+    @After
+    public void tearDown() {
+        journalFile.delete();
+    }
+
+    @Test
+    public void testPointersAreRecoveredAfterReopening() throws Exception {
+        FilePointerJournal journal = new FilePointerJournal(journalFile);
+        Map<String, FilePointer> filePointers = new HashMap<String, FilePointer>();
+        filePointers.put("/var/log/app*.log", filePointer("/var/log/app1.log", 100, 42));
+        journal.create(filePointers);
+
+        filePointers.put("/var/log/app*.log", filePointer("/var/log/app2.log", 200, 43));
+        filePointers.put("/var/log/other.log", filePointer("/var/log/other.log", 300, 44));
+        journal.append(filePointers, filePointers);
+        journal.close();
+
+        Map<String, FilePointer> recovered = new FilePointerJournal(journalFile).open();
+        assertEquals(2, recovered.size());
+        assertEquals("/var/log/app2.log", recovered.get("/var/log/app*.log").getFilename());
+        assertEquals(200, recovered.get("/var/log/app*.log").getLastReadPosition());
+        assertEquals(43, recovered.get("/var/log/app*.log").getInode());
+        assertEquals(300, recovered.get("/var/log/other.log").getLastReadPosition());
+    }
+
+    @Test
+    public void testUnchangedPointersAreNotAppended() throws Exception {
+        FilePointerJournal journal = new FilePointerJournal(journalFile);
+        Map<String, FilePointer> filePointers = new HashMap<String, FilePointer>();
+        filePointers.put("/var/log/app.log", filePointer("/var/log/app.log", 100, 42));
+        journal.create(filePointers);
+        long length = journalFile.length();
+
+        journal.append(filePointers, filePointers);
+        assertEquals(length, journalFile.length());
+
+        filePointers.put("/var/log/app.log", filePointer("/var/log/app.log", 150, 42));
+        journal.append(filePointers, filePointers);
+        assertTrue(journalFile.length() > length);
+        journal.close();
+    }
+
+    @Test
+    public void testTornTailIsTruncated() throws Exception {
+        FilePointerJournal journal = new FilePointerJournal(journalFile);
+        Map<String, FilePointer> filePointers = new HashMap<String, FilePointer>();
+        filePointers.put("/var/log/app.log", filePointer("/var/log/app.log", 100, 42));
+        journal.create(filePointers);
+        filePointers.put("/var/log/app.log", filePointer("/var/log/app.log", 150, 42));
+        journal.append(filePointers, filePointers);
+        journal.close();
+
+        // simulates a crash in the middle of writing the next checkpoint
+        long intactLength = journalFile.length();
+        RandomAccessFile file = new RandomAccessFile(journalFile, "rw");
+        file.setLength(intactLength - 10);
+        file.close();
+        FileOutputStream garbage = new FileOutputStream(journalFile, true);
+        garbage.write(new byte[]{2, 0, 0, 0});
+        garbage.close();
+
+        journal = new FilePointerJournal(journalFile);
+        Map<String, FilePointer> recovered = journal.open();
+        assertEquals(100, recovered.get("/var/log/app.log").getLastReadPosition());
+
+        recovered.put("/var/log/app.log", filePointer("/var/log/app.log", 200, 42));
+        journal.append(recovered, recovered);
+        journal.close();
+        assertEquals(200, new FilePointerJournal(journalFile).open().get("/var/log/app.log")
+                .getLastReadPosition());
+    }
+
+    @Test
+    public void testJournalIsCompacted() throws Exception {
+        FilePointerJournal journal = new FilePointerJournal(journalFile);
+        Map<String, FilePointer> filePointers = new HashMap<String, FilePointer>();
+        filePointers.put("/var/log/app.log", filePointer("/var/log/app.log", 0, 42));
+        journal.create(filePointers);
+        long snapshotLength = journalFile.length();
+
+        for (int i = 1; i <= 2000; i++) {
+            filePointers.put("/var/log/app.log", filePointer("/var/log/app.log", i, 42));
+            journal.append(filePointers, filePointers);
+        }
+        journal.close();
+        assertTrue(journalFile.length() < snapshotLength + 1100 * 49);
+        assertEquals(2000, new FilePointerJournal(journalFile).open().get("/var/log/app.log")
+                .getLastReadPosition());
+    }
+
+    private static FilePointer filePointer(String filename, long lastReadPosition, long inode) {
+        return new FilePointer(filename, lastReadPosition, 1000, inode);
+    }
+}
@@ -13,9 +13,13 @@ package com.appdynamics.extensions.logmonitor.processors;
  */
 
 import static com.appdynamics.extensions.logmonitor.util.Constants.FILEPOINTER_FILENAME;
+import static com.appdynamics.extensions.logmonitor.util.Constants.FILEPOINTER_JOURNAL_FILENAME;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.io.FileWriter;
 
 import com.appdynamics.extensions.logmonitor.config.FilePointer;
 import org.junit.After;
@@ -29,22 +33,75 @@ public class FilePointerProcessorTest {
         String logPath = "src/test/resources/test-log-3.log";
 
         FilePointer origFilePointer = filePointerProcessor.getFilePointer(logPath, logPath);
-        assertEquals(0, origFilePointer.getLastReadPosition().get());
+        assertEquals(0, origFilePointer.getLastReadPosition());
 
         long newFilePointer = 1234;
         String newFilename = "src/test/resources/test-log-4.log";
-        origFilePointer.setFilename(newFilename);
-        origFilePointer.updateLastReadPosition(newFilePointer);
+        filePointerProcessor.updateFilePointer(logPath, newFilename, newFilePointer, 0);
         filePointerProcessor.updateFilePointerFile();
 
         // re-initialise the filepointer
         // it should pick up from the file
         filePointerProcessor = new FilePointerProcessor();
         FilePointer result = filePointerProcessor.getFilePointer(logPath, logPath);
-        assertEquals(newFilePointer, result.getLastReadPosition().get());
+        assertEquals(newFilePointer, result.getLastReadPosition());
         assertEquals(newFilename, result.getFilename());
     }
 
+    @Test
+    public void testJsonFilePointersAreMigratedOnce() throws Exception {
+        File directory = new File("./target/filepointer-migration-test");
+        deleteDirectory(directory);
+        directory.mkdirs();
+        String logPath = "src/test/resources/test-log-3.log";
+        FileWriter writer = new FileWriter(new File(directory, FILEPOINTER_FILENAME));
+        writer.write("{\"" + logPath + "\":{\"filename\":\"" + logPath + "\",\"lastReadPosition\":42," +
+                "\"fileCreationTime\":1,\"inode\":0}}");
+        writer.close();
+
+        FilePointerProcessor filePointerProcessor = new FilePointerProcessor(directory);
+        assertEquals(42, filePointerProcessor.getFilePointer(logPath, logPath).getLastReadPosition());
+        assertFalse(new File(directory, FILEPOINTER_FILENAME).exists());
+        assertTrue(new File(directory, FILEPOINTER_FILENAME + ".migrated").exists());
+
+        // deleting the journal resets the pointers instead of migrating the json file again
+        assertTrue(new File(directory, FILEPOINTER_JOURNAL_FILENAME).delete());
+        filePointerProcessor = new FilePointerProcessor(directory);
+        assertEquals(0, filePointerProcessor.getFilePointer(logPath, logPath).getLastReadPosition());
+        deleteDirectory(directory);
+    }
+
+    @Test
+    public void testPointerSharedByAnEarlierVersionIsCopiedToEachLog() throws Exception {
+        File directory = new File("./target/filepointer-key-migration-test");
+        deleteDirectory(directory);
+        directory.mkdirs();
+        String logPath = "src/test/resources/test-log-3.log";
+        FilePointerProcessor filePointerProcessor = new FilePointerProcessor(directory);
+        filePointerProcessor.updateFilePointer(logPath, logPath, 42, 1);
+
+        filePointerProcessor.migrateFilePointer(logPath, "Errors|" + logPath);
+        filePointerProcessor.migrateFilePointer(logPath, "Warnings|" + logPath);
+        assertEquals(42, filePointerProcessor.peekFilePointer("Errors|" + logPath).getLastReadPosition());
+        assertEquals(42, filePointerProcessor.peekFilePointer("Warnings|" + logPath).getLastReadPosition());
+
+        // a log that already has its own pointer keeps it
+        filePointerProcessor.updateFilePointer("Errors|" + logPath, logPath, 100, 1);
+        filePointerProcessor.migrateFilePointer(logPath, "Errors|" + logPath);
+        assertEquals(100, filePointerProcessor.peekFilePointer("Errors|" + logPath).getLastReadPosition());
+        deleteDirectory(directory);
+    }
+
+    private static void deleteDirectory(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
     @After
     public void deleteFilePointerFile() {
         File filePointerFile = new File("./target/classes/com/appdynamics/extensions/logmonitor/" +
@@ -52,5 +109,10 @@ public class FilePointerProcessorTest {
         if (filePointerFile.exists()) {
             filePointerFile.delete();
         }
+        File journalFile = new File("./target/classes/com/appdynamics/extensions/logmonitor/" +
+                FILEPOINTER_JOURNAL_FILENAME);
+        if (journalFile.exists()) {
+            journalFile.delete();
+        }
     }
 }
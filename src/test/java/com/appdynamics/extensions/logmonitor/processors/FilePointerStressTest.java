@@ -0,0 +1,126 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.processors;
+
+import com.appdynamics.extensions.logmonitor.config.FilePointer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * A scanner rolls a log over many files while a checkpointer reads and journals its pointer. Each file i has the
+ * creation time and inode i and positions from i * FILE_SIZE, so every field of a pointer tells which file it
+ * belongs to.
+ */
+public class FilePointerStressTest {
+    private static final String LOG = "logs/app.log";
+    private static final int FILES = 2000;
+    private static final long FILE_SIZE = 1000000;
+    private static final int POSITIONS_PER_FILE = 50;
+
+    private File directory;
+
+    @Before
+    public void setUp() {
+        directory = new File("./target/filepointer-stress-test");
+        deleteDirectory();
+        directory.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        deleteDirectory();
+    }
+
+    @Test
+    public void testCheckpointerNeverSeesTornPointersDuringRollover() throws Exception {
+        final FilePointerProcessor filePointerProcessor = new FilePointerProcessor(directory);
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<String> failure = new AtomicReference<String>();
+        final AtomicLong reads = new AtomicLong();
+
+        Thread scanner = new Thread(new Runnable() {
+            public void run() {
+                await(start);
+                for (int file = 1; file <= FILES; file++) {
+                    for (int i = 0; i < POSITIONS_PER_FILE; i++) {
+                        filePointerProcessor.updateFilePointer(LOG, filename(file), file * FILE_SIZE + i, file, file);
+                    }
+                }
+            }
+        });
+        Thread checkpointer = new Thread(new Runnable() {
+            public void run() {
+                await(start);
+                long lastFile = 0;
+                while (failure.get() == null) {
+                    FilePointer filePointer = filePointerProcessor.getFilePointer(LOG, LOG);
+                    long file = filePointer.getFileCreationTime();
+                    if (file != 0) {
+                        long position = filePointer.getLastReadPosition();
+                        if (!filename(file).equals(filePointer.getFilename()) || filePointer.getInode() != file ||
+                                position / FILE_SIZE != file || file < lastFile) {
+                            failure.set("Torn pointer " + filePointer + " after file " + lastFile);
+                        }
+                        lastFile = file;
+                        if (position == FILES * FILE_SIZE + POSITIONS_PER_FILE - 1) {
+                            return;
+                        }
+                    }
+                    if (reads.incrementAndGet() % 64 == 0) {
+                        filePointerProcessor.updateFilePointerFile();
+                    }
+                }
+            }
+        });
+        scanner.start();
+        checkpointer.start();
+        start.countDown();
+        scanner.join();
+        checkpointer.join(60000);
+
+        assertNull(failure.get());
+        filePointerProcessor.updateFilePointerFile();
+        FilePointer persisted = new FilePointerProcessor(directory).getFilePointer(LOG, LOG);
+        assertEquals(filename(FILES), persisted.getFilename());
+        assertEquals(FILES * FILE_SIZE + POSITIONS_PER_FILE - 1, persisted.getLastReadPosition());
+        assertEquals(FILES, persisted.getFileCreationTime());
+        assertEquals(FILES, persisted.getInode());
+    }
+
+    private static String filename(long file) {
+        return LOG + "." + file;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void deleteDirectory() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.processors;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class JsonLineScannerTest {
+
+    @Test
+    public void testOnlyConfiguredFieldsAreExtracted() {
+        JsonLineScanner scanner = new JsonLineScanner(Lists.newArrayList("level", "error.type", "took"));
+        String line = "{\"message\":\"\\\"level\\\":\\\"ERROR\\\" in text\", \"tags\": [\"a\", {\"level\": \"x\"}], " +
+                "\"level\" : \"INFO\", \"error\": {\"code\": 5, \"type\": \"Null\\u0050ointer\\n\"}, \"took\": 12.5}";
+
+        assertTrue(scanner.mayContainFields(line));
+        assertTrue(scanner.scan(line));
+        assertEquals("INFO", scanner.getValue(0).toString());
+        assertEquals("NullPointer\n", scanner.getValue(1).toString());
+        assertEquals("12.5", scanner.getValue(2).toString());
+    }
+
+    @Test
+    public void testMissingFieldsAndMalformedLines() {
+        JsonLineScanner scanner = new JsonLineScanner(Lists.newArrayList("level", "error.type"));
+
+        assertTrue(scanner.scan("{\"level\":\"WARN\",\"error\":\"plain\"}"));
+        assertEquals("WARN", scanner.getValue(0).toString());
+        assertNull(scanner.getValue(1));
+
+        assertFalse(scanner.mayContainFields("2020-06-01 10:00:00 ERROR not json"));
+        assertFalse(scanner.scan("2020-06-01 10:00:00 ERROR not json"));
+        assertFalse(scanner.scan("{\"level\":\"WARN\""));
+        assertNull(scanner.getValue(0));
+    }
+}
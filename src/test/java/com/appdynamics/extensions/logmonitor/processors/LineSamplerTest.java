@@ -0,0 +1,126 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.processors;
+
+import com.appdynamics.extensions.logmonitor.config.Log;
+import com.appdynamics.extensions.logmonitor.config.Sampling;
+import com.appdynamics.extensions.logmonitor.config.SearchString;
+import com.appdynamics.extensions.logmonitor.metrics.LogMetrics;
+import com.google.common.collect.Lists;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LineSamplerTest {
+    private File logFile = new File("./target/line-sampler-test.log");
+
+    @After
+    public void deleteLogFile() {
+        logFile.delete();
+    }
+
+    @Test
+    public void testSampledOccurrencesAreScaledWithinTheirMargin() throws Exception {
+        writeLogFile(20000);
+        LogMetrics logMetrics = scan(createSampling(Sampling.LINES_MODE, 0.1));
+
+        long estimate = metricValue(logMetrics, "Sampled|Search String|Errors|Occurrences");
+        long margin = metricValue(logMetrics, "Sampled|Search String|Errors|Occurrences Margin (95%)");
+        long sampledLines = metricValue(logMetrics, "Sampled|Sampled Lines");
+        assertTrue(margin > 0);
+        assertTrue("estimate " + estimate + " +/- " + margin, Math.abs(estimate - 5000) <= 2 * margin);
+        assertTrue(sampledLines > 1500 && sampledLines < 2500);
+        assertEquals(logFile.length(), logMetrics.getFilePointers().get(0).getLastReadPosition());
+    }
+
+    @Test
+    public void testLineSamplingIsDeterministicByPosition() {
+        LineSampler sampler = new LineSampler(createSampling(Sampling.LINES_MODE, 0.5));
+        LineSampler other = new LineSampler(createSampling(Sampling.LINES_MODE, 0.5));
+        for (long position = 0; position < 10000; position += 37) {
+            assertEquals(sampler.sample(position), other.sample(position));
+        }
+    }
+
+    @Test
+    public void testBlockSamplingMatchesEveryNthBlock() {
+        Sampling sampling = createSampling(Sampling.BLOCKS_MODE, 0.25);
+        sampling.setBlockBytes(100);
+        LineSampler sampler = new LineSampler(sampling);
+        assertTrue(sampler.sample(0));
+        assertTrue(sampler.sample(99));
+        assertTrue(!sampler.sample(100));
+        assertTrue(!sampler.sample(399));
+        assertTrue(sampler.sample(400));
+    }
+
+    @Test
+    public void testFullSampleIsExact() throws Exception {
+        writeLogFile(1000);
+        LogMetrics logMetrics = scan(createSampling(Sampling.RANDOM_MODE, 1));
+        assertEquals(250, metricValue(logMetrics, "Sampled|Search String|Errors|Occurrences"));
+        assertEquals(0, metricValue(logMetrics, "Sampled|Search String|Errors|Occurrences Margin (95%)"));
+        assertEquals(1000, metricValue(logMetrics, "Sampled|Sampled Lines"));
+    }
+
+    @Test
+    public void testEstimateAndMargin() {
+        assertEquals(500, LineSampler.estimate(50, 100, 1000));
+        assertEquals(0, LineSampler.estimate(50, 0, 1000));
+        assertEquals(0, LineSampler.margin(50, 50, 1000, 1000));
+        assertEquals(1000, LineSampler.margin(0, 0, 1, 1000));
+        // half of the sampled lines match once: variance 0.2525, margin 1.96 * 1000 * sqrt(0.9 * 0.2525 / 100)
+        assertEquals(93, LineSampler.margin(50, 50, 100, 1000));
+    }
+
+    private void writeLogFile(int lines) throws Exception {
+        logFile.getParentFile().mkdirs();
+        FileWriter writer = new FileWriter(logFile);
+        for (int i = 0; i < lines; i++) {
+            writer.write(i % 4 == 0 ? "line " + i + " ERROR\n" : "line " + i + " DEBUG\n");
+        }
+        writer.close();
+    }
+
+    private LogMetrics scan(Sampling sampling) {
+        Log log = new Log();
+        log.setDisplayName("Sampled");
+        log.setLogDirectory(logFile.getParent());
+        log.setLogName(logFile.getName());
+        log.setSampling(sampling);
+        SearchString searchString = new SearchString();
+        searchString.setDisplayName("Errors");
+        searchString.setPattern("ERROR");
+        searchString.setMatchExactString(true);
+        searchString.setCaseSensitive(true);
+        searchString.setPrintMatchedString(false);
+        log.setSearchStrings(Lists.newArrayList(searchString));
+        LogMetrics logMetrics = new LogMetrics();
+        logMetrics.setMetricPrefix("Prefix");
+        new LogMetricsProcessor(logFile, 0, log, null, new CountDownLatch(1), logMetrics, null, 0).run();
+        return logMetrics;
+    }
+
+    private Sampling createSampling(String mode, double rate) {
+        Sampling sampling = new Sampling();
+        sampling.setMode(mode);
+        sampling.setRate(rate);
+        return sampling;
+    }
+
+    private long metricValue(LogMetrics logMetrics, String metricName) {
+        return Long.parseLong(logMetrics.getMetrics().get(metricName).getMetricValue());
+    }
+}
@@ -11,9 +11,12 @@ package com.appdynamics.extensions.logmonitor.processors;
 import com.appdynamics.extensions.AMonitorJob;
 import com.appdynamics.extensions.conf.MonitorContextConfiguration;
 import com.appdynamics.extensions.eventsservice.EventsServiceDataManager;
+import com.appdynamics.extensions.logmonitor.EventsServiceSink;
 import com.appdynamics.extensions.logmonitor.LogEvent;
+import com.appdynamics.extensions.logmonitor.NullEventSink;
 import com.appdynamics.extensions.logmonitor.config.FilePointer;
 import com.appdynamics.extensions.logmonitor.config.Log;
+import com.appdynamics.extensions.logmonitor.config.Multiline;
 import com.appdynamics.extensions.logmonitor.config.SearchPattern;
 import com.appdynamics.extensions.logmonitor.config.SearchString;
 import com.appdynamics.extensions.logmonitor.metrics.LogMetrics;
@@ -89,15 +92,14 @@ public class LogFileManagerTest {
 
         log.setSearchStrings(Lists.newArrayList(searchString, searchString1, searchString2));
 
-        FilePointer filePointer = new FilePointer();
-        filePointer.setFilename(log.getLogDirectory() + log.getLogName());
+        FilePointer filePointer = new FilePointer(log.getLogDirectory() + log.getLogName(), 0, 0, 0);
         when(mockFilePointerProcessor.getFilePointer(anyString(), anyString())).thenReturn(filePointer);
 
         MonitorContextConfiguration monitorContextConfiguration = new MonitorContextConfiguration("Log Monitor",
                 "Custom Metrics|Log Monitor|", Mockito.mock(File.class), Mockito.mock(AMonitorJob.class));
         monitorContextConfiguration.setConfigYml("src/test/resources/conf/config.yaml");
 
-        classUnderTest = new LogFileManager(mockFilePointerProcessor, log, monitorContextConfiguration);
+        classUnderTest = createLogFileManager(mockFilePointerProcessor, log, monitorContextConfiguration);
         LogMetrics logMetrics = classUnderTest.processLogMetrics();
         Map<String, Metric> metrics = logMetrics.getMetrics();
 
@@ -140,11 +142,10 @@ public class LogFileManagerTest {
         monitorContextConfiguration.setConfigYml("src/test/resources/conf/config.yaml");
         log.setSearchStrings(Lists.newArrayList(searchString, searchString1, searchString2));
 
-        FilePointer filePointer = new FilePointer();
-        filePointer.setFilename(log.getLogDirectory() + log.getLogName());
+        FilePointer filePointer = new FilePointer(log.getLogDirectory() + log.getLogName(), 0, 0, 0);
         when(mockFilePointerProcessor.getFilePointer(anyString(), anyString())).thenReturn(filePointer);
-        classUnderTest = new LogFileManager(mockFilePointerProcessor, log, monitorContextConfiguration);
-        classUnderTest = new LogFileManager(mockFilePointerProcessor, log, monitorContextConfiguration);
+        classUnderTest = createLogFileManager(mockFilePointerProcessor, log, monitorContextConfiguration);
+        classUnderTest = createLogFileManager(mockFilePointerProcessor, log, monitorContextConfiguration);
         LogMetrics logMetrics = classUnderTest.processLogMetrics();
         Map<String, Metric> metrics = logMetrics.getMetrics();
 
@@ -191,15 +192,14 @@ public class LogFileManagerTest {
 
         log.setSearchStrings(Lists.newArrayList(searchString, searchString1, searchString2));
 
-        FilePointer filePointer = new FilePointer();
-        filePointer.setFilename(log.getLogDirectory() + log.getLogName());
+        FilePointer filePointer = new FilePointer(log.getLogDirectory() + log.getLogName(), 0, 0, 0);
         when(mockFilePointerProcessor.getFilePointer(anyString(), anyString())).thenReturn(filePointer);
 
         MonitorContextConfiguration monitorContextConfiguration = new MonitorContextConfiguration("Log Monitor",
                 "Custom Metrics|Log Monitor|", Mockito.mock(File.class), Mockito.mock(AMonitorJob.class));
         monitorContextConfiguration.setConfigYml("src/test/resources/conf/config.yaml");
 
-        classUnderTest = new LogFileManager(mockFilePointerProcessor, log, monitorContextConfiguration);
+        classUnderTest = createLogFileManager(mockFilePointerProcessor, log, monitorContextConfiguration);
         LogMetrics logMetrics = classUnderTest.processLogMetrics();
         Map<String, Metric> metrics = logMetrics.getMetrics();
         assertEquals("5", metrics.get("TestUTF16Log|Search String|Debug|Occurrences").getMetricValue());
@@ -262,11 +262,10 @@ public class LogFileManagerTest {
         monitorContextConfiguration.setConfigYml("src/test/resources/conf/config.yaml");
         log.setSearchStrings(Lists.newArrayList(searchString, searchString1, searchString2, searchString3, searchString4, searchString5));
 
-        FilePointer filePointer = new FilePointer();
-        filePointer.setFilename(log.getLogDirectory() + log.getLogName());
+        FilePointer filePointer = new FilePointer(log.getLogDirectory() + log.getLogName(), 0, 0, 0);
         when(mockFilePointerProcessor.getFilePointer(anyString(), anyString())).thenReturn(filePointer);
 
-        classUnderTest = new LogFileManager(mockFilePointerProcessor, log, monitorContextConfiguration);
+        classUnderTest = createLogFileManager(mockFilePointerProcessor, log, monitorContextConfiguration);
         LogMetrics logMetrics = classUnderTest.processLogMetrics();
         Map<String, Metric> metrics = logMetrics.getMetrics();
 
@@ -320,11 +319,10 @@ public class LogFileManagerTest {
         log.setSearchStrings(Lists.newArrayList(searchString, searchString1, searchString2));
         monitorContextConfiguration.setConfigYml("src/test/resources/conf/config.yaml");
 
-        FilePointer filePointer = new FilePointer();
-        filePointer.setFilename(log.getLogDirectory() + log.getLogName());
+        FilePointer filePointer = new FilePointer(log.getLogDirectory() + log.getLogName(), 0, 0, 0);
         when(mockFilePointerProcessor.getFilePointer(anyString(), anyString())).thenReturn(filePointer);
 
-        classUnderTest = new LogFileManager(mockFilePointerProcessor, log, monitorContextConfiguration);
+        classUnderTest = createLogFileManager(mockFilePointerProcessor, log, monitorContextConfiguration);
         LogMetrics logMetrics = classUnderTest.processLogMetrics();
         Map<String, Metric> metrics = logMetrics.getMetrics();
 
@@ -389,11 +387,11 @@ public class LogFileManagerTest {
         monitorContextConfiguration.setConfigYml("src/test/resources/conf/config.yaml");
         log.setSearchStrings(Lists.newArrayList(searchString, searchString1, searchString2));
 
-        FilePointer filePointer = new FilePointer();
-        filePointer.setFilename(log.getLogDirectory() + File.separator + log.getLogName());
+        FilePointer filePointer = new FilePointer(log.getLogDirectory() + File.separator + log.getLogName(),
+                0, 0, 0);
         when(mockFilePointerProcessor.getFilePointer(anyString(), anyString())).thenReturn(filePointer);
 
-        classUnderTest = new LogFileManager(mockFilePointerProcessor, log, monitorContextConfiguration);
+        classUnderTest = createLogFileManager(mockFilePointerProcessor, log, monitorContextConfiguration);
         LogMetrics result = classUnderTest.processLogMetrics();
         Map<String, Metric> metrics = result.getMetrics();
 
@@ -408,12 +406,13 @@ public class LogFileManagerTest {
         String filesize = getFileSize(log.getLogDirectory(), log.getLogName());
         assertEquals(filesize, metrics.get("TestLog|File size (Bytes)").getMetricValue());
 
-        FilePointer filePointerAfterCurrentRun = LogMonitorUtil.getLatestFilePointer(result.getFilePointers());
-        Mockito.verify(mockFilePointerProcessor, times(1)).updateFilePointer(filePointerAfterCurrentRun.getFilename(),
-                filePointerAfterCurrentRun.getFilename(), filePointerAfterCurrentRun.getLastReadPosition(), filePointerAfterCurrentRun.getFileCreationTime());
+        FilePointer filePointerAfterCurrentRun = getLastFilePointer(result);
+        Mockito.verify(mockFilePointerProcessor, times(1)).updateFilePointer(
+                "TestLog|" + filePointerAfterCurrentRun.getFilename(), filePointerAfterCurrentRun.getFilename(), filePointerAfterCurrentRun.getLastReadPosition(), filePointerAfterCurrentRun.getFileCreationTime(),
+                filePointerAfterCurrentRun.getInode());
 
         // simulate our filepointer was updated
-        filePointer.updateLastReadPosition(new Long(filesize));
+        filePointer = new FilePointer(filePointer.getFilename(), Long.parseLong(filesize), 0, 0);
         when(mockFilePointerProcessor.getFilePointer(anyString(), anyString()))
                 .thenReturn(filePointer);
 
@@ -425,7 +424,7 @@ public class LogFileManagerTest {
                 new Date() + "	DEBUG	This is the fifth line");
         updateLogFile(testFilepath, logsToAdd);
 
-        classUnderTest = new LogFileManager(mockFilePointerProcessor, log, monitorContextConfiguration);
+        classUnderTest = createLogFileManager(mockFilePointerProcessor, log, monitorContextConfiguration);
         result = classUnderTest.processLogMetrics();
         metrics = result.getMetrics();
 
@@ -435,9 +434,183 @@ public class LogFileManagerTest {
         assertEquals("3", metrics.get("TestLog|Search String|Debug|Occurrences").getMetricValue());
         assertEquals("0", metrics.get("TestLog|Search String|Error|Occurrences").getMetricValue());
 
-        filePointerAfterCurrentRun = LogMonitorUtil.getLatestFilePointer(result.getFilePointers());
-        Mockito.verify(mockFilePointerProcessor, times(1)).updateFilePointer(filePointerAfterCurrentRun.getFilename(),
-                filePointerAfterCurrentRun.getFilename(), filePointerAfterCurrentRun.getLastReadPosition(), filePointerAfterCurrentRun.getFileCreationTime());
+        filePointerAfterCurrentRun = getLastFilePointer(result);
+        Mockito.verify(mockFilePointerProcessor, times(1)).updateFilePointer(
+                "TestLog|" + filePointerAfterCurrentRun.getFilename(), filePointerAfterCurrentRun.getFilename(), filePointerAfterCurrentRun.getLastReadPosition(), filePointerAfterCurrentRun.getFileCreationTime(),
+                filePointerAfterCurrentRun.getInode());
+    }
+
+    @Test
+    public void testUnchangedLogPublishesZeroOccurrencesAndFileSize() throws Exception {
+        String originalFilePath = this.getClass().getClassLoader().getResource("test-log-1.log").getPath();
+        File pointerDirectory = new File(getTargetDir(), "unchanged-log-test");
+        pointerDirectory.mkdirs();
+        String testFilename = "unchanged-test-log.log";
+        String testFilepath = String.format("%s%s%s", pointerDirectory.getPath(), File.separator, testFilename);
+        copyFile(originalFilePath, testFilepath);
+
+        Log log = new Log();
+        log.setDisplayName("TestLog");
+        log.setLogDirectory(pointerDirectory.getPath());
+        log.setLogName(testFilename);
+
+        SearchString searchString = new SearchString();
+        searchString.setCaseSensitive(false);
+        searchString.setMatchExactString(true);
+        searchString.setPattern("debug");
+        searchString.setDisplayName("Debug");
+        searchString.setPrintMatchedString(false);
+        log.setSearchStrings(Lists.newArrayList(searchString));
+
+        monitorContextConfiguration.setConfigYml("src/test/resources/conf/config.yaml");
+        FilePointerProcessor filePointerProcessor = new FilePointerProcessor(pointerDirectory);
+        LogState logState = new LogState();
+
+        LogMetrics result = createLogFileManager(filePointerProcessor, log, logState, monitorContextConfiguration)
+                .processLogMetrics();
+        assertEquals("13", result.getMetrics().get("TestLog|Search String|Debug|Occurrences").getMetricValue());
+
+        String filesize = getFileSize(log.getLogDirectory(), log.getLogName());
+        result = createLogFileManager(filePointerProcessor, log, logState, monitorContextConfiguration)
+                .processLogMetrics();
+        assertEquals("0", result.getMetrics().get("TestLog|Search String|Debug|Occurrences").getMetricValue());
+        assertEquals(filesize, result.getMetrics().get("TestLog|File size (Bytes)").getMetricValue());
+        assertTrue(result.getFilePointers().isEmpty());
+
+        updateLogFile(testFilepath, Arrays.asList("", new Date() + "	DEBUG	This is a new line"));
+        result = createLogFileManager(filePointerProcessor, log, logState, monitorContextConfiguration)
+                .processLogMetrics();
+        assertEquals("1", result.getMetrics().get("TestLog|Search String|Debug|Occurrences").getMetricValue());
+        assertFalse(result.getFilePointers().isEmpty());
+    }
+
+    @Test
+    public void testRolledOverFilesAdvanceTheFilePointerInOrder() throws Exception {
+        File pointerDirectory = new File(getTargetDir(), "rollover-pipeline-test");
+        pointerDirectory.mkdirs();
+        for (File file : pointerDirectory.listFiles()) {
+            file.delete();
+        }
+        String dirPath = LogMonitorUtil.resolveDirPath(pointerDirectory.getPath());
+        String file1 = dirPath + "pipeline-1.log";
+        String file2 = dirPath + "pipeline-2.log";
+        String file3 = dirPath + "pipeline-3.log";
+        updateLogFile(file1, Arrays.asList("DEBUG one", "DEBUG two", ""));
+
+        Log log = new Log();
+        log.setDisplayName("TestLog");
+        log.setLogDirectory(pointerDirectory.getPath());
+        log.setLogName("pipeline-*");
+        SearchString searchString = new SearchString();
+        searchString.setCaseSensitive(false);
+        searchString.setMatchExactString(true);
+        searchString.setPattern("debug");
+        searchString.setDisplayName("Debug");
+        searchString.setPrintMatchedString(false);
+        log.setSearchStrings(Lists.newArrayList(searchString));
+        monitorContextConfiguration.setConfigYml("src/test/resources/conf/config.yaml");
+
+        final List<String> publishedFilenames = Lists.newArrayList();
+        final List<Long> publishedPositions = Lists.newArrayList();
+        FilePointerProcessor filePointerProcessor = new FilePointerProcessor(pointerDirectory) {
+            @Override
+            void updateFilePointer(String dynamicLogPath, String actualLogPath, long lastReadPosition,
+                                   long creationTimestamp, long inode) {
+                publishedFilenames.add(actualLogPath);
+                publishedPositions.add(lastReadPosition);
+                super.updateFilePointer(dynamicLogPath, actualLogPath, lastReadPosition, creationTimestamp, inode);
+            }
+        };
+        LogState logState = new LogState();
+        createLogFileManager(filePointerProcessor, log, logState, monitorContextConfiguration).processLogMetrics();
+
+        Thread.sleep(1000);
+        updateLogFile(file2, Arrays.asList("DEBUG four", "INFO five", ""));
+        Thread.sleep(1000);
+        updateLogFile(file3, Arrays.asList("DEBUG six", ""));
+        publishedFilenames.clear();
+        publishedPositions.clear();
+        LogMetrics result = createLogFileManager(filePointerProcessor, log, logState, monitorContextConfiguration)
+                .processLogMetrics();
+
+        assertEquals("2", result.getMetrics().get("TestLog|Search String|Debug|Occurrences").getMetricValue());
+        assertEquals(Arrays.asList(file1, file2, file3), publishedFilenames);
+        assertEquals(Arrays.asList(new File(file1).length(), new File(file2).length(), new File(file3).length()),
+                publishedPositions);
+        // each finished file was checkpointed, the last one when the run completed
+        filePointerProcessor.updateFilePointerFile();
+        FilePointer persisted = new FilePointerProcessor(pointerDirectory).getFilePointer(
+                "TestLog|" + dirPath + "pipeline-*", file3);
+        assertEquals(file3, persisted.getFilename());
+        assertEquals(new File(file3).length(), persisted.getLastReadPosition());
+    }
+
+    @Test
+    public void testLogsSharingAFileKeepTheirOwnFilePointers() throws Exception {
+        File pointerDirectory = new File(getTargetDir(), "shared-scan-test");
+        pointerDirectory.mkdirs();
+        for (File file : pointerDirectory.listFiles()) {
+            file.delete();
+        }
+        String dirPath = LogMonitorUtil.resolveDirPath(pointerDirectory.getPath());
+        String logFile = dirPath + "shared.log";
+        String firstLine = "2020-06-01 10:00:01 INFO started\n";
+        updateLogFile(logFile, Arrays.asList(firstLine + "2020-06-01 10:00:02 ERROR failed\n"));
+
+        Log plain = new Log();
+        plain.setDisplayName("Plain");
+        plain.setLogDirectory(pointerDirectory.getPath());
+        plain.setLogName("shared.log");
+        SearchString errors = new SearchString();
+        errors.setCaseSensitive(true);
+        errors.setMatchExactString(true);
+        errors.setPattern("ERROR");
+        errors.setDisplayName("Errors");
+        errors.setPrintMatchedString(false);
+        plain.setSearchStrings(Lists.newArrayList(errors));
+
+        Log multiline = new Log();
+        multiline.setDisplayName("Multiline");
+        multiline.setLogDirectory(pointerDirectory.getPath());
+        multiline.setLogName("shared.log");
+        Multiline records = new Multiline();
+        records.setStartPattern("^\\d{4}-\\d{2}-\\d{2} ");
+        multiline.setMultiline(records);
+        SearchString failures = new SearchString();
+        failures.setCaseSensitive(true);
+        failures.setMatchExactString(false);
+        failures.setPattern("ERROR.*at com");
+        failures.setDisplayName("Failures");
+        failures.setPrintMatchedString(false);
+        multiline.setSearchStrings(Lists.newArrayList(failures));
+
+        monitorContextConfiguration.setConfigYml("src/test/resources/conf/config.yaml");
+        FilePointerProcessor filePointerProcessor = new FilePointerProcessor(pointerDirectory);
+        LogState plainState = new LogState();
+        LogState multilineState = new LogState();
+        List<LogMetrics> results = LogFileManager.processLogMetrics(Arrays.asList(
+                createLogFileManager(filePointerProcessor, plain, plainState, monitorContextConfiguration),
+                createLogFileManager(filePointerProcessor, multiline, multilineState, monitorContextConfiguration)));
+        assertEquals("1", results.get(0).getMetrics().get("Plain|Search String|Errors|Occurrences").getMetricValue());
+        assertEquals("0", results.get(1).getMetrics().get("Multiline|Search String|Failures|Occurrences")
+                .getMetricValue());
+        // the multiline log holds back its last record, the plain log has read the whole file
+        assertEquals(new File(logFile).length(), filePointerProcessor.peekFilePointer("Plain|" + logFile)
+                .getLastReadPosition());
+        assertEquals(firstLine.length(), filePointerProcessor.peekFilePointer("Multiline|" + logFile)
+                .getLastReadPosition());
+
+        updateLogFile(logFile, Arrays.asList("\tat com.foo.Bar.baz(Bar.java:10)\n"));
+        results = LogFileManager.processLogMetrics(Arrays.asList(
+                createLogFileManager(filePointerProcessor, plain, plainState, monitorContextConfiguration),
+                createLogFileManager(filePointerProcessor, multiline, multilineState, monitorContextConfiguration)));
+        assertEquals("0", results.get(0).getMetrics().get("Plain|Search String|Errors|Occurrences").getMetricValue());
+        assertEquals("1", results.get(1).getMetrics().get("Multiline|Search String|Failures|Occurrences")
+                .getMetricValue());
+        assertEquals(new File(logFile).length(), filePointerProcessor.peekFilePointer("Plain|" + logFile)
+                .getLastReadPosition());
+        assertEquals(new File(logFile).length(), filePointerProcessor.peekFilePointer("Multiline|" + logFile)
+                .getLastReadPosition());
     }
 
     @Test
@@ -468,22 +641,22 @@ public class LogFileManagerTest {
 
         log.setSearchStrings(Lists.newArrayList(searchString, searchString1));
 
-        FilePointer filePointer = new FilePointer();
-        filePointer.setFilename(log.getLogDirectory() + File.separator + testFilename);
+        FilePointer filePointer = new FilePointer(log.getLogDirectory() + File.separator + testFilename, 0, 0, 0);
         monitorContextConfiguration.setConfigYml("src/test/resources/conf/config.yaml");
         when(mockFilePointerProcessor.getFilePointer(anyString(), anyString())).thenReturn(filePointer);
 
-        classUnderTest = new LogFileManager(mockFilePointerProcessor, log, monitorContextConfiguration);
+        classUnderTest = createLogFileManager(mockFilePointerProcessor, log, monitorContextConfiguration);
         LogMetrics logMetrics = classUnderTest.processLogMetrics();
 
         String filesize = getFileSize(log.getLogDirectory(), testFilename);
-        FilePointer latestFilePointer = LogMonitorUtil.getLatestFilePointer(logMetrics.getFilePointers());
+        FilePointer latestFilePointer = getLastFilePointer(logMetrics);
         Mockito.verify(mockFilePointerProcessor, times(1))
-                .updateFilePointer("./target/active-dynamic-*",
-                        latestFilePointer.getFilename(), latestFilePointer.getLastReadPosition(), latestFilePointer.getFileCreationTime());
+                .updateFilePointer("active-dynamic-*|./target/active-dynamic-*",
+                        latestFilePointer.getFilename(), latestFilePointer.getLastReadPosition(), latestFilePointer.getFileCreationTime(),
+                        latestFilePointer.getInode());
 
         // simulate our filepointer was updated
-        filePointer.updateLastReadPosition(new Long(filesize));
+        filePointer = new FilePointer(filePointer.getFilename(), Long.parseLong(filesize), 0, 0);
         when(mockFilePointerProcessor.getFilePointer(anyString(), anyString()))
                 .thenReturn(filePointer);
 
@@ -513,9 +686,10 @@ public class LogFileManagerTest {
 
         updateLogFile(testFilepath, logsToAdd);
         logMetrics = classUnderTest.processLogMetrics();
-        latestFilePointer = LogMonitorUtil.getLatestFilePointer(logMetrics.getFilePointers());
-        Mockito.verify(mockFilePointerProcessor, times(1)).updateFilePointer("./target/active-dynamic-*",
-                latestFilePointer.getFilename(), latestFilePointer.getLastReadPosition(), latestFilePointer.getFileCreationTime());
+        latestFilePointer = getLastFilePointer(logMetrics);
+        Mockito.verify(mockFilePointerProcessor, times(1)).updateFilePointer("active-dynamic-*|./target/active-dynamic-*",
+                latestFilePointer.getFilename(), latestFilePointer.getLastReadPosition(), latestFilePointer.getFileCreationTime(),
+                latestFilePointer.getInode());
     }
 
     @Test
@@ -545,12 +719,11 @@ public class LogFileManagerTest {
 
         log.setSearchStrings(Lists.newArrayList(searchString, searchString1));
 
-        FilePointer filePointer = new FilePointer();
-        filePointer.setFilename(log.getLogDirectory() + File.separator + testFilename);
+        FilePointer filePointer = new FilePointer(log.getLogDirectory() + File.separator + testFilename, 0, 0, 0);
         monitorContextConfiguration.setConfigYml("src/test/resources/conf/config.yaml");
         when(mockFilePointerProcessor.getFilePointer(anyString(), anyString())).thenReturn(filePointer);
 
-        classUnderTest = new LogFileManager(mockFilePointerProcessor, log, monitorContextConfiguration);
+        classUnderTest = createLogFileManager(mockFilePointerProcessor, log, monitorContextConfiguration);
         LogMetrics logMetrics = classUnderTest.processLogMetrics();
         Map<String, Metric> metrics = logMetrics.getMetrics();
 
@@ -561,7 +734,7 @@ public class LogFileManagerTest {
         assertEquals(filesize, metrics.get("active-dynamic-*|File size (Bytes)").getMetricValue());
 
         // simulate a file pointer update
-        filePointer.updateLastReadPosition(new Long(filesize));
+        filePointer = new FilePointer(filePointer.getFilename(), Long.parseLong(filesize), 0, 0);
         when(mockFilePointerProcessor.getFilePointer(anyString(), anyString())).thenReturn(filePointer);
 
         List<String> logsToAdd = Lists.newArrayList();
@@ -608,15 +781,16 @@ public class LogFileManagerTest {
 
         log.setSearchStrings(Lists.newArrayList(searchString));
 
-        FilePointer filePointer = new FilePointer();
-        filePointer.setFilename(log.getLogDirectory() + log.getLogName());
+        FilePointer filePointer = new FilePointer(log.getLogDirectory() + log.getLogName(), 0, 0, 0);
         when(mockFilePointerProcessor.getFilePointer(anyString(), anyString())).thenReturn(filePointer);
 
         MonitorContextConfiguration monitorContextConfiguration = new MonitorContextConfiguration("Log Monitor",
                 "Custom Metrics|Log Monitor|", Mockito.mock(File.class), Mockito.mock(AMonitorJob.class));
         monitorContextConfiguration.setConfigYml("src/test/resources/conf/config-eventsService.yaml");
 
-        classUnderTest = new LogFileManager(mockFilePointerProcessor, log, monitorContextConfiguration);
+        classUnderTest = new LogFileManager(mockFilePointerProcessor, log, new LogState(), null, null,
+                new DirectorySnapshots(), new EventsServiceSink(Mockito.mock(EventsServiceDataManager.class), null),
+                monitorContextConfiguration);
         LogMetrics logMetrics = classUnderTest.processLogMetrics();
         Map<String, Metric> metrics = logMetrics.getMetrics();
 
@@ -637,21 +811,97 @@ public class LogFileManagerTest {
 
         SearchPattern searchPattern = new SearchPattern("Test Patterns", Pattern.compile("1"), false, false );
 
-        FilePointer filePointer = new FilePointer();
-        filePointer.setFilename(log.getLogDirectory() + log.getLogName());
+        FilePointer filePointer = new FilePointer(log.getLogDirectory() + log.getLogName(), 0, 0, 0);
 
         OptimizedRandomAccessFile randomAccessFile = new OptimizedRandomAccessFile(new File("src/test/resources/test-log-4-events-service.log"), "r");
 
         int offset = 5;
 
-        LogEventsProcessor classUnderTest = new LogEventsProcessor(eventsServiceDataManager, offset, log);
-        LogEvent logEvent = classUnderTest.processLogEvent(searchPattern, randomAccessFile, "");
+        LogEventsProcessor classUnderTest = new LogEventsProcessor(new EventsServiceSink(eventsServiceDataManager, null),
+                offset, log);
+        LogEvent logEvent = classUnderTest.processLogEvent(ScanContext.acquire(), searchPattern, randomAccessFile, "");
 
         Assert.assertEquals("1\n1\n2\n3\n4\n", logEvent.getLogMatch());
     }
+
+    @Test
+    public void testLogEventTextIsTruncatedToMaxBytesPerEventAndPerRun() throws Exception {
+        EventsServiceDataManager eventsServiceDataManager = Mockito.mock(EventsServiceDataManager.class);
+        Mockito.when(eventsServiceDataManager.retrieveSchema(SCHEMA_NAME)).thenReturn("Hello world");
+        Log log = new Log();
+        log.setDisplayName("TestLog");
+        SearchPattern searchPattern = new SearchPattern("Test Patterns", Pattern.compile("1"), false, false );
+        OptimizedRandomAccessFile randomAccessFile = new OptimizedRandomAccessFile(new File("src/test/resources/test-log-4-events-service.log"), "r");
+        LogMetrics logMetrics = new LogMetrics();
+        logMetrics.setLogMatchMaxBytes(4);
+        logMetrics.setLogMatchMaxBytesPerRun(6);
+
+        ScanContext scanContext = ScanContext.acquire();
+        EventsServiceSink eventSink = new EventsServiceSink(eventsServiceDataManager, null);
+        LogEventsProcessor classUnderTest = new LogEventsProcessor(eventSink, 5, log, logMetrics);
+        // the first two offset lines fill the 4 bytes, the next three lines are skipped
+        Assert.assertEquals("1\n1\n [truncated 6 bytes]",
+                classUnderTest.processLogEvent(scanContext, searchPattern, randomAccessFile, "").getLogMatch());
+        Assert.assertEquals(0, randomAccessFile.getFilePointer());
+        Assert.assertEquals(1, classUnderTest.getTruncatedEvents());
+
+        // only 2 of the 6 bytes per run are left
+        classUnderTest = new LogEventsProcessor(eventSink, 0, log, logMetrics);
+        Assert.assertEquals("ab [truncated 1 bytes]",
+                classUnderTest.processLogEvent(scanContext, searchPattern, randomAccessFile, "abc").getLogMatch());
+        Assert.assertEquals(" [truncated 3 bytes]",
+                classUnderTest.processLogEvent(scanContext, searchPattern, randomAccessFile, "abc").getLogMatch());
+        Assert.assertEquals(2, classUnderTest.getTruncatedEvents());
+        randomAccessFile.close();
+        scanContext.release();
+    }
+
+    @Test
+    public void testLongOffsetLineIsCutWhileItIsRead() throws Exception {
+        File file = new File("./target/long-offset-line.log");
+        file.getParentFile().mkdirs();
+        Writer writer = new FileWriter(file);
+        writer.write("ERROR failed\n");
+        for (int i = 0; i < 100000; i++) {
+            writer.write('x');
+        }
+        writer.write("\r\nnext\n");
+        writer.close();
+        Log log = new Log();
+        log.setDisplayName("TestLog");
+        SearchPattern searchPattern = new SearchPattern("Errors", Pattern.compile("ERROR"), false, false);
+        LogMetrics logMetrics = new LogMetrics();
+        logMetrics.setLogMatchMaxBytes(20);
+        ScanContext scanContext = ScanContext.acquire();
+        OptimizedRandomAccessFile randomAccessFile = new OptimizedRandomAccessFile(file, "r");
+        try {
+            randomAccessFile.readLine(scanContext.getLineBuffer());
+            LogEventsProcessor classUnderTest = new LogEventsProcessor(new NullEventSink(), 2, log, logMetrics);
+            // 12 bytes of the match, 8 of the long line, its other 99992 bytes, its line break and the next line
+            Assert.assertEquals("ERROR failedxxxxxxxx [truncated 99998 bytes]", classUnderTest.processLogEvent(
+                    scanContext, searchPattern, randomAccessFile, scanContext.getLineBuffer()).getLogMatch());
+            Assert.assertTrue(scanContext.getScratchBuffer().capacity() < 1000);
+            Assert.assertEquals(13, randomAccessFile.getFilePointer());
+        } finally {
+            randomAccessFile.close();
+            scanContext.release();
+            file.delete();
+        }
+    }
     
 
     
+    private LogFileManager createLogFileManager(FilePointerProcessor filePointerProcessor, Log log,
+                                                MonitorContextConfiguration monitorContextConfiguration) {
+        return createLogFileManager(filePointerProcessor, log, new LogState(), monitorContextConfiguration);
+    }
+
+    private LogFileManager createLogFileManager(FilePointerProcessor filePointerProcessor, Log log, LogState logState,
+                                                MonitorContextConfiguration monitorContextConfiguration) {
+        return new LogFileManager(filePointerProcessor, log, logState, null, null, new DirectorySnapshots(), null,
+                monitorContextConfiguration);
+    }
+
     private String getFileSize(String logDir, String logName) throws Exception {
         String fullPath = String.format("%s%s%s", logDir, File.separator, logName);
         RandomAccessFile file = new RandomAccessFile(fullPath, "r");
@@ -688,6 +938,11 @@ public class LogFileManagerTest {
         }
     }
 
+    // the files of a run are scanned oldest first, the pointer added last is the one of the newest file
+    private FilePointer getLastFilePointer(LogMetrics logMetrics) {
+        return logMetrics.getFilePointers().get(logMetrics.getFilePointers().size() - 1);
+    }
+
     private File getTargetDir() {
         return new File("./target");
     }
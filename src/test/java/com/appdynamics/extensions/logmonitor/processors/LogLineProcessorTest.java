@@ -0,0 +1,163 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.processors;
+
+import com.appdynamics.extensions.logmonitor.NullEventSink;
+import com.appdynamics.extensions.logmonitor.config.Log;
+import com.appdynamics.extensions.logmonitor.config.Multiline;
+import com.appdynamics.extensions.logmonitor.config.SearchString;
+import com.appdynamics.extensions.logmonitor.metrics.LogMetrics;
+import com.google.common.collect.Lists;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+
+public class LogLineProcessorTest {
+    private File logFile = new File("./target/log-line-processor-test.log");
+
+    @After
+    public void deleteLogFile() {
+        logFile.delete();
+    }
+
+    @Test
+    public void testLogsOfTheSameFileAreScannedTogetherFromTheirOwnPositions() throws Exception {
+        logFile.getParentFile().mkdirs();
+        FileWriter writer = new FileWriter(logFile);
+        for (int i = 0; i < 100; i++) {
+            writer.write(i % 2 == 0 ? "line " + i + " ERROR\n" : "line " + i + " WARN\n");
+        }
+        writer.close();
+        long middle = lineStart(50);
+
+        LogMetrics errorMetrics = createLogMetrics();
+        LogMetrics warnMetrics = createLogMetrics();
+        LogLineProcessor errors = new LogLineProcessor(createLog("Errors", "ERROR"), 0, null, errorMetrics, null, 0);
+        LogLineProcessor warnings = new LogLineProcessor(createLog("Warnings", "WARN"), middle, null, warnMetrics,
+                null, 0);
+        new LogMetricsProcessor(logFile, null, new CountDownLatch(1), Lists.newArrayList(warnings, errors)).run();
+
+        assertEquals("50", errorMetrics.getMetrics().get("Errors|Search String|Errors|Occurrences").getMetricValue());
+        assertEquals("25", warnMetrics.getMetrics().get("Warnings|Search String|Warnings|Occurrences")
+                .getMetricValue());
+        assertEquals(logFile.length(), errorMetrics.getFilePointers().get(0).getLastReadPosition());
+        assertEquals(logFile.length(), warnMetrics.getFilePointers().get(0).getLastReadPosition());
+        assertEquals(String.valueOf(logFile.length()), warnMetrics.getMetrics().get("Warnings|File size (Bytes)")
+                .getMetricValue());
+    }
+
+    @Test
+    public void testLineStraddlingTheStartPositionIsReadLikeOnItsOwn() throws Exception {
+        logFile.getParentFile().mkdirs();
+        FileWriter writer = new FileWriter(logFile);
+        for (int i = 0; i < 100; i++) {
+            writer.write(i % 2 == 0 ? "line " + i + " ERROR\n" : "line " + i + " WARN\n");
+        }
+        writer.close();
+        // at the WARN of line 51, and one byte into it
+        for (int skipped = 8; skipped <= 9; skipped++) {
+            long position = lineStart(51) + skipped;
+            LogMetrics errorMetrics = createLogMetrics();
+            LogMetrics sharedMetrics = createLogMetrics();
+            LogMetrics soloMetrics = createLogMetrics();
+            LogLineProcessor errors = new LogLineProcessor(createLog("Errors", "ERROR"), 0, null, errorMetrics, null,
+                    0);
+            LogLineProcessor shared = new LogLineProcessor(createLog("Warnings", "WARN"), position, null,
+                    sharedMetrics, null, 0);
+            LogLineProcessor solo = new LogLineProcessor(createLog("Warnings", "WARN"), position, null, soloMetrics,
+                    null, 0);
+            new LogMetricsProcessor(logFile, null, new CountDownLatch(1), Lists.newArrayList(errors, shared)).run();
+            new LogMetricsProcessor(logFile, null, new CountDownLatch(1), Lists.newArrayList(solo)).run();
+
+            String occurrences = "Warnings|Search String|Warnings|Occurrences";
+            assertEquals(skipped == 8 ? "25" : "24", soloMetrics.getMetrics().get(occurrences).getMetricValue());
+            assertEquals(soloMetrics.getMetrics().get(occurrences).getMetricValue(),
+                    sharedMetrics.getMetrics().get(occurrences).getMetricValue());
+        }
+    }
+
+    @Test
+    public void testRecordPendingAtTheEndOfTheFileIsReadAgainByTheNextScan() throws Exception {
+        logFile.getParentFile().mkdirs();
+        FileWriter writer = new FileWriter(logFile);
+        String firstLine = "2020-06-01 10:00:01 INFO started\n";
+        writer.write(firstLine + "2020-06-01 10:00:02 ERROR failed\n");
+        writer.close();
+        long recordStart = firstLine.length();
+        Log log = createLog("Errors", "ERROR.*at com");
+        log.getSearchStrings().get(0).setMatchExactString(false);
+        Multiline multiline = new Multiline();
+        multiline.setStartPattern("^\\d{4}-\\d{2}-\\d{2} ");
+        log.setMultiline(multiline);
+
+        LogMetrics logMetrics = createLogMetrics();
+        new LogMetricsProcessor(logFile, 0, log, null, new CountDownLatch(1), logMetrics, null, 0).run();
+        assertEquals("0", logMetrics.getMetrics().get("Errors|Search String|Errors|Occurrences").getMetricValue());
+        assertEquals(recordStart, logMetrics.getFilePointers().get(0).getLastReadPosition());
+
+        // the stack trace is written after the first scan
+        writer = new FileWriter(logFile, true);
+        writer.write("\tat com.foo.Bar.baz(Bar.java:10)\n");
+        writer.close();
+        logMetrics = createLogMetrics();
+        new LogMetricsProcessor(logFile, recordStart, log, null, new CountDownLatch(1), logMetrics, null, 0).run();
+        assertEquals("1", logMetrics.getMetrics().get("Errors|Search String|Errors|Occurrences").getMetricValue());
+        assertEquals(logFile.length(), logMetrics.getFilePointers().get(0).getLastReadPosition());
+    }
+
+    @Test
+    public void testEveryMatchOfASingleLineLogCapturesAnEvent() throws Exception {
+        logFile.getParentFile().mkdirs();
+        FileWriter writer = new FileWriter(logFile);
+        writer.write("ERROR first ERROR second\n");
+        writer.close();
+
+        LogMetrics logMetrics = createLogMetrics();
+        LogLineProcessor errors = new LogLineProcessor(createLog("Errors", "ERROR"), 0, null, logMetrics,
+                new NullEventSink(), 0);
+        new LogMetricsProcessor(logFile, null, new CountDownLatch(1), Lists.newArrayList(errors)).run();
+
+        assertEquals("2", logMetrics.getMetrics().get("Errors|Search String|Errors|Occurrences").getMetricValue());
+        assertEquals(2, logMetrics.getEventsToBePublished().size());
+    }
+
+    private long lineStart(int line) {
+        long position = 0;
+        for (int i = 0; i < line; i++) {
+            position += (i % 2 == 0 ? "line " + i + " ERROR\n" : "line " + i + " WARN\n").length();
+        }
+        return position;
+    }
+
+    private LogMetrics createLogMetrics() {
+        LogMetrics logMetrics = new LogMetrics();
+        logMetrics.setMetricPrefix("Prefix");
+        return logMetrics;
+    }
+
+    private Log createLog(String displayName, String pattern) {
+        Log log = new Log();
+        log.setDisplayName(displayName);
+        log.setLogDirectory(logFile.getParent());
+        log.setLogName(logFile.getName());
+        SearchString searchString = new SearchString();
+        searchString.setDisplayName(displayName);
+        searchString.setPattern(pattern);
+        searchString.setMatchExactString(true);
+        searchString.setCaseSensitive(true);
+        searchString.setPrintMatchedString(false);
+        log.setSearchStrings(Lists.newArrayList(searchString));
+        return log;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.processors;
+
+import com.appdynamics.extensions.logmonitor.config.Multiline;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MultilineAggregatorTest {
+    private long position;
+
+    @Test
+    public void testStackTraceIsJoinedWithItsLogStatement() {
+        Multiline multiline = new Multiline();
+        multiline.setStartPattern("^\\d{4}-\\d{2}-\\d{2} ");
+        MultilineAggregator aggregator = new MultilineAggregator(multiline, ScanContext.acquire());
+
+        assertFalse(add(aggregator, "2020-06-01 10:00:01 ERROR failed"));
+        assertFalse(add(aggregator, "java.lang.NullPointerException"));
+        assertFalse(add(aggregator, "\tat com.foo.Bar.baz(Bar.java:10)"));
+        assertTrue(add(aggregator, "2020-06-01 10:00:02 INFO done"));
+        assertEquals("2020-06-01 10:00:01 ERROR failed\njava.lang.NullPointerException\n" +
+                "\tat com.foo.Bar.baz(Bar.java:10)", aggregator.getCompletedRecord().toString());
+
+        assertTrue(aggregator.flush());
+        assertEquals("2020-06-01 10:00:02 INFO done", aggregator.getCompletedRecord().toString());
+        assertFalse(aggregator.flush());
+    }
+
+    @Test
+    public void testRecordIsCompletedAtMaxLines() {
+        Multiline multiline = new Multiline();
+        multiline.setContinuationPattern("^\\s");
+        multiline.setMaxLines(2);
+        MultilineAggregator aggregator = new MultilineAggregator(multiline, ScanContext.acquire());
+
+        assertFalse(add(aggregator, "first"));
+        assertFalse(add(aggregator, " second"));
+        assertTrue(add(aggregator, " third"));
+        assertEquals("first\n second", aggregator.getCompletedRecord().toString());
+        assertTrue(add(aggregator, "fourth"));
+        assertEquals(" third", aggregator.getCompletedRecord().toString());
+    }
+
+    @Test
+    public void testRecordIsCompletedAtMaxBytesOfTheFile() {
+        Multiline multiline = new Multiline();
+        multiline.setContinuationPattern("^\\s");
+        multiline.setMaxBytes(20);
+        MultilineAggregator aggregator = new MultilineAggregator(multiline, ScanContext.acquire());
+
+        assertFalse(add(aggregator, "first"));
+        assertFalse(add(aggregator, " second"));
+        assertEquals(0, aggregator.getPendingRecordStart());
+        // 6 + 8 + 7 bytes with the line terminators
+        assertTrue(add(aggregator, " third"));
+        assertEquals("first\n second", aggregator.getCompletedRecord().toString());
+        assertEquals(14, aggregator.getPendingRecordStart());
+    }
+
+    // adds the line as if it was read from a file with '\n' terminated lines
+    private boolean add(MultilineAggregator aggregator, String line) {
+        long lineStart = position;
+        position += line.length() + 1;
+        return aggregator.add(line, lineStart, position);
+    }
+}
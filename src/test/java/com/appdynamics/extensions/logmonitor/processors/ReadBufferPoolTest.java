@@ -0,0 +1,123 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.processors;
+
+import org.bitbucket.kienerj.OptimizedRandomAccessFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ReadBufferPoolTest {
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = new File("./target/read-buffer-pool-test.log").getAbsoluteFile();
+        file.getParentFile().mkdirs();
+        FileWriter writer = new FileWriter(file);
+        try {
+            for (int i = 0; i < 100000; i++) {
+                writer.write("line " + i + " of the read buffer pool test\n");
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testBufferSizeGrowsWithBacklogAndLineLength() {
+        assertEquals(ReadBufferPool.MIN_SIZE, ReadBufferPool.chooseBufferSize(0, 100));
+        assertEquals(ReadBufferPool.MIN_SIZE, ReadBufferPool.chooseBufferSize(100 * 1024, 100));
+        assertEquals(64 * 1024, ReadBufferPool.chooseBufferSize(1024 * 1024, 100));
+        assertEquals(ReadBufferPool.MAX_SIZE, ReadBufferPool.chooseBufferSize(1024L * 1024 * 1024, 100));
+        // long lines get a larger buffer even for a small backlog
+        assertEquals(128 * 1024, ReadBufferPool.chooseBufferSize(1024, 2000));
+    }
+
+    @Test
+    public void testReleasedBufferIsReused() {
+        ReadBufferPool.ReadBuffer buffer = ReadBufferPool.acquire(32 * 1024);
+        assertTrue(buffer.getBytes().isDirect());
+        assertEquals(32 * 1024, buffer.getChars().length);
+        ReadBufferPool.release(buffer);
+        assertSame(buffer, ReadBufferPool.acquire(32 * 1024));
+    }
+
+    @Test
+    public void testDirectMemoryIsCappedForBuffersInUse() {
+        // as if many scans were running at once, each holding a buffer
+        List<ReadBufferPool.ReadBuffer> buffers = new ArrayList<ReadBufferPool.ReadBuffer>();
+        try {
+            for (int i = 0; i < 2 * ReadBufferPool.MAX_DIRECT_BYTES / ReadBufferPool.MAX_SIZE; i++) {
+                buffers.add(ReadBufferPool.acquire(ReadBufferPool.MAX_SIZE));
+                assertTrue(ReadBufferPool.getDirectBytes() <= ReadBufferPool.MAX_DIRECT_BYTES);
+            }
+            ReadBufferPool.ReadBuffer last = buffers.get(buffers.size() - 1);
+            assertFalse(last.getBytes().isDirect());
+            assertEquals(ReadBufferPool.MAX_SIZE, last.getChars().length);
+        } finally {
+            for (ReadBufferPool.ReadBuffer buffer : buffers) {
+                ReadBufferPool.release(buffer);
+            }
+        }
+        // only the few pooled buffers are left
+        assertTrue(ReadBufferPool.getDirectBytes() < ReadBufferPool.MAX_DIRECT_BYTES / 4);
+    }
+
+    @Test
+    public void testDirectBufferReadsSameLinesAsHeapBuffer() throws IOException {
+        ScanContext scanContext = ScanContext.acquire();
+        OptimizedRandomAccessFile large = scanContext.open(file, file.length());
+        OptimizedRandomAccessFile small = new OptimizedRandomAccessFile(file, "r");
+        try {
+            large.seek(17);
+            small.seek(17);
+            String expected;
+            int lines = 0;
+            while ((expected = small.readLine()) != null) {
+                assertEquals(expected, large.readLine());
+                assertEquals(small.getFilePointer(), large.getFilePointer());
+                lines++;
+            }
+            assertEquals(100000, lines);
+            assertEquals(null, large.readLine());
+        } finally {
+            large.close();
+            small.close();
+            scanContext.release();
+        }
+    }
+
+    @Test
+    public void testLineLengthAverageFollowsScans() {
+        ScanContext scanContext = ScanContext.acquire();
+        int before = scanContext.getAverageLineLength();
+        scanContext.recordLines(100L * 4000, 100);
+        int after = scanContext.getAverageLineLength();
+        assertTrue(after > before);
+        scanContext.recordLines(0, 0);
+        assertEquals(after, scanContext.getAverageLineLength());
+    }
+}
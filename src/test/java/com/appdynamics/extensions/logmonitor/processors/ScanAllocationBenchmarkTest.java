@@ -0,0 +1,116 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.processors;
+
+import com.appdynamics.extensions.logmonitor.config.Log;
+import com.appdynamics.extensions.logmonitor.config.SearchString;
+import com.appdynamics.extensions.logmonitor.metrics.LogMetrics;
+import com.google.common.collect.Lists;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the bytes allocated by the scanning thread while processing a log, once the pooled
+ * {@link ScanContext} is warmed up.
+ */
+public class ScanAllocationBenchmarkTest {
+    private static final int LINES = 100000;
+    private static final int MATCH_EVERY = 1000;
+    private static final long MAX_ALLOCATED_BYTES_PER_LINE = 8;
+
+    private File logFile;
+
+    @Before
+    public void createLogFile() throws Exception {
+        logFile = new File("./target/scan-allocation-benchmark.log");
+        logFile.getParentFile().mkdirs();
+        BufferedWriter writer = new BufferedWriter(new FileWriter(logFile));
+        try {
+            for (int i = 0; i < LINES; i++) {
+                String level = i % MATCH_EVERY == 0 ? "ERROR" : "DEBUG";
+                writer.write("[Thread-1] 29 Apr 2014 12:31:18,647 " + level +
+                        " DynamicServiceManager - Scheduling DynamicServiceManager at interval of " + i + " seconds\n");
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    @After
+    public void deleteLogFile() {
+        logFile.delete();
+    }
+
+    @Test
+    public void testSteadyStateScanningAllocatesAlmostNothingPerLine() throws Exception {
+        java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        Assume.assumeTrue(allocationBean.isThreadAllocatedMemorySupported());
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+        Log log = createLog();
+
+        for (int i = 0; i < 5; i++) {
+            scan(log);
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = allocationBean.getThreadAllocatedBytes(threadId);
+        LogMetrics logMetrics = scan(log);
+        long allocatedBytes = allocationBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(String.valueOf(LINES / MATCH_EVERY),
+                logMetrics.getMetrics().get("TestLog|Search String|Error|Occurrences").getMetricValue());
+        assertEquals(logMetrics.getMetrics().get("TestLog|Search String|Interval|Occurrences").getMetricValue(),
+                String.valueOf(logMetrics.getValueStatistics().get("TestLog|Search String|Interval|").getCount()));
+        assertTrue("Allocated " + allocatedBytes + " bytes for " + LINES + " lines",
+                allocatedBytes <= MAX_ALLOCATED_BYTES_PER_LINE * LINES);
+    }
+
+    private LogMetrics scan(Log log) throws Exception {
+        LogMetrics logMetrics = new LogMetrics();
+        logMetrics.setMetricPrefix("Custom Metrics|Log Monitor|");
+        CountDownLatch latch = new CountDownLatch(1);
+        new LogMetricsProcessor(logFile, 0, log, null, latch, logMetrics, null, 0).run();
+        latch.await();
+        return logMetrics;
+    }
+
+    private Log createLog() {
+        Log log = new Log();
+        log.setDisplayName("TestLog");
+        log.setLogDirectory(logFile.getParent());
+        log.setLogName(logFile.getName());
+        log.setSearchStrings(Lists.newArrayList(createSearchString("Error", "error", true),
+                createSearchString("Warn", "warn", true), createSearchString("Interval", "interval of (?<seconds>5\\d+) ",
+                        false)));
+        log.getSearchStrings().get(2).setValueGroup("seconds");
+        return log;
+    }
+
+    private SearchString createSearchString(String displayName, String pattern, boolean matchExactString) {
+        SearchString searchString = new SearchString();
+        searchString.setDisplayName(displayName);
+        searchString.setPattern(pattern);
+        searchString.setMatchExactString(matchExactString);
+        searchString.setCaseSensitive(false);
+        searchString.setPrintMatchedString(false);
+        return searchString;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.processors;
+
+import com.appdynamics.extensions.logmonitor.config.Log;
+import com.appdynamics.extensions.logmonitor.config.SearchString;
+import com.appdynamics.extensions.logmonitor.metrics.LogMetrics;
+import com.appdynamics.extensions.logmonitor.processors.ScanScheduler.ScanBudget;
+import com.google.common.collect.Lists;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ScanSchedulerTest {
+    private File logFile = new File("./target/scan-scheduler-test.log");
+
+    @After
+    public void deleteLogFile() {
+        logFile.delete();
+    }
+
+    @Test
+    public void testQuotasAreWeightedAndUnusedQuotaIsShared() {
+        Log small = createLog("Small", 1);
+        Log large = createLog("Large", 3);
+        ScanScheduler scanScheduler = new ScanScheduler();
+        scanScheduler.startCycle(Lists.newArrayList(small, large), 4000);
+
+        ScanBudget smallBudget = scanScheduler.getBudget(small);
+        ScanBudget largeBudget = scanScheduler.getBudget(large);
+        assertEquals(100, smallBudget.acquire(100));
+        assertEquals(3000, largeBudget.acquire(5000));
+        assertEquals(0, largeBudget.acquire(5000));
+
+        smallBudget.release();
+        assertEquals(900, largeBudget.acquire(5000));
+        assertEquals(0, largeBudget.acquire(5000));
+    }
+
+    @Test
+    public void testUnlimitedWithoutBudget() {
+        Log log = createLog("Log", 1);
+        ScanScheduler scanScheduler = new ScanScheduler();
+        scanScheduler.startCycle(Lists.newArrayList(log), 0);
+        assertEquals(null, scanScheduler.getBudget(log));
+    }
+
+    @Test
+    public void testScanStopsAtLineBoundaryAndResumes() throws Exception {
+        logFile.getParentFile().mkdirs();
+        FileWriter writer = new FileWriter(logFile);
+        for (int i = 0; i < 100; i++) {
+            writer.write("line " + i + " ERROR\n");
+        }
+        writer.close();
+        Log log = createLog("Log", 1);
+        ScanScheduler scanScheduler = new ScanScheduler();
+        long position = 0;
+        long errors = 0;
+        int runs = 0;
+        while (position < logFile.length()) {
+            scanScheduler.startCycle(Lists.newArrayList(log), 500);
+            LogMetrics logMetrics = new LogMetrics();
+            logMetrics.setMetricPrefix("Prefix");
+            LogMetricsProcessor logMetricsProcessor = new LogMetricsProcessor(logFile, position, log, null,
+                    scanScheduler.getBudget(log), new CountDownLatch(1), logMetrics, null, 0);
+            logMetricsProcessor.run();
+            long newPosition = logMetrics.getFilePointers().get(0).getLastReadPosition();
+            assertTrue(newPosition - position < 500 + 20);
+            assertEquals(newPosition < logFile.length(), logMetricsProcessor.isBudgetExhausted());
+            errors += Long.parseLong(logMetrics.getMetrics().get("Log|Search String|Errors|Occurrences")
+                    .getMetricValue());
+            position = newPosition;
+            runs++;
+        }
+        assertEquals(100, errors);
+        assertTrue(runs > 1);
+        assertFalse(runs > 10);
+    }
+
+    private Log createLog(String displayName, int scanWeight) {
+        Log log = new Log();
+        log.setDisplayName(displayName);
+        log.setLogDirectory(logFile.getParent());
+        log.setLogName(logFile.getName());
+        log.setScanWeight(scanWeight);
+        SearchString searchString = new SearchString();
+        searchString.setDisplayName("Errors");
+        searchString.setPattern("ERROR");
+        searchString.setMatchExactString(true);
+        searchString.setCaseSensitive(true);
+        searchString.setPrintMatchedString(false);
+        log.setSearchStrings(Lists.newArrayList(searchString));
+        return log;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.processors;
+
+import com.appdynamics.extensions.logmonitor.config.Log;
+import org.junit.Test;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TimeBucketsTest {
+
+    @Test
+    public void testClosedMinutesArePolledInTimeOrder() {
+        TimeBuckets timeBuckets = new TimeBuckets(5, 2);
+        timeBuckets.add(102, new long[]{1, 0});
+        timeBuckets.add(100, new long[]{2, 1});
+        timeBuckets.add(103, new long[]{0, 4});
+
+        assertEquals(2, timeBuckets.pollClosed(103)[0]);
+        assertEquals(1, timeBuckets.pollClosed(103)[0]);
+        // the newest minute stays open until a newer minute shows up or the wall clock moves on
+        assertNull(timeBuckets.pollClosed(103));
+        assertEquals(4, timeBuckets.pollClosed(105)[1]);
+        assertNull(timeBuckets.pollClosed(105));
+    }
+
+    @Test
+    public void testMinutesOutsideTheRingAreFoldedWithoutLosingCounts() {
+        TimeBuckets timeBuckets = new TimeBuckets(3, 1);
+        timeBuckets.add(10, new long[]{1});
+        timeBuckets.add(11, new long[]{2});
+        timeBuckets.add(12, new long[]{4});
+        timeBuckets.add(14, new long[]{8});
+
+        // 14 only leaves room for minutes 12 to 14, so 10 and 11 are folded into 12
+        assertEquals(7, timeBuckets.pollClosed(30)[0]);
+        assertEquals(8, timeBuckets.pollClosed(30)[0]);
+        assertNull(timeBuckets.pollClosed(30));
+
+        timeBuckets.add(40, new long[]{16});
+        timeBuckets.add(50, new long[]{32});
+        assertEquals(48, timeBuckets.pollClosed(60)[0]);
+    }
+
+    @Test
+    public void testLateMinutesAreAddedToTheNextPublishedMinute() {
+        TimeBuckets timeBuckets = new TimeBuckets(5, 1);
+        timeBuckets.add(10, new long[]{1});
+        assertEquals(1, timeBuckets.pollClosed(20)[0]);
+        timeBuckets.add(8, new long[]{5});
+        assertEquals(5, timeBuckets.pollClosed(20)[0]);
+    }
+
+    @Test
+    public void testCatchUpIsPublishedOneMinutePerRun() {
+        TimeBuckets timeBuckets = new TimeBuckets(60, 1);
+        // a 10 minute backlog read by a single run, one match per minute
+        for (long minute = 100; minute < 110; minute++) {
+            timeBuckets.add(minute, new long[]{1});
+        }
+
+        for (int run = 0; run < 10; run++) {
+            assertEquals(1, timeBuckets.pollClosed(120)[0]);
+        }
+        assertNull(timeBuckets.pollClosed(120));
+    }
+
+    @Test
+    public void testYearlessTimestampsAreReadAsTheCurrentOrPreviousYear() {
+        Log log = new Log();
+        log.setTimestampFormat("MMM dd HH:mm:ss");
+        log.setTimestampTimeZone("UTC");
+        TimestampExtractor timestampExtractor = new TimestampExtractor(log);
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM dd HH:mm:ss", Locale.ENGLISH);
+        ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC).withSecond(0).withNano(0);
+
+        assertEquals(now.toEpochSecond() / 60, timestampExtractor.extractMinute(formatter.format(now) + " ERROR",
+                ScanContext.acquire()));
+        // more than a day ahead of the clock: written in the previous year
+        ZonedDateTime ahead = now.plusDays(2);
+        assertEquals(ahead.minusYears(1).toEpochSecond() / 60, timestampExtractor.extractMinute(
+                formatter.format(ahead) + " ERROR", ScanContext.acquire()));
+    }
+
+    @Test
+    public void testTimestampExtractorWithPattern() {
+        Log log = new Log();
+        log.setTimestampFormat("dd MMM yyyy HH:mm:ss,SSS");
+        log.setTimestampPattern("\\] (\\d{2} \\w{3} \\d{4} [\\d:,]+)");
+        log.setTimestampTimeZone("UTC");
+        TimestampExtractor timestampExtractor = new TimestampExtractor(log);
+        ScanContext scanContext = ScanContext.acquire();
+
+        long minute = timestampExtractor.extractMinute(
+                "[Thread-1] 29 Apr 2014 12:31:18,647  INFO LifeCycleManager - Started", scanContext);
+        assertEquals(1398774678L / 60, minute);
+        assertEquals(minute, timestampExtractor.extractMinute(
+                new StringBuilder("[Thread-2] 29 Apr 2014 12:31:59,001  DEBUG Other"), scanContext));
+        assertEquals(minute + 1, timestampExtractor.extractMinute(
+                "[Thread-2] 29 Apr 2014 12:32:00,000  DEBUG Other", scanContext));
+        assertEquals(TimestampExtractor.NO_TIMESTAMP, timestampExtractor.extractMinute(
+                "\tat com.appdynamics.Foo.bar(Foo.java:10)", scanContext));
+    }
+
+    @Test
+    public void testTimestampExtractorAtStartOfLine() {
+        Log log = new Log();
+        log.setTimestampFormat("yyyy-MM-dd HH:mm:ss");
+        log.setTimestampTimeZone("UTC");
+        TimestampExtractor timestampExtractor = new TimestampExtractor(log);
+
+        assertEquals(1398774660L / 60, timestampExtractor.extractMinute("2014-04-29 12:31:18 ERROR failed",
+                ScanContext.acquire()));
+    }
+}
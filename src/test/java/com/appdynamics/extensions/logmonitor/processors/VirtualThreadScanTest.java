@@ -0,0 +1,181 @@
+/*
+ *  Copyright 2020. AppDynamics LLC and its affiliates.
+ *  All Rights Reserved.
+ *  This is unpublished proprietary source code of AppDynamics LLC and its affiliates.
+ *  The copyright notice above does not evidence any actual or intended publication of such source code.
+ *
+ */
+
+package com.appdynamics.extensions.logmonitor.processors;
+
+import com.appdynamics.extensions.AMonitorJob;
+import com.appdynamics.extensions.conf.MonitorContextConfiguration;
+import com.appdynamics.extensions.logmonitor.config.Log;
+import com.appdynamics.extensions.logmonitor.config.SearchString;
+import com.appdynamics.extensions.logmonitor.metrics.LogMetrics;
+import com.appdynamics.extensions.logmonitor.util.LogMonitorUtil;
+import com.google.common.collect.Lists;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that a run over many small logs on virtual threads counts the same as a run on the thread pool, and that
+ * virtual threads reuse the scan contexts of earlier scans. Skipped on JVMs without virtual threads.
+ */
+public class VirtualThreadScanTest {
+    private static final int LOGS = 500;
+    private static final int LINES_PER_LOG = 200;
+    private static final int POOL_THREADS = 10;
+
+    private File logDirectory = new File("./target/virtual-thread-scan");
+    private ExecutorService virtualThreadExecutor;
+
+    @Before
+    public void createLogFiles() throws Exception {
+        virtualThreadExecutor = LogMonitorUtil.newVirtualThreadExecutor();
+        Assume.assumeNotNull(virtualThreadExecutor);
+        logDirectory.mkdirs();
+        for (int i = 0; i < LOGS; i++) {
+            FileWriter writer = new FileWriter(new File(logDirectory, "log-" + i + ".log"));
+            for (int j = 0; j < LINES_PER_LOG; j++) {
+                writer.write("[Thread-1] 29 Apr 2014 12:31:18,647 " + (j % 10 == 0 ? "ERROR" : "INFO") +
+                        " LifeCycleManager - Started service [DynamicServiceManager]\n");
+            }
+            writer.close();
+        }
+    }
+
+    @After
+    public void deleteLogFiles() {
+        if (virtualThreadExecutor != null) {
+            virtualThreadExecutor.shutdown();
+        }
+        File[] files = logDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        logDirectory.delete();
+    }
+
+    @Test
+    public void testRunOnVirtualThreadsCountsLikeRunOnPool() throws Exception {
+        MonitorContextConfiguration monitorContextConfiguration = new MonitorContextConfiguration("Log Monitor",
+                "Custom Metrics|Log Monitor|", Mockito.mock(File.class), Mockito.mock(AMonitorJob.class));
+        monitorContextConfiguration.setConfigYml("src/test/resources/conf/config.yaml");
+        List<Log> logs = createLogs();
+
+        long poolErrors = runOnPool(logs, monitorContextConfiguration);
+        long virtualThreadErrors = runOnVirtualThreads(logs, monitorContextConfiguration);
+        assertEquals(LOGS * LINES_PER_LOG / 10, poolErrors);
+        assertEquals(poolErrors, virtualThreadErrors);
+    }
+
+    @Test
+    public void testScanContextIsReusedByLaterVirtualThread() throws Exception {
+        final ScanContext released = virtualThreadExecutor.submit(new Callable<ScanContext>() {
+            public ScanContext call() {
+                ScanContext scanContext = ScanContext.acquire();
+                scanContext.release();
+                return scanContext;
+            }
+        }).get();
+        boolean reused = virtualThreadExecutor.submit(new Callable<Boolean>() {
+            public Boolean call() {
+                // other tests may have left idle contexts ahead of this one
+                List<ScanContext> acquired = Lists.newArrayList();
+                try {
+                    for (int i = 0; i <= 64; i++) {
+                        ScanContext scanContext = ScanContext.acquire();
+                        acquired.add(scanContext);
+                        if (scanContext == released) {
+                            return true;
+                        }
+                    }
+                    return false;
+                } finally {
+                    for (ScanContext scanContext : acquired) {
+                        scanContext.release();
+                    }
+                }
+            }
+        }).get();
+        assertTrue(reused);
+    }
+
+    // like the task executor of the monitor: one pooled thread per log, scanning on the monitor's executor service
+    private long runOnPool(List<Log> logs, MonitorContextConfiguration monitorContextConfiguration) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(POOL_THREADS);
+        try {
+            return run(pool, null, logs, monitorContextConfiguration);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private long runOnVirtualThreads(List<Log> logs, MonitorContextConfiguration monitorContextConfiguration)
+            throws Exception {
+        return run(virtualThreadExecutor, virtualThreadExecutor, logs, monitorContextConfiguration);
+    }
+
+    private long run(ExecutorService taskExecutor, ExecutorService scanExecutor, List<Log> logs,
+                     final MonitorContextConfiguration monitorContextConfiguration) throws Exception {
+        final FilePointerProcessor filePointerProcessor = new FilePointerProcessor();
+        final AtomicLong errors = new AtomicLong();
+        List<Future<?>> futures = Lists.newArrayList();
+        for (final Log log : logs) {
+            final LogFileManager logFileManager = new LogFileManager(filePointerProcessor, log, new LogState(), null,
+                    scanExecutor, new DirectorySnapshots(), null, monitorContextConfiguration);
+            futures.add(taskExecutor.submit(new Runnable() {
+                public void run() {
+                    try {
+                        LogMetrics logMetrics = logFileManager.processLogMetrics();
+                        errors.addAndGet(Long.parseLong(logMetrics.getMetrics().get(log.getDisplayName() +
+                                "|Search String|Errors|Occurrences").getMetricValue()));
+                    } catch (Exception ex) {
+                        throw new RuntimeException(ex);
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        return errors.get();
+    }
+
+    private List<Log> createLogs() {
+        List<Log> logs = Lists.newArrayList();
+        for (int i = 0; i < LOGS; i++) {
+            Log log = new Log();
+            log.setDisplayName("Log " + i);
+            log.setLogDirectory(logDirectory.getPath());
+            log.setLogName("log-" + i + ".log");
+            SearchString searchString = new SearchString();
+            searchString.setDisplayName("Errors");
+            searchString.setPattern("ERROR");
+            searchString.setMatchExactString(true);
+            searchString.setCaseSensitive(true);
+            searchString.setPrintMatchedString(false);
+            log.setSearchStrings(Lists.newArrayList(searchString));
+            logs.add(log);
+        }
+        return logs;
+    }
+}